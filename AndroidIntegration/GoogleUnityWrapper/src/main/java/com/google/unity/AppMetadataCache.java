@@ -0,0 +1,249 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.net.Uri;
+import android.os.Handler;
+
+import java.util.HashMap;
+
+/**
+ * Caches the application label and the version name and code of this app, Tango Core and the
+ * older Tango service package, so that version checks do not go through PackageManager every
+ * time.
+ *
+ * The cache is filled by {@link #refresh()} and kept current from package broadcasts, which are
+ * handled on the handler passed to the constructor; a locale change re-resolves the label.
+ * Other packages are resolved on first query and tracked from then on. Queries may be made
+ * from any thread.
+ */
+final class AppMetadataCache {
+    public static final String TANGO_CORE_PACKAGE = "com.google.tango";
+    public static final String TANGO_SERVICE_PACKAGE = "com.projecttango.tango";
+
+    // Layout of getMetadata(). Version codes are decimal strings, "-1" if not installed; version
+    // names are empty if not installed.
+    public static final int METADATA_PACKAGE_NAME = 0;
+    public static final int METADATA_LABEL = 1;
+    public static final int METADATA_VERSION_NAME = 2;
+    public static final int METADATA_VERSION_CODE = 3;
+    public static final int METADATA_TANGO_CORE_VERSION_NAME = 4;
+    public static final int METADATA_TANGO_CORE_VERSION_CODE = 5;
+    public static final int METADATA_TANGO_SERVICE_VERSION_NAME = 6;
+    public static final int METADATA_TANGO_SERVICE_VERSION_CODE = 7;
+    public static final int METADATA_SIZE = 8;
+
+    private static final class PackageVersion {
+        final String versionName;
+        final int versionCode;
+
+        PackageVersion(String versionName, int versionCode) {
+            this.versionName = versionName;
+            this.versionCode = versionCode;
+        }
+    }
+
+    private static final PackageVersion NOT_INSTALLED = new PackageVersion("", -1);
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final String mPackageName;
+
+    // Guarded by |this|.
+    private final HashMap<String, PackageVersion> mVersions = new HashMap<>();
+    private String mLabel = "";
+
+    private volatile String[] mMetadata;
+
+    // Handler thread only.
+    private boolean mRunning;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_LOCALE_CHANGED.equals(intent.getAction())) {
+                refreshLabel();
+                return;
+            }
+            Uri data = intent.getData();
+            String packageName = data != null ? data.getSchemeSpecificPart() : null;
+            boolean tracked;
+            synchronized (AppMetadataCache.this) {
+                tracked = packageName != null && mVersions.containsKey(packageName);
+            }
+            if (tracked) {
+                PackageVersion version = resolve(packageName);
+                synchronized (AppMetadataCache.this) {
+                    mVersions.put(packageName, version);
+                    updateMetadataLocked();
+                }
+            }
+        }
+    };
+
+    public AppMetadataCache(Context context, Handler handler) {
+        mContext = context.getApplicationContext();
+        mHandler = handler;
+        mPackageName = context.getPackageName();
+        synchronized (this) {
+            mVersions.put(mPackageName, NOT_INSTALLED);
+            mVersions.put(TANGO_CORE_PACKAGE, NOT_INSTALLED);
+            mVersions.put(TANGO_SERVICE_PACKAGE, NOT_INSTALLED);
+            updateMetadataLocked();
+        }
+    }
+
+    public void start() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mRunning) {
+                    return;
+                }
+                mRunning = true;
+                IntentFilter filter = new IntentFilter();
+                filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+                filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+                filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+                filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+                filter.addDataScheme("package");
+                mContext.registerReceiver(mReceiver, filter, null, mHandler);
+                mContext.registerReceiver(mReceiver,
+                        new IntentFilter(Intent.ACTION_LOCALE_CHANGED), null, mHandler);
+            }
+        });
+    }
+
+    public void stop() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mRunning) {
+                    return;
+                }
+                mRunning = false;
+                mContext.unregisterReceiver(mReceiver);
+            }
+        });
+    }
+
+    /**
+     * Resolves the label and every tracked package now. Blocks on PackageManager, so call it off
+     * the main thread.
+     */
+    public void refresh() {
+        String[] packageNames;
+        synchronized (this) {
+            packageNames = mVersions.keySet().toArray(new String[mVersions.size()]);
+        }
+        PackageVersion[] versions = new PackageVersion[packageNames.length];
+        for (int i = 0; i < packageNames.length; i++) {
+            versions[i] = resolve(packageNames[i]);
+        }
+        String label = resolveLabel();
+        synchronized (this) {
+            for (int i = 0; i < packageNames.length; i++) {
+                mVersions.put(packageNames[i], versions[i]);
+            }
+            mLabel = label;
+            updateMetadataLocked();
+        }
+    }
+
+    /**
+     * Returns the cached metadata laid out as described by the METADATA_ constants.
+     */
+    public String[] getMetadata() {
+        return mMetadata.clone();
+    }
+
+    public synchronized String getLabel() {
+        return mLabel;
+    }
+
+    /**
+     * Returns the version name of |packageName|, or an empty string if it is not installed.
+     */
+    public String getVersionName(String packageName) {
+        return getVersion(packageName).versionName;
+    }
+
+    /**
+     * Returns the version code of |packageName|, or -1 if it is not installed.
+     */
+    public int getVersionCode(String packageName) {
+        return getVersion(packageName).versionCode;
+    }
+
+    private PackageVersion getVersion(String packageName) {
+        synchronized (this) {
+            PackageVersion version = mVersions.get(packageName);
+            if (version != null) {
+                return version;
+            }
+        }
+        PackageVersion version = resolve(packageName);
+        synchronized (this) {
+            mVersions.put(packageName, version);
+        }
+        return version;
+    }
+
+    private void refreshLabel() {
+        String label = resolveLabel();
+        synchronized (this) {
+            mLabel = label;
+            updateMetadataLocked();
+        }
+    }
+
+    private PackageVersion resolve(String packageName) {
+        try {
+            PackageInfo info = mContext.getPackageManager().getPackageInfo(packageName, 0);
+            return new PackageVersion(
+                    info.versionName != null ? info.versionName : "", info.versionCode);
+        } catch (PackageManager.NameNotFoundException e) {
+            return NOT_INSTALLED;
+        }
+    }
+
+    private String resolveLabel() {
+        CharSequence label = mContext.getApplicationInfo().loadLabel(mContext.getPackageManager());
+        return label != null ? label.toString() : "";
+    }
+
+    private void updateMetadataLocked() {
+        String[] metadata = new String[METADATA_SIZE];
+        metadata[METADATA_PACKAGE_NAME] = mPackageName;
+        metadata[METADATA_LABEL] = mLabel;
+        PackageVersion version = mVersions.get(mPackageName);
+        metadata[METADATA_VERSION_NAME] = version.versionName;
+        metadata[METADATA_VERSION_CODE] = Integer.toString(version.versionCode);
+        version = mVersions.get(TANGO_CORE_PACKAGE);
+        metadata[METADATA_TANGO_CORE_VERSION_NAME] = version.versionName;
+        metadata[METADATA_TANGO_CORE_VERSION_CODE] = Integer.toString(version.versionCode);
+        version = mVersions.get(TANGO_SERVICE_PACKAGE);
+        metadata[METADATA_TANGO_SERVICE_VERSION_NAME] = version.versionName;
+        metadata[METADATA_TANGO_SERVICE_VERSION_CODE] = Integer.toString(version.versionCode);
+        mMetadata = metadata;
+    }
+}
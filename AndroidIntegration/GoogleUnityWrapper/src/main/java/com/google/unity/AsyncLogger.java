@@ -0,0 +1,272 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.Process;
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Logs from a background thread so that callers only pay for an enqueue.
+ *
+ * Messages go into a bounded, lock-free queue that a daemon thread drains every
+ * {@link #FLUSH_INTERVAL_MS} ms, or sooner once the queue is half full. Consecutive messages with
+ * the same level and tag are written to logcat as one batch. Messages below the minimum level,
+ * over a tag's rate limit or arriving while the queue is full are dropped and counted; the counts
+ * are reported in the log once the drops stop. Messages queued with |record| set are also handed
+ * to the {@link Sink}, on the same thread, so that e.g. journal writes stay off the caller's path.
+ */
+final class AsyncLogger {
+    /**
+     * Receives every message logged with |record| set, on the logging thread.
+     */
+    public interface Sink {
+        public void onMessage(int level, String tag, String message);
+    }
+
+    public static final long FLUSH_INTERVAL_MS = 100;
+    public static final int DEFAULT_CAPACITY = 1024;
+    public static final int DEFAULT_MAX_MESSAGES_PER_TAG_PER_SECOND = 200;
+
+    private static final String TAG = AsyncLogger.class.getSimpleName();
+    private static final long NANOS_PER_MILLI = 1000000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    // Stay below logcat's per-entry payload limit.
+    private static final int MAX_BATCH_CHARS = 4000;
+
+    private static final class Entry {
+        final int level;
+        final String tag;
+        final String message;
+        final boolean record;
+
+        Entry(int level, String tag, String message, boolean record) {
+            this.level = level;
+            this.tag = tag;
+            this.message = message;
+            this.record = record;
+        }
+    }
+
+    // Fixed one-second window counter; approximate under contention, which is fine for a limit.
+    private static final class RateWindow {
+        volatile long windowStartNanos;
+        final AtomicInteger count = new AtomicInteger();
+    }
+
+    private final int mCapacity;
+    private final ConcurrentLinkedQueue<Entry> mQueue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger mSize = new AtomicInteger();
+    private final ConcurrentHashMap<String, RateWindow> mRateWindows = new ConcurrentHashMap<>();
+    private final AtomicLong mDroppedFull = new AtomicLong();
+    private final AtomicLong mDroppedRateLimited = new AtomicLong();
+
+    private volatile int mMinLevel = Log.VERBOSE;
+    private volatile int mMaxPerTagPerSecond = DEFAULT_MAX_MESSAGES_PER_TAG_PER_SECOND;
+    private volatile boolean mRunning;
+    private volatile Thread mThread;
+    private volatile Sink mSink;
+
+    // Consumer thread only.
+    private final StringBuilder mBatch = new StringBuilder();
+    private long mReportedDroppedFull;
+    private long mReportedDroppedRateLimited;
+
+    public AsyncLogger(int capacity) {
+        mCapacity = capacity;
+    }
+
+    public synchronized void start() {
+        if (mThread != null) {
+            return;
+        }
+        mRunning = true;
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                drainLoop();
+            }
+        }, "GoogleUnityLogger");
+        thread.setDaemon(true);
+        mThread = thread;
+        thread.start();
+    }
+
+    /**
+     * Stops the logging thread after it has written everything already queued.
+     */
+    public synchronized void stop() {
+        Thread thread = mThread;
+        if (thread == null) {
+            return;
+        }
+        mRunning = false;
+        LockSupport.unpark(thread);
+        mThread = null;
+    }
+
+    public void setSink(Sink sink) {
+        mSink = sink;
+    }
+
+    public void setMinLevel(int level) {
+        mMinLevel = level;
+    }
+
+    /**
+     * Sets how many messages a single tag may log per second; 0 or less disables the limit.
+     */
+    public void setMaxMessagesPerTagPerSecond(int limit) {
+        mMaxPerTagPerSecond = limit;
+    }
+
+    public boolean log(int level, String tag, String message) {
+        return log(level, tag, message, false);
+    }
+
+    /**
+     * Queues a message, to be handed to the sink as well if |record| is set. Like Log.println, a
+     * null tag or message is logged as "null". Returns false if it was dropped.
+     */
+    public boolean log(int level, String tag, String message, boolean record) {
+        if (level < mMinLevel) {
+            return false;
+        }
+        tag = String.valueOf(tag);
+        message = String.valueOf(message);
+        if (!acquireRate(tag)) {
+            mDroppedRateLimited.incrementAndGet();
+            return false;
+        }
+        int size = mSize.incrementAndGet();
+        if (size > mCapacity) {
+            mSize.decrementAndGet();
+            mDroppedFull.incrementAndGet();
+            return false;
+        }
+        mQueue.offer(new Entry(level, tag, message, record));
+
+        Thread thread = mThread;
+        if (thread == null) {
+            // Not started or already stopped; never lose the message.
+            drain();
+        } else if (size == mCapacity / 2) {
+            LockSupport.unpark(thread);
+        }
+        return true;
+    }
+
+    /**
+     * Returns {dropped because the queue was full, dropped by the rate limit}.
+     */
+    public long[] getDroppedCounts() {
+        return new long[] {mDroppedFull.get(), mDroppedRateLimited.get()};
+    }
+
+    private boolean acquireRate(String tag) {
+        int limit = mMaxPerTagPerSecond;
+        if (limit <= 0) {
+            return true;
+        }
+        RateWindow window = mRateWindows.get(tag);
+        if (window == null) {
+            RateWindow created = new RateWindow();
+            window = mRateWindows.putIfAbsent(tag, created);
+            if (window == null) {
+                window = created;
+            }
+        }
+        long now = System.nanoTime();
+        if (now - window.windowStartNanos >= NANOS_PER_SECOND) {
+            window.windowStartNanos = now;
+            window.count.set(0);
+        }
+        return window.count.incrementAndGet() <= limit;
+    }
+
+    private void drainLoop() {
+        while (mRunning) {
+            drain();
+            LockSupport.parkNanos(this, FLUSH_INTERVAL_MS * NANOS_PER_MILLI);
+        }
+        drain();
+    }
+
+    // Never throws, since an uncaught exception on the logging thread would kill the process;
+    // whatever was being batched when something goes wrong is lost.
+    private synchronized void drain() {
+        try {
+            drainLocked();
+        } catch (RuntimeException e) {
+            mBatch.setLength(0);
+            Log.e(TAG, "Failed to write log messages", e);
+        }
+    }
+
+    private void drainLocked() {
+        Sink sink = mSink;
+        int batchLevel = 0;
+        String batchTag = null;
+        Entry entry;
+        while ((entry = mQueue.poll()) != null) {
+            mSize.decrementAndGet();
+            if (entry.record && sink != null) {
+                sink.onMessage(entry.level, entry.tag, entry.message);
+            }
+            boolean sameBatch = batchTag != null && entry.level == batchLevel
+                    && entry.tag.equals(batchTag)
+                    && mBatch.length() + entry.message.length() < MAX_BATCH_CHARS;
+            if (!sameBatch) {
+                flushBatch(batchLevel, batchTag);
+                batchLevel = entry.level;
+                batchTag = entry.tag;
+            } else {
+                mBatch.append('\n');
+            }
+            mBatch.append(entry.message);
+        }
+        flushBatch(batchLevel, batchTag);
+        reportDrops();
+    }
+
+    private void flushBatch(int level, String tag) {
+        if (tag != null && mBatch.length() > 0) {
+            Log.println(level, tag, mBatch.toString());
+        }
+        mBatch.setLength(0);
+    }
+
+    private void reportDrops() {
+        long droppedFull = mDroppedFull.get();
+        long droppedRateLimited = mDroppedRateLimited.get();
+        if (droppedFull != mReportedDroppedFull
+                || droppedRateLimited != mReportedDroppedRateLimited) {
+            Log.w(TAG, "Dropped " + (droppedFull - mReportedDroppedFull)
+                    + " log messages (queue full) and "
+                    + (droppedRateLimited - mReportedDroppedRateLimited)
+                    + " (rate limited)");
+            mReportedDroppedFull = droppedFull;
+            mReportedDroppedRateLimited = droppedRateLimited;
+        }
+    }
+}
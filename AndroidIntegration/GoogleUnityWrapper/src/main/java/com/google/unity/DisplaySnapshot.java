@@ -0,0 +1,84 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.util.DisplayMetrics;
+import android.view.Display;
+
+/**
+ * Immutable view of the display state at one point in time.
+ */
+public final class DisplaySnapshot {
+    // Indices into the array returned by toArray().
+    public static final int INDEX_ROTATION = 0;
+    public static final int INDEX_WIDTH = 1;
+    public static final int INDEX_HEIGHT = 2;
+    public static final int INDEX_DENSITY_DPI = 3;
+    public static final int INDEX_REFRESH_RATE = 4;
+    public static final int INDEX_VERSION = 5;
+    public static final int ARRAY_LENGTH = 6;
+
+    public final int rotation;
+    public final int widthPixels;
+    public final int heightPixels;
+    public final int densityDpi;
+    public final float refreshRate;
+    public final int version;
+
+    public DisplaySnapshot(
+        int rotation, int widthPixels, int heightPixels, int densityDpi, float refreshRate,
+        int version) {
+        this.rotation = rotation;
+        this.widthPixels = widthPixels;
+        this.heightPixels = heightPixels;
+        this.densityDpi = densityDpi;
+        this.refreshRate = refreshRate;
+        this.version = version;
+    }
+
+    /**
+     * Reads the current state of |display|.
+     */
+    public static DisplaySnapshot capture(Display display, int version) {
+        DisplayMetrics metrics = new DisplayMetrics();
+        display.getRealMetrics(metrics);
+        return new DisplaySnapshot(display.getRotation(), metrics.widthPixels,
+                metrics.heightPixels, metrics.densityDpi, display.getRefreshRate(), version);
+    }
+
+    public boolean sameStateAs(DisplaySnapshot other) {
+        return other != null
+                && rotation == other.rotation
+                && widthPixels == other.widthPixels
+                && heightPixels == other.heightPixels
+                && densityDpi == other.densityDpi
+                && refreshRate == other.refreshRate;
+    }
+
+    /**
+     * Flattens the snapshot so Unity can read it with a single call; see the INDEX_ constants.
+     */
+    public float[] toArray() {
+        float[] values = new float[ARRAY_LENGTH];
+        values[INDEX_ROTATION] = rotation;
+        values[INDEX_WIDTH] = widthPixels;
+        values[INDEX_HEIGHT] = heightPixels;
+        values[INDEX_DENSITY_DPI] = densityDpi;
+        values[INDEX_REFRESH_RATE] = refreshRate;
+        values[INDEX_VERSION] = version;
+        return values;
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.hardware.display.DisplayManager;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Process;
+import android.view.Display;
+
+/**
+ * Watches a single display from a background thread and keeps a {@link DisplaySnapshot} of it.
+ * The listener is called on the handler passed to the constructor, normally the main thread's,
+ * and only if the snapshot actually changed.
+ *
+ * By default every change notification refreshes the snapshot at once. With a coalescing window
+ * set, notifications that arrive within the window of each other are collapsed into one: the
+ * snapshot is refreshed once the display has been quiet for that long.
+ */
+final class DisplayTracker {
+    /**
+     * Called on the listener handler when the display state has settled on a new value.
+     */
+    public interface Listener {
+        public void onDisplaySnapshotChanged(DisplaySnapshot snapshot);
+    }
+
+    public static final long DEFAULT_COALESCE_WINDOW_MS = 0;
+
+    private final DisplayManager mDisplayManager;
+    private final Display mDisplay;
+    private final int mDisplayId;
+    private final Listener mListener;
+    private final Handler mListenerHandler;
+
+    private HandlerThread mThread;
+    private volatile Handler mHandler;
+
+    private volatile long mCoalesceWindowMs = DEFAULT_COALESCE_WINDOW_MS;
+    private volatile DisplaySnapshot mSnapshot;
+
+    // Only touched on the tracker thread.
+    private int mVersion;
+
+    private final Runnable mRefresh = new Runnable() {
+        @Override
+        public void run() {
+            DisplaySnapshot previous = mSnapshot;
+            DisplaySnapshot current = DisplaySnapshot.capture(mDisplay, mVersion + 1);
+            if (current.sameStateAs(previous)) {
+                return;
+            }
+            mVersion++;
+            mSnapshot = current;
+            if (previous != null) {
+                final DisplaySnapshot changed = current;
+                mListenerHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mListener.onDisplaySnapshotChanged(changed);
+                    }
+                });
+            }
+        }
+    };
+
+    private final DisplayManager.DisplayListener mDisplayListener =
+            new DisplayManager.DisplayListener() {
+        @Override
+        public void onDisplayAdded(int displayId) {}
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            Handler handler = mHandler;
+            if (displayId != mDisplayId || handler == null) {
+                return;
+            }
+            long windowMs = mCoalesceWindowMs;
+            if (windowMs == 0) {
+                handler.post(mRefresh);
+                return;
+            }
+            // Restart the window on every notification so a burst produces a single refresh.
+            handler.removeCallbacks(mRefresh);
+            handler.postDelayed(mRefresh, windowMs);
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {}
+    };
+
+    public DisplayTracker(DisplayManager displayManager, Display display, Listener listener,
+            Handler listenerHandler) {
+        mDisplayManager = displayManager;
+        mDisplay = display;
+        mDisplayId = display.getDisplayId();
+        mListener = listener;
+        mListenerHandler = listenerHandler;
+    }
+
+    public void start() {
+        if (mThread != null) {
+            return;
+        }
+        mThread = new HandlerThread("GoogleUnityDisplay", Process.THREAD_PRIORITY_BACKGROUND);
+        mThread.start();
+        mHandler = new Handler(mThread.getLooper());
+        mHandler.post(mRefresh);
+        mDisplayManager.registerDisplayListener(mDisplayListener, mHandler);
+    }
+
+    public void stop() {
+        if (mThread == null) {
+            return;
+        }
+        mDisplayManager.unregisterDisplayListener(mDisplayListener);
+        mHandler.removeCallbacks(mRefresh);
+        mThread.quit();
+        mThread = null;
+        mHandler = null;
+    }
+
+    public void setCoalesceWindowMillis(long windowMs) {
+        mCoalesceWindowMs = Math.max(0, windowMs);
+    }
+
+    /**
+     * Returns the latest snapshot, or null before the first one has been taken.
+     */
+    public DisplaySnapshot getSnapshot() {
+        return mSnapshot;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.SurfaceHolder;
+import android.view.SurfaceView;
+import android.view.View;
+import android.view.ViewGroup;
+
+/**
+ * Renders Unity below the native resolution by giving its surface a fixed buffer size, and
+ * adjusts that scale from measured frame times.
+ *
+ * Frame times are averaged over windows of {@link #FRAMES_PER_WINDOW} frames. The scale drops
+ * one step after {@link #WINDOWS_TO_SCALE_DOWN} consecutive windows slower than the target frame
+ * time, and rises one step only after {@link #WINDOWS_TO_SCALE_UP} consecutive windows well
+ * below it, so that it does not oscillate between two steps. The compositor stretches the buffer
+ * to the view, so touch coordinates stay in view pixels and must be multiplied by the scale to
+ * reach buffer pixels.
+ *
+ * {@link #reportFrameTime} must be called from one thread at a time, normally Unity's; all other
+ * methods may be called from any thread. The surface is resized on the main thread.
+ */
+final class DynamicResolutionController {
+    public static final float DEFAULT_MIN_SCALE = 0.5f;
+    public static final float DEFAULT_MAX_SCALE = 1.0f;
+    public static final float DEFAULT_SCALE_STEP = 0.1f;
+    public static final int DEFAULT_TARGET_FRAME_RATE = 30;
+
+    public static final int FRAMES_PER_WINDOW = 30;
+    public static final int WINDOWS_TO_SCALE_DOWN = 2;
+    public static final int WINDOWS_TO_SCALE_UP = 4;
+
+    // A window is slow above the target time and fast below this fraction of it.
+    private static final float SLOW_THRESHOLD = 1.05f;
+    private static final float FAST_THRESHOLD = 0.75f;
+
+    private static final long NANOS_PER_SECOND = 1000000000L;
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only.
+    private SurfaceView mSurfaceView;
+    // Whether the surface currently has a fixed size set by this controller.
+    private boolean mFixedSize;
+
+    private volatile boolean mAdaptive;
+    private volatile float mScale = DEFAULT_MAX_SCALE;
+    private volatile float mMinScale = DEFAULT_MIN_SCALE;
+    private volatile float mMaxScale = DEFAULT_MAX_SCALE;
+    private volatile float mScaleStep = DEFAULT_SCALE_STEP;
+    private volatile long mTargetFrameNanos = NANOS_PER_SECOND / DEFAULT_TARGET_FRAME_RATE;
+    private volatile int mBufferWidth;
+    private volatile int mBufferHeight;
+
+    // Frame time thread only.
+    private long mWindowNanos;
+    private int mWindowFrames;
+    private int mSlowWindows;
+    private int mFastWindows;
+
+    private final Runnable mApplyScale = new Runnable() {
+        @Override
+        public void run() {
+            applyScale();
+        }
+    };
+
+    private final View.OnLayoutChangeListener mLayoutListener = new View.OnLayoutChangeListener() {
+        @Override
+        public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                int oldLeft, int oldTop, int oldRight, int oldBottom) {
+            if (right - left != oldRight - oldLeft || bottom - top != oldBottom - oldTop) {
+                applyScale();
+            }
+        }
+    };
+
+    /**
+     * Attaches to the first SurfaceView under |playerView|. Must be called on the main thread.
+     */
+    public void attach(View playerView) {
+        detach();
+        mSurfaceView = findSurfaceView(playerView);
+        if (mSurfaceView != null) {
+            mSurfaceView.addOnLayoutChangeListener(mLayoutListener);
+            applyScale();
+        }
+    }
+
+    /**
+     * Must be called on the main thread.
+     */
+    public void detach() {
+        if (mSurfaceView != null) {
+            mSurfaceView.removeOnLayoutChangeListener(mLayoutListener);
+            mSurfaceView = null;
+            mFixedSize = false;
+        }
+    }
+
+    /**
+     * Sets the pixel format of the surface buffers, one of the android.graphics.PixelFormat
+     * constants. Must be called on the main thread.
+     */
+    public void setPixelFormat(int format) {
+        if (mSurfaceView != null) {
+            mSurfaceView.getHolder().setFormat(format);
+        }
+    }
+
+    /**
+     * Enables or disables adjusting the scale from frame times. The current scale is kept.
+     */
+    public void setAdaptive(boolean adaptive) {
+        mAdaptive = adaptive;
+    }
+
+    public void setScaleRange(float minScale, float maxScale) {
+        mMinScale = Math.max(0.1f, Math.min(minScale, 1.0f));
+        mMaxScale = Math.max(mMinScale, Math.min(maxScale, 1.0f));
+        setScale(mScale);
+    }
+
+    public void setScaleStep(float step) {
+        mScaleStep = Math.max(0.01f, step);
+    }
+
+    public void setTargetFrameRate(int framesPerSecond) {
+        mTargetFrameNanos = NANOS_PER_SECOND / Math.max(1, framesPerSecond);
+    }
+
+    /**
+     * Sets the scale directly, clamped to the scale range.
+     */
+    public void setScale(float scale) {
+        float clamped = Math.max(mMinScale, Math.min(scale, mMaxScale));
+        if (clamped != mScale) {
+            mScale = clamped;
+            mHandler.post(mApplyScale);
+        }
+    }
+
+    public float getScale() {
+        return mScale;
+    }
+
+    /**
+     * Returns {width, height} of the surface buffer, or zeros before the surface is laid out. At
+     * full scale this is the view size, even if Unity set a different buffer size itself.
+     */
+    public int[] getBufferSize() {
+        return new int[] {mBufferWidth, mBufferHeight};
+    }
+
+    /**
+     * Accounts for one rendered frame that took |frameNanos|.
+     */
+    public void reportFrameTime(long frameNanos) {
+        if (!mAdaptive) {
+            return;
+        }
+        mWindowNanos += frameNanos;
+        if (++mWindowFrames < FRAMES_PER_WINDOW) {
+            return;
+        }
+        long average = mWindowNanos / mWindowFrames;
+        mWindowNanos = 0;
+        mWindowFrames = 0;
+
+        long target = mTargetFrameNanos;
+        if (average > target * SLOW_THRESHOLD) {
+            mFastWindows = 0;
+            if (++mSlowWindows >= WINDOWS_TO_SCALE_DOWN) {
+                mSlowWindows = 0;
+                setScale(mScale - mScaleStep);
+            }
+        } else if (average < target * FAST_THRESHOLD) {
+            mSlowWindows = 0;
+            if (++mFastWindows >= WINDOWS_TO_SCALE_UP) {
+                mFastWindows = 0;
+                setScale(mScale + mScaleStep);
+            }
+        } else {
+            mSlowWindows = 0;
+            mFastWindows = 0;
+        }
+    }
+
+    // Main thread only.
+    private void applyScale() {
+        SurfaceView surfaceView = mSurfaceView;
+        if (surfaceView == null) {
+            return;
+        }
+        int viewWidth = surfaceView.getWidth();
+        int viewHeight = surfaceView.getHeight();
+        if (viewWidth == 0 || viewHeight == 0) {
+            // Not laid out yet; the layout listener applies the scale later.
+            return;
+        }
+
+        SurfaceHolder holder = surfaceView.getHolder();
+        float scale = mScale;
+        if (scale >= 1.0f) {
+            // Unity may size the buffer itself, e.g. for Screen.SetResolution, so the holder is
+            // only reset when leaving a size this controller set.
+            if (mFixedSize) {
+                holder.setSizeFromLayout();
+                mFixedSize = false;
+            }
+            mBufferWidth = viewWidth;
+            mBufferHeight = viewHeight;
+        } else {
+            int width = Math.max(1, Math.round(viewWidth * scale));
+            int height = Math.max(1, Math.round(viewHeight * scale));
+            holder.setFixedSize(width, height);
+            mFixedSize = true;
+            mBufferWidth = width;
+            mBufferHeight = height;
+        }
+    }
+
+    private static SurfaceView findSurfaceView(View view) {
+        if (view instanceof SurfaceView) {
+            return (SurfaceView) view;
+        }
+        if (view instanceof ViewGroup) {
+            ViewGroup group = (ViewGroup) view;
+            for (int i = 0; i < group.getChildCount(); i++) {
+                SurfaceView surfaceView = findSurfaceView(group.getChildAt(i));
+                if (surfaceView != null) {
+                    return surfaceView;
+                }
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.view.Choreographer;
+
+/**
+ * Measures the cadence of Choreographer frame callbacks on the main (UI) thread.
+ *
+ * It only sees the UI thread. It is not what the display showed, nor Unity's frame rate, since
+ * Unity renders on its own thread and Choreographer does not see its buffer swaps. What it
+ * catches is the UI thread being blocked or descheduled long enough to miss vsyncs, which also
+ * delays the input and lifecycle callbacks that Unity depends on.
+ *
+ * Every frame the interval since the previous callback is recorded, and the number of vsync
+ * periods it spans tells how many vsyncs the UI thread missed. A run of consecutive late frames
+ * counts as one jank episode. When the number of episodes in the last minute crosses the alert
+ * threshold, up or back down, the listener is told. Frame callbacks never allocate.
+ *
+ * {@link #start} and {@link #stop} must be called on the main thread; {@link #getStats} may be
+ * called from any thread.
+ */
+final class FramePacingMonitor {
+    /**
+     * Called on the main thread when the jank rate crosses the alert threshold.
+     */
+    public interface Listener {
+        public void onJankAlert(boolean aboveThreshold, int episodesPerMinute);
+    }
+
+    public static final int DEFAULT_ALERT_EPISODES_PER_MINUTE = 10;
+
+    // Layout of getStats().
+    public static final int STAT_FRAMES = 0;
+    public static final int STAT_MISSED_VSYNCS = 1;
+    public static final int STAT_JANK_EPISODES = 2;
+    public static final int STAT_JANK_EPISODES_PER_MINUTE = 3;
+    /** Choreographer frame time (System.nanoTime() base) of the most recent frame. */
+    public static final int STAT_LAST_VSYNC_NANOS = 4;
+    public static final int STAT_VSYNC_PERIOD_NANOS = 5;
+    /** Frames that took 1, 2, 3 and 4 or more vsync periods. */
+    public static final int STAT_FRAMES_BY_VSYNCS = 6;
+    public static final int VSYNC_BUCKETS = 4;
+    /** Frame interval summary in microseconds, see LatencyHistogram.SUMMARY_ constants. */
+    public static final int STAT_INTERVAL_SUMMARY = STAT_FRAMES_BY_VSYNCS + VSYNC_BUCKETS;
+    public static final int STAT_COUNT = STAT_INTERVAL_SUMMARY + LatencyHistogram.SUMMARY_SIZE;
+
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final long NANOS_PER_SECOND = 1000000000L;
+    private static final long MINUTE_NANOS = 60 * NANOS_PER_SECOND;
+    // Longer gaps are the app being in the background, not jank.
+    private static final long MAX_INTERVAL_NANOS = NANOS_PER_SECOND;
+    // Episodes remembered for the per-minute rate; the rate saturates above this.
+    private static final int EPISODE_WINDOW_CAPACITY = 512;
+
+    private final Listener mListener;
+    private final LatencyHistogram mIntervals = new LatencyHistogram();
+    private final long[] mFramesByVsyncs = new long[VSYNC_BUCKETS];
+    private final long[] mEpisodeTimes = new long[EPISODE_WINDOW_CAPACITY];
+
+    // All fields below are guarded by |this|.
+    private Choreographer mChoreographer;
+    private boolean mRunning;
+    private long mVsyncPeriodNanos;
+    private int mAlertEpisodesPerMinute = DEFAULT_ALERT_EPISODES_PER_MINUTE;
+    private boolean mAlerting;
+    private long mLastFrameNanos;
+    private boolean mInEpisode;
+    private long mFrames;
+    private long mMissedVsyncs;
+    private long mEpisodes;
+    private int mEpisodeHead;
+    private int mEpisodeCount;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            onFrame(frameTimeNanos);
+        }
+    };
+
+    public FramePacingMonitor(float refreshRate, Listener listener) {
+        mListener = listener;
+        setRefreshRate(refreshRate);
+    }
+
+    public synchronized void start() {
+        if (mRunning) {
+            return;
+        }
+        if (mChoreographer == null) {
+            mChoreographer = Choreographer.getInstance();
+        }
+        mRunning = true;
+        mLastFrameNanos = 0;
+        mInEpisode = false;
+        mChoreographer.postFrameCallback(mFrameCallback);
+    }
+
+    public synchronized void stop() {
+        if (!mRunning) {
+            return;
+        }
+        mRunning = false;
+        mChoreographer.removeFrameCallback(mFrameCallback);
+    }
+
+    public synchronized void setRefreshRate(float refreshRate) {
+        mVsyncPeriodNanos = (long) (NANOS_PER_SECOND / (refreshRate > 0 ? refreshRate : 60.0f));
+    }
+
+    /**
+     * Sets how many jank episodes per minute trigger an alert; 0 or less disables alerts.
+     */
+    public synchronized void setAlertThreshold(int episodesPerMinute) {
+        mAlertEpisodesPerMinute = episodesPerMinute;
+    }
+
+    /**
+     * Returns the counters laid out as described by the STAT_ constants.
+     */
+    public synchronized long[] getStats() {
+        long[] stats = new long[STAT_COUNT];
+        stats[STAT_FRAMES] = mFrames;
+        stats[STAT_MISSED_VSYNCS] = mMissedVsyncs;
+        stats[STAT_JANK_EPISODES] = mEpisodes;
+        stats[STAT_JANK_EPISODES_PER_MINUTE] = episodesInLastMinute(System.nanoTime());
+        stats[STAT_LAST_VSYNC_NANOS] = mLastFrameNanos;
+        stats[STAT_VSYNC_PERIOD_NANOS] = mVsyncPeriodNanos;
+        System.arraycopy(mFramesByVsyncs, 0, stats, STAT_FRAMES_BY_VSYNCS, VSYNC_BUCKETS);
+        mIntervals.writeSummary(stats, STAT_INTERVAL_SUMMARY);
+        return stats;
+    }
+
+    public synchronized void reset() {
+        mIntervals.reset();
+        for (int i = 0; i < VSYNC_BUCKETS; i++) {
+            mFramesByVsyncs[i] = 0;
+        }
+        mFrames = 0;
+        mMissedVsyncs = 0;
+        mEpisodes = 0;
+        mEpisodeHead = 0;
+        mEpisodeCount = 0;
+        mInEpisode = false;
+        mAlerting = false;
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        boolean alertChanged;
+        boolean alerting;
+        int rate;
+        synchronized (this) {
+            if (!mRunning) {
+                return;
+            }
+            mChoreographer.postFrameCallback(mFrameCallback);
+
+            long interval = frameTimeNanos - mLastFrameNanos;
+            boolean measured = mLastFrameNanos != 0 && interval > 0
+                    && interval < MAX_INTERVAL_NANOS;
+            mLastFrameNanos = frameTimeNanos;
+            if (!measured) {
+                return;
+            }
+
+            mFrames++;
+            mIntervals.record(interval / NANOS_PER_MICRO);
+            // Round to the nearest period; vsync timestamps jitter slightly.
+            long periods = Math.max(1, (interval + mVsyncPeriodNanos / 2) / mVsyncPeriodNanos);
+            mFramesByVsyncs[(int) Math.min(periods, VSYNC_BUCKETS) - 1]++;
+            if (periods > 1) {
+                mMissedVsyncs += periods - 1;
+                if (!mInEpisode) {
+                    mInEpisode = true;
+                    mEpisodes++;
+                    addEpisode(frameTimeNanos);
+                }
+            } else {
+                mInEpisode = false;
+            }
+
+            rate = episodesInLastMinute(frameTimeNanos);
+            boolean above = mAlertEpisodesPerMinute > 0 && rate >= mAlertEpisodesPerMinute;
+            alertChanged = above != mAlerting;
+            mAlerting = above;
+            alerting = above;
+        }
+        if (alertChanged) {
+            mListener.onJankAlert(alerting, rate);
+        }
+    }
+
+    private void addEpisode(long timeNanos) {
+        if (mEpisodeCount == EPISODE_WINDOW_CAPACITY) {
+            mEpisodeHead = (mEpisodeHead + 1) % EPISODE_WINDOW_CAPACITY;
+            mEpisodeCount--;
+        }
+        mEpisodeTimes[(mEpisodeHead + mEpisodeCount) % EPISODE_WINDOW_CAPACITY] = timeNanos;
+        mEpisodeCount++;
+    }
+
+    private int episodesInLastMinute(long nowNanos) {
+        while (mEpisodeCount > 0 && nowNanos - mEpisodeTimes[mEpisodeHead] > MINUTE_NANOS) {
+            mEpisodeHead = (mEpisodeHead + 1) % EPISODE_WINDOW_CAPACITY;
+            mEpisodeCount--;
+        }
+        return mEpisodeCount;
+    }
+}
@@ -18,19 +18,24 @@ package com.google.unity;
 import android.annotation.SuppressLint;
 import android.app.Activity;
 import android.app.NativeActivity;
+import android.content.ComponentName;
 import android.content.Intent;
-import android.content.pm.PackageManager;
 import android.content.res.Configuration;
 import android.graphics.PixelFormat;
 import android.hardware.display.DisplayManager;
 import android.net.Uri;
+import android.os.Build;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.Process;
 import android.provider.Settings;
 import android.support.v4.app.ActivityCompat;
-import android.support.v4.content.ContextCompat;
 import android.util.Log;
+import android.util.SparseArray;
 import android.view.KeyEvent;
-import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
@@ -39,116 +44,1136 @@ import android.view.WindowManager;
 
 import com.unity3d.player.UnityPlayer;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+
 /**
  * Custom Unity Activity that passes through Android lifecycle events from Unity appropriately.
  */
 public class GoogleUnityActivity
     extends Activity
     implements ActivityCompat.OnRequestPermissionsResultCallback {
+    private static final String TAG = GoogleUnityActivity.class.getSimpleName();
+
+    /**
+     * Callbacks for common Android lifecycle events.
+     */
+    public interface AndroidLifecycleListener {
+        public void onPause();
+
+        public void onResume();
+
+        public void onActivityResult(int requestCode, int resultCode, Intent data);
+
+        public void onRequestPermissionsResult(
+            int requestCode, String[] permissions, int[] grantResults);
+
+        public void onDisplayChanged();
+    }
+
+    /**
+     * Optional additional callbacks. Listeners that implement only AndroidLifecycleListener keep
+     * working and do not receive these.
+     */
+    public interface ExtendedAndroidLifecycleListener extends AndroidLifecycleListener {
+        public void onStart();
+
+        public void onStop();
+
+        public void onPerformanceTierChanged(int tier);
+
+        public void onTrimMemory(int level);
+
+        public void onLowMemory();
+    }
+
+    // don't change the name of this variable; referenced from native code
+    protected UnityPlayer mUnityPlayer;
+
+    // Build.VERSION_CODES.N, which is newer than the SDK this compiles against.
+    private static final int SDK_N = 24;
+    private static final int LIFECYCLE_EVENT_QUEUE_CAPACITY = 64;
+    private static final int TRACE_CAPACITY = 1024;
+    private static final int JOURNAL_CAPACITY = 4096;
+    private static final long DEFAULT_WARM_RESUME_GRACE_MS = 5000;
+    private static final String JOURNAL_FILE_NAME = "google_unity_journal.bin";
+    private static final String PREVIOUS_JOURNAL_FILE_NAME = "google_unity_journal.prev.bin";
+
+    private final LifecycleListenerRegistry mLifecycleListeners = new LifecycleListenerRegistry();
+
+    /**
+     * The first listener attached that is still attached, or null if there is none. Kept for
+     * subclasses that read it from when only one listener was supported; assigning it has no
+     * effect on dispatch.
+     *
+     * @deprecated Listeners are kept in a list now; use attachLifecycleListener and
+     *     detachLifecycleListener.
+     */
+    @Deprecated
+    protected volatile AndroidLifecycleListener mAndroidLifecycleListener;
+
+    // Non-null while queued lifecycle event delivery is enabled.
+    private volatile LifecycleEventQueue mLifecycleEventQueue;
+
+    protected boolean mIsUnityQuit = false;
+
+    // Set by a startup thread; safe to read once onCreate has joined it.
+    private DisplayTracker mDisplayTracker;
+
+    private StartupSequence mStartupSequence;
+
+    // Extra keys to flatten per request code, and the latest flattened result for each. Both are
+    // guarded by mActivityResultExtraKeys.
+    private final SparseArray<String[]> mActivityResultExtraKeys = new SparseArray<>();
+    private final SparseArray<byte[]> mActivityResultExtras = new SparseArray<>();
+
+    private final PermissionCache mPermissionCache = new PermissionCache(this);
+
+    private final AsyncLogger mLogger = new AsyncLogger(AsyncLogger.DEFAULT_CAPACITY);
+
+    // Package name, cached for use as the log tag.
+    private volatile String mLogTag;
+
+    private final PermissionRequestOrchestrator mPermissionRequestOrchestrator =
+            new PermissionRequestOrchestrator(this, mPermissionCache,
+                    new PermissionRequestOrchestrator.Callback() {
+        @Override
+        public void onPermissionsResult(
+            int requestCode, String[] permissions, int[] grantResults) {
+            dispatchPermissionsResult(requestCode, permissions, grantResults);
+        }
+    });
+
+    // Non-null while touch/motion coalescing is enabled; only replaced on the UI thread.
+    private volatile MotionEventCoalescer mMotionEventCoalescer;
+
+    // Non-null while touch state is published through a shared buffer.
+    // Created on first enable and kept until the activity is gone, since Unity may hold its
+    // address; mSharedTouchBufferEnabled says whether touch events are written to it.
+    private volatile SharedTouchBuffer mSharedTouchBuffer;
+    private volatile boolean mSharedTouchBufferEnabled;
+    private volatile boolean mSharedTouchBufferBypassesInjectEvent;
+    private byte[] mSharedTouchBufferCopy;
+
+    private final InputLatencyStats mInputLatencyStats = new InputLatencyStats();
+
+    private final TraceRecorder mTraceRecorder = new TraceRecorder(TRACE_CAPACITY);
+
+    private final DynamicResolutionController mDynamicResolution =
+            new DynamicResolutionController();
+
+    // Created in onCreate; running while enabled and the activity is resumed.
+    private FramePacingMonitor mFramePacingMonitor;
+    private boolean mFramePacingMonitorEnabled;
+    private boolean mIsResumed;
+
+    // Main thread only. The player starts out paused until the first onResume.
+    private boolean mIsUnityPaused = true;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private volatile boolean mWarmResumeEnabled;
+    private volatile long mWarmResumeGraceMs = DEFAULT_WARM_RESUME_GRACE_MS;
+    private final Runnable mDeferredPause = new Runnable() {
+        @Override
+        public void run() {
+            pauseUnityPlayer();
+        }
+    };
+    private final ResumeLatencyTracker mResumeLatency = new ResumeLatencyTracker();
+
+    // Created in onCreate; held while the player is paused.
+    private UnityMessageChannel mUnityMessageChannel;
+
+    // Created the first time Unity or the app asks for it.
+    private volatile UnityMessageBus mUnityMessageBus;
+
+    // Background thread for the performance governor, the memory sampler and the app metadata
+    // broadcasts.
+    private HandlerThread mMonitorThread;
+    private Handler mMonitorHandler;
+    private PerformanceGovernor mPerformanceGovernor;
+    private MemorySampler mMemorySampler;
+    private AppMetadataCache mAppMetadata;
+
+    private ViewGroup mAndroidViewContainer;
+    private OverlayLayerCache mOverlayLayerCache;
+    private ViewPropertyBatcher mViewPropertyBatcher;
+    // Guarded by itself.
+    private final HashMap<String, Integer> mViewIds = new HashMap<>();
+
+    // Opened by a startup thread; null until then or if the file could not be mapped.
+    private volatile PerformanceJournal mJournal;
+
+    // Setup activity layout
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        long createStart = mTraceRecorder.beginSection("GoogleUnityActivity.onCreate");
+        mStartupSequence = new StartupSequence(mTraceRecorder);
+        mLogger.setSink(new AsyncLogger.Sink() {
+            @Override
+            public void onMessage(int level, String tag, String message) {
+                journal(PerformanceJournal.TYPE_LOG, level, 0, message);
+            }
+        });
+        mLogger.start();
+        startMonitors();
+
+        // Work that does not need the main thread overlaps with the window setup below and is
+        // joined before onCreate returns, i.e. before the first frame.
+        mStartupSequence.startInBackground("preloadNativeLibraries", new Runnable() {
+            @Override
+            public void run() {
+                preloadNativeLibraries();
+            }
+        });
+        mStartupSequence.startInBackground("displayTracker", new Runnable() {
+            @Override
+            public void run() {
+                startDisplayTracker();
+            }
+        });
+        mStartupSequence.startInBackground("openJournal", new Runnable() {
+            @Override
+            public void run() {
+                openJournal();
+            }
+        });
+        mStartupSequence.startInBackground("appMetadata", new Runnable() {
+            @Override
+            public void run() {
+                mAppMetadata.refresh();
+            }
+        });
+
+        long start = mStartupSequence.beginStage("window");
+        requestWindowFeature(Window.FEATURE_NO_TITLE);
+        super.onCreate(savedInstanceState);
+        mStartupSequence.endStage("window", start);
+
+        start = mStartupSequence.beginStage("setContentView");
+        setContentView(R.layout.activity_main);
+        mAndroidViewContainer = (ViewGroup) findViewById(R.id.android_view_container);
+        mOverlayLayerCache = new OverlayLayerCache(this, mAndroidViewContainer);
+        mViewPropertyBatcher = new ViewPropertyBatcher(new ViewPropertyBatcher.RootProvider() {
+            @Override
+            public View getRoot() {
+                return mOverlayLayerCache.getCurrentLayer();
+            }
+        });
+        mStartupSequence.endStage("setContentView", start);
+
+        start = mStartupSequence.beginStage("takeSurface");
+        getWindow().takeSurface(null);
+        setTheme(android.R.style.Theme_NoTitleBar_Fullscreen);
+        getWindow().setFormat(getInitialSurfacePixelFormat());
+        mStartupSequence.endStage("takeSurface", start);
+
+        start = mStartupSequence.beginStage("new UnityPlayer");
+        mUnityPlayer = new UnityPlayer(this);
+        mUnityMessageChannel = new UnityMessageChannel(UnityMessageChannel.DEFAULT_CAPACITY);
+        mUnityMessageChannel.setPaused(true);
+        mStartupSequence.endStage("new UnityPlayer", start);
+
+        start = mStartupSequence.beginStage("settings");
+        if (mUnityPlayer.getSettings().getBoolean("hide_status_bar", true)) {
+            getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN,
+                    WindowManager.LayoutParams.FLAG_FULLSCREEN);
+        }
+        mStartupSequence.endStage("settings", start);
+
+        start = mStartupSequence.beginStage("addView");
+        ((ViewGroup) findViewById(android.R.id.content)).addView(mUnityPlayer.getView(), 0);
+        mUnityPlayer.requestFocus();
+        mDynamicResolution.attach(mUnityPlayer.getView());
+        mFramePacingMonitor = new FramePacingMonitor(
+                getWindowManager().getDefaultDisplay().getRefreshRate(),
+                new FramePacingMonitor.Listener() {
+            @Override
+            public void onJankAlert(boolean aboveThreshold, int episodesPerMinute) {
+                queueLifecycleEvent(LifecycleEventQueue.TYPE_JANK_ALERT, aboveThreshold ? 1 : 0,
+                        episodesPerMinute, null);
+            }
+        });
+        mStartupSequence.endStage("addView", start);
+
+        mStartupSequence.joinBackgroundStages();
+        journal(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_CREATE, 0, null);
+        String[] stageNames = mStartupSequence.getStageNames();
+        long[] stageMicros = mStartupSequence.getStageDurationsMicros();
+        for (int i = 0; i < stageNames.length; i++) {
+            journal(PerformanceJournal.TYPE_TIMING, stageMicros[i] * 1000, 0,
+                    "startup." + stageNames[i]);
+        }
+        mTraceRecorder.endSection("GoogleUnityActivity.onCreate", createStart);
+    }
+
+    private void startMonitors() {
+        mMonitorThread = new HandlerThread("GoogleUnityMonitor", Process.THREAD_PRIORITY_BACKGROUND);
+        mMonitorThread.start();
+        mMonitorHandler = new Handler(mMonitorThread.getLooper());
+        mPerformanceGovernor = new PerformanceGovernor(this, mMonitorHandler,
+                new PerformanceGovernor.Listener() {
+            @Override
+            public void onPerformanceTierChanged(final int tier) {
+                queueLifecycleEvent(
+                    LifecycleEventQueue.TYPE_PERFORMANCE_TIER_CHANGED, tier, 0, null);
+                // Runs on the monitor thread; listeners get every callback on the main thread.
+                mMainHandler.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        mLifecycleListeners.dispatchPerformanceTierChanged(tier);
+                    }
+                });
+            }
+        });
+        mMemorySampler = new MemorySampler(mMonitorHandler, MemorySampler.DEFAULT_CAPACITY);
+        mAppMetadata = new AppMetadataCache(this, mMonitorHandler);
+        mAppMetadata.start();
+    }
+
+    /**
+     * Returns the android.graphics.PixelFormat of Unity's surface until
+     * {@link #setSurfacePixelFormat(int)} changes it.
+     */
+    protected int getInitialSurfacePixelFormat() {
+        return PixelFormat.RGB_565;
+    }
+
+    /**
+     * Returns the names of native libraries to load on a background thread during startup, in
+     * addition to the ones UnityPlayer loads itself. Libraries that fail to load are skipped.
+     */
+    protected String[] getPreloadedNativeLibraries() {
+        return new String[0];
+    }
+
+    // Runs on a startup thread. Initializing the UnityPlayer class loads libmain/libunity, so by
+    // the time onCreate constructs the player the libraries are usually already in memory.
+    private void preloadNativeLibraries() {
+        try {
+            Class.forName(UnityPlayer.class.getName(), true, getClassLoader());
+        } catch (ClassNotFoundException e) {
+            Log.w(TAG, "Failed to preload UnityPlayer", e);
+        }
+        for (String library : getPreloadedNativeLibraries()) {
+            try {
+                System.loadLibrary(library);
+            } catch (UnsatisfiedLinkError e) {
+                Log.w(TAG, "Failed to preload native library " + library, e);
+            }
+        }
+    }
+
+    // Runs on a startup thread.
+    private void startDisplayTracker() {
+        DisplayManager displayManager = (DisplayManager) getSystemService(DISPLAY_SERVICE);
+        if (displayManager == null) {
+            return;
+        }
+        DisplayTracker displayTracker = new DisplayTracker(displayManager,
+                getWindowManager().getDefaultDisplay(), new DisplayTracker.Listener() {
+            @Override
+            public void onDisplaySnapshotChanged(DisplaySnapshot snapshot) {
+                journal(PerformanceJournal.TYPE_DISPLAY, snapshot.rotation,
+                        ((long) snapshot.widthPixels << 32) | snapshot.heightPixels, null);
+                FramePacingMonitor framePacingMonitor = mFramePacingMonitor;
+                if (framePacingMonitor != null) {
+                    framePacingMonitor.setRefreshRate(snapshot.refreshRate);
+                }
+                queueLifecycleEvent(LifecycleEventQueue.TYPE_DISPLAY_CHANGED, 0, 0, null);
+                mLifecycleListeners.dispatchDisplayChanged();
+            }
+        }, mMainHandler);
+        displayTracker.start();
+        mDisplayTracker = displayTracker;
+    }
+
+    // Runs on a startup thread. The journal of the previous process is kept next to the new one;
+    // a recreated activity appends to this process's journal.
+    private void openJournal() {
+        File directory = getFilesDir();
+        try {
+            mJournal = PerformanceJournal.open(new File(directory, JOURNAL_FILE_NAME),
+                    new File(directory, PREVIOUS_JOURNAL_FILE_NAME), JOURNAL_CAPACITY,
+                    Process.myPid());
+        } catch (IOException e) {
+            Log.w(TAG, "Failed to open the performance journal", e);
+        }
+    }
+
+    private void journal(short type, long arg0, long arg1, String text) {
+        PerformanceJournal journal = mJournal;
+        if (journal != null) {
+            journal.record(type, arg0, arg1, text);
+        }
+    }
+
+    /**
+     * Returns the path of the journal written by this run, or null if it is not open. The
+     * journal of the previous run, e.g. one that crashed, is kept as
+     * {@link #getPreviousJournalPath()}. Decode either with the PerformanceJournalDecoder tool in
+     * GoogleUnityWrapperHost.
+     */
+    public String getJournalPath() {
+        return mJournal != null ? new File(getFilesDir(), JOURNAL_FILE_NAME).getPath() : null;
+    }
+
+    public String getPreviousJournalPath() {
+        File file = new File(getFilesDir(), PREVIOUS_JOURNAL_FILE_NAME);
+        return file.exists() ? file.getPath() : null;
+    }
+
+    /**
+     * Records a timing sample, e.g. a frame or load time measured in Unity, in the journal.
+     */
+    public void recordJournalTiming(String name, long durationNanos) {
+        journal(PerformanceJournal.TYPE_TIMING, durationNanos, 0, name);
+    }
+
+    /**
+     * Returns the names of the startup stages in the order they finished; see
+     * {@link #getStartupStageTimings()}.
+     */
+    public String[] getStartupStageNames() {
+        return mStartupSequence != null ? mStartupSequence.getStageNames() : new String[0];
+    }
+
+    /**
+     * Returns how long each startup stage took, in microseconds, matching
+     * {@link #getStartupStageNames()}. Background stages overlap the main thread ones.
+     */
+    public long[] getStartupStageTimings() {
+        return mStartupSequence != null ? mStartupSequence.getStageDurationsMicros() : new long[0];
+    }
+
+    /**
+     * Shows the developer's layout |layoutResId| above Unity. Layouts are inflated once and
+     * cached, so switching back to a layout shown before keeps its view state.
+     */
+    public void showAndroidViewLayer(final int layoutResId) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                long start = mTraceRecorder.beginSection("showAndroidViewLayer");
+                mOverlayLayerCache.show(layoutResId);
+                mTraceRecorder.endSection("showAndroidViewLayer", start);
+            }
+        });
+    }
+
+    /**
+     * Removes the current overlay layer, keeping it cached.
+     */
+    public void hideAndroidViewLayer() {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mOverlayLayerCache.hide();
+            }
+        });
+    }
+
+    /**
+     * Inflates the given overlay layouts in the background ahead of showAndroidViewLayer.
+     */
+    public void prefetchAndroidViewLayers(int[] layoutResIds) {
+        mOverlayLayerCache.prefetch(layoutResIds.clone());
+    }
+
+    /**
+     * Sets how many overlay layers are kept inflated; the least recently shown are evicted.
+     */
+    public void setAndroidViewLayerCacheSize(final int maxLayers) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mOverlayLayerCache.setMaxLayers(maxLayers);
+            }
+        });
+    }
+
+    public void clearAndroidViewLayerCache() {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mOverlayLayerCache.clear();
+            }
+        });
+    }
+
+    /**
+     * Returns {hits, misses, prefetched, evictions, cached layers} of the overlay layer cache.
+     */
+    public long[] getAndroidViewLayerCacheStats() {
+        return mOverlayLayerCache.getStats();
+    }
+
+    public void resetAndroidViewLayerCacheStats() {
+        mOverlayLayerCache.resetStats();
+    }
+
+    /**
+     * Applies an encoded batch of view property changes to the current overlay layer; see
+     * ViewPropertyBatcher for the format. Batches sent before the main thread runs are applied
+     * together in one post.
+     */
+    public void applyAndroidViewProperties(byte[] batch) {
+        mViewPropertyBatcher.submit(batch);
+    }
+
+    /**
+     * Returns the view ids for the given android:id names, or 0 for names that do not exist, so
+     * Unity can build property batches without looking views up by name every frame.
+     */
+    public int[] resolveAndroidViewIds(String[] names) {
+        int[] ids = new int[names.length];
+        synchronized (mViewIds) {
+            for (int i = 0; i < names.length; i++) {
+                Integer id = mViewIds.get(names[i]);
+                if (id == null) {
+                    id = getResources().getIdentifier(names[i], "id", getPackageName());
+                    mViewIds.put(names[i], id);
+                }
+                ids[i] = id;
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * Returns {batches, main thread posts, operations, operations on missing views} applied
+     * through applyAndroidViewProperties.
+     */
+    public long[] getAndroidViewPropertyStats() {
+        return mViewPropertyBatcher.getStats();
+    }
+
+    public void resetAndroidViewPropertyStats() {
+        mViewPropertyBatcher.resetStats();
+    }
+
+    /**
+     * Changes the pixel format of Unity's surface, e.g. to PixelFormat.RGBA_8888.
+     */
+    public void setSurfacePixelFormat(final int format) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                getWindow().setFormat(format);
+                mDynamicResolution.setPixelFormat(format);
+            }
+        });
+    }
+
+    /**
+     * Renders Unity at |scale| times the view size, between 0.1 and 1. Clamped to the range set
+     * by {@link #setRenderScaleRange(float, float)}.
+     */
+    public void setRenderScale(float scale) {
+        mDynamicResolution.setScale(scale);
+    }
+
+    /**
+     * Returns the current render scale. Touch positions are in view pixels; multiply them by the
+     * scale to get surface buffer pixels.
+     */
+    public float getRenderScale() {
+        return mDynamicResolution.getScale();
+    }
+
+    /**
+     * Returns {width, height} of Unity's surface buffer, or zeros before it is laid out.
+     */
+    public int[] getRenderBufferSize() {
+        return mDynamicResolution.getBufferSize();
+    }
+
+    /**
+     * Enables adjusting the render scale from the frame times passed to
+     * {@link #reportFrameTime(long)}.
+     */
+    public void setDynamicResolutionEnabled(boolean enabled) {
+        mDynamicResolution.setAdaptive(enabled);
+    }
+
+    public void setRenderScaleRange(float minScale, float maxScale) {
+        mDynamicResolution.setScaleRange(minScale, maxScale);
+    }
+
+    public void setRenderScaleStep(float step) {
+        mDynamicResolution.setScaleStep(step);
+    }
+
+    /**
+     * Sets the frame rate dynamic resolution tries to hold, typically 30 or 60.
+     */
+    public void setTargetFrameRate(int framesPerSecond) {
+        mDynamicResolution.setTargetFrameRate(framesPerSecond);
+    }
+
+    /**
+     * Reports how long Unity took for its last frame; call once per frame from Unity's thread.
+     */
+    public void reportFrameTime(long frameNanos) {
+        mResumeLatency.onFrame();
+        mDynamicResolution.reportFrameTime(frameNanos);
+    }
+
+    /**
+     * Sends a message to a Unity game object like UnityPlayer.UnitySendMessage, but only the
+     * latest value per (game object, method) is delivered, once per frame. Messages sent while
+     * the player is paused are held and delivered on resume.
+     */
+    public void sendUnityMessage(String gameObject, String method, String value) {
+        mUnityMessageChannel.send(gameObject, method, value);
+    }
+
+    /**
+     * Like {@link #sendUnityMessage(String, String, String)} with an explicit
+     * UnityMessageChannel.POLICY_ constant; POLICY_QUEUE delivers every value in order.
+     */
+    public void sendUnityMessage(String gameObject, String method, String value, int policy) {
+        mUnityMessageChannel.send(gameObject, method, value, policy);
+    }
+
+    /**
+     * Returns {messages sent, replaced by a newer value, dropped while over capacity, batches}.
+     */
+    public long[] getUnityMessageStats() {
+        return mUnityMessageChannel.getStats();
+    }
+
+    public void resetUnityMessageStats() {
+        mUnityMessageChannel.resetStats();
+    }
+
+    /**
+     * Returns the typed message bus, creating it on first use; see {@link UnityMessageBus} for
+     * the layout Unity reads.
+     */
+    public UnityMessageBus getUnityMessageBus() {
+        UnityMessageBus bus = mUnityMessageBus;
+        if (bus == null) {
+            synchronized (this) {
+                bus = mUnityMessageBus;
+                if (bus == null) {
+                    bus = new UnityMessageBus(UnityMessageBus.DEFAULT_CAPACITY);
+                    mUnityMessageBus = bus;
+                }
+            }
+        }
+        return bus;
+    }
+
+    /**
+     * Registers a typed message channel for Unity and returns its numeric id. Unity calls this
+     * once per channel at startup and dispatches on the id afterwards.
+     */
+    public int registerUnityMessageBusChannel(String name) {
+        return getUnityMessageBus().registerChannel(name);
+    }
+
+    /**
+     * Returns the id Unity registered for |name|, or 0 if it has not registered it yet.
+     */
+    public int getUnityMessageBusChannelId(String name) {
+        return getUnityMessageBus().getChannelId(name);
+    }
+
+    public ByteBuffer getUnityMessageBusBuffer() {
+        return getUnityMessageBus().getBuffer();
+    }
+
+    /**
+     * Returns the native address of the typed message bus, or 0 if it cannot be determined.
+     */
+    public long getUnityMessageBusAddress() {
+        return getUnityMessageBus().getAddress();
+    }
+
+    public int getUnityMessageBusLayoutVersion() {
+        return UnityMessageBus.LAYOUT_VERSION;
+    }
+
+    public boolean publishUnityInt(int channel, int value) {
+        return getUnityMessageBus().publishInt(channel, value);
+    }
+
+    public boolean publishUnityFloat(int channel, float value) {
+        return getUnityMessageBus().publishFloat(channel, value);
+    }
+
+    public boolean publishUnityVector3(int channel, float x, float y, float z) {
+        return getUnityMessageBus().publishVector3(channel, x, y, z);
+    }
+
+    public boolean publishUnityBytes(int channel, byte[] bytes) {
+        return getUnityMessageBus().publishBytes(channel, bytes, 0, bytes.length);
+    }
+
+    /**
+     * Enables keeping the Unity player running across short trips out of the foreground, such
+     * as the notification shade or a permission dialog, so that coming back does not cost a full
+     * pause and resume of the player and its GL surface.
+     *
+     * While enabled, onPause still reaches the listeners at once, but the player itself is only
+     * paused once the activity stops or after the grace period, whichever comes first. Resuming
+     * before then skips the player pause entirely.
+     */
+    public void setWarmResumeEnabled(boolean enabled) {
+        mWarmResumeEnabled = enabled;
+    }
+
+    /**
+     * Sets how long the player may keep running after onPause in warm resume mode.
+     */
+    public void setWarmResumeGraceMillis(long graceMs) {
+        mWarmResumeGraceMs = Math.max(0, graceMs);
+    }
+
+    /**
+     * Returns p50, p90, p99, max and count in milliseconds of the time from onResume to the next
+     * frame reported through {@link #reportFrameTime(long)}, for warm resumes and then for
+     * resumes that had paused the player.
+     */
+    public long[] getResumeLatencyStats() {
+        return mResumeLatency.getStats();
+    }
+
+    public void resetResumeLatencyStats() {
+        mResumeLatency.reset();
+    }
+
+    /**
+     * Enables or disables watching the UI thread's Choreographer callbacks for missed vsyncs.
+     * This measures UI thread stalls, not Unity's rendered frames. While enabled, jank alerts are
+     * queued as LifecycleEventQueue.TYPE_JANK_ALERT events.
+     */
+    public void setFramePacingMonitorEnabled(final boolean enabled) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                mFramePacingMonitorEnabled = enabled;
+                if (enabled && mIsResumed) {
+                    mFramePacingMonitor.start();
+                } else if (!enabled) {
+                    mFramePacingMonitor.stop();
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns UI thread frame pacing counters laid out as described by the
+     * FramePacingMonitor.STAT_ constants: Choreographer frames, missed vsyncs, jank episodes in
+     * total and in the last minute, the last frame callback time, the vsync period, frames by
+     * vsyncs spanned and a frame interval summary.
+     */
+    public long[] getFramePacingStats() {
+        return mFramePacingMonitor.getStats();
+    }
+
+    public void resetFramePacingStats() {
+        mFramePacingMonitor.reset();
+    }
+
+    /**
+     * Sets how many jank episodes per minute raise a jank alert; 0 disables alerts.
+     */
+    public void setJankAlertThreshold(int episodesPerMinute) {
+        mFramePacingMonitor.setAlertThreshold(episodesPerMinute);
+    }
+
+    /**
+     * Returns the performance governor's state laid out as described by the
+     * PerformanceGovernor.STATE_ constants: the tier with its frame rate cap, resolution scale
+     * and depth/mesh update budget, then the battery, power save and thermal readings it is
+     * based on. Tier changes are also reported through onPerformanceTierChanged.
+     */
+    public float[] getPerformanceState() {
+        return mPerformanceGovernor.getState();
+    }
+
+    public int getPerformanceTier() {
+        return mPerformanceGovernor.getTier();
+    }
+
+    /**
+     * Returns true if the device can hold a lower, steady level of performance for long
+     * sessions; see {@link #setSustainedPerformanceMode(boolean)}.
+     */
+    public boolean isSustainedPerformanceModeSupported() {
+        if (Build.VERSION.SDK_INT < SDK_N) {
+            return false;
+        }
+        try {
+            Object supported = PowerManager.class.getMethod("isSustainedPerformanceModeSupported")
+                    .invoke(getSystemService(POWER_SERVICE));
+            return Boolean.TRUE.equals(supported);
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    /**
+     * Asks the platform to cap performance at a level it can sustain without thermal throttling.
+     * Does nothing where sustained performance mode is not supported.
+     */
+    public void setSustainedPerformanceMode(final boolean enabled) {
+        if (Build.VERSION.SDK_INT < SDK_N) {
+            return;
+        }
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    Window.class.getMethod("setSustainedPerformanceMode", boolean.class)
+                            .invoke(getWindow(), enabled);
+                } catch (Exception e) {
+                    Log.w(TAG, "Failed to set sustained performance mode", e);
+                }
+            }
+        });
+    }
+
     /**
-     * Callbacks for common Android lifecycle events.
+     * Returns the buffered memory samples oldest first, {@link MemorySampler#RECORD_SIZE} longs
+     * each: uptime in ms, Java heap used and max in bytes, native heap allocated in bytes and PSS
+     * in KB. Samples are taken while the activity is resumed and on every memory warning.
      */
-    public interface AndroidLifecycleListener {
-        public void onPause();
+    public long[] getMemorySamples() {
+        return mMemorySampler.getRecords();
+    }
 
-        public void onResume();
+    public void setMemorySampleIntervalMillis(long intervalMs) {
+        mMemorySampler.setIntervalMillis(intervalMs);
+    }
 
-        public void onActivityResult(int requestCode, int resultCode, Intent data);
+    /**
+     * Returns the last settled state of the activity's display, flattened as described by the
+     * DisplaySnapshot.INDEX_ constants, or an empty array if it is not known yet. Reading this
+     * does not query the display, so it is cheap to call every frame.
+     */
+    public float[] getDisplaySnapshot() {
+        DisplaySnapshot snapshot = mDisplayTracker != null ? mDisplayTracker.getSnapshot() : null;
+        return snapshot != null ? snapshot.toArray() : new float[0];
+    }
 
-        public void onRequestPermissionsResult(
-            int requestCode, String[] permissions, int[] grantResults);
+    /**
+     * Sets how long the display must be quiet before a change is reported; bursts of display
+     * changes within this window are reported once. The default, 0, reports every change at
+     * once. Listeners are called on the main thread either way.
+     */
+    public void setDisplayChangeCoalesceWindowMillis(long windowMs) {
+        if (mDisplayTracker != null) {
+            mDisplayTracker.setCoalesceWindowMillis(windowMs);
+        }
+    }
 
-        public void onDisplayChanged();
+    /**
+     * Enables merging of consecutive move events before they reach Unity.
+     *
+     * @param mode 0 to inject every event directly, MotionEventCoalescer.FLUSH_ON_VSYNC to
+     *     inject merged moves once per vsync, or MotionEventCoalescer.FLUSH_ON_UNITY_FRAME to
+     *     inject them when Unity calls {@link #flushInputEvents()}.
+     */
+    public void setInputCoalescingMode(final int mode) {
+        runOnUiThread(new Runnable() {
+            @Override
+            public void run() {
+                MotionEventCoalescer previous = mMotionEventCoalescer;
+                if (previous != null && previous.getFlushMode() == mode) {
+                    return;
+                }
+                mMotionEventCoalescer = mode == MotionEventCoalescer.FLUSH_ON_VSYNC
+                        || mode == MotionEventCoalescer.FLUSH_ON_UNITY_FRAME
+                        ? new MotionEventCoalescer(mUnityPlayer, mode) : null;
+                if (previous != null) {
+                    previous.release();
+                }
+            }
+        });
     }
 
-    // don't change the name of this variable; referenced from native code
-    protected UnityPlayer mUnityPlayer;
+    /**
+     * Frame signal from Unity: injects any merged move events that are still pending. May be
+     * called from Unity's thread; the injection is posted to the UI thread.
+     */
+    public void flushInputEvents() {
+        MotionEventCoalescer coalescer = mMotionEventCoalescer;
+        if (coalescer != null) {
+            coalescer.flush();
+        }
+    }
 
-    protected AndroidLifecycleListener mAndroidLifecycleListener;
+    /**
+     * Returns {motion events received, motion events injected into Unity} while coalescing is
+     * enabled, or zeros when it is disabled.
+     */
+    public long[] getInputEventCounters() {
+        MotionEventCoalescer coalescer = mMotionEventCoalescer;
+        return coalescer != null ? coalescer.getCounters() : new long[2];
+    }
 
-    protected boolean mIsUnityQuit = false;
+    public void resetInputEventCounters() {
+        MotionEventCoalescer coalescer = mMotionEventCoalescer;
+        if (coalescer != null) {
+            coalescer.resetCounters();
+        }
+    }
 
-    // Setup activity layout
-    @Override
-    protected void onCreate(Bundle savedInstanceState) {
-        requestWindowFeature(Window.FEATURE_NO_TITLE);
-        super.onCreate(savedInstanceState);
-        setContentView(R.layout.activity_main);
+    /**
+     * Starts writing pointer state into a shared direct buffer on every touch event; see
+     * {@link SharedTouchBuffer} for the layout. If |bypassInjectEvent| is set, touch events are
+     * no longer injected into UnityPlayer and the buffer is the only touch input path.
+     */
+    public synchronized void enableSharedTouchBuffer(boolean bypassInjectEvent) {
+        if (mSharedTouchBuffer == null) {
+            mSharedTouchBuffer = new SharedTouchBuffer();
+        }
+        mSharedTouchBuffer.setEnabled(true);
+        mSharedTouchBufferBypassesInjectEvent = bypassInjectEvent;
+        mSharedTouchBufferEnabled = true;
+    }
 
-        getWindow().takeSurface(null);
-        setTheme(android.R.style.Theme_NoTitleBar_Fullscreen);
-        getWindow().setFormat(PixelFormat.RGB_565);
+    /**
+     * Stops writing touch events into the shared buffer and injects them into UnityPlayer again.
+     * The buffer itself stays allocated, and its address valid, for the activity's lifetime; its
+     * header flag tells readers that it is no longer updated.
+     */
+    public synchronized void disableSharedTouchBuffer() {
+        mSharedTouchBufferEnabled = false;
+        mSharedTouchBufferBypassesInjectEvent = false;
+        if (mSharedTouchBuffer != null) {
+            mSharedTouchBuffer.setEnabled(false);
+        }
+    }
 
-        DisplayManager displayManager = (DisplayManager) getSystemService(DISPLAY_SERVICE);
-        if (displayManager != null) {
-            displayManager.registerDisplayListener(new DisplayManager.DisplayListener() {
-                @Override
-                public void onDisplayAdded(int displayId) {}
-
-                @Override
-                public void onDisplayChanged(int displayId) {
-                    synchronized (this) {
-                        if (mAndroidLifecycleListener != null) {
-                            mAndroidLifecycleListener.onDisplayChanged();
-                        }
-                    }
-                }
+    /**
+     * Returns the shared touch buffer, or null if it has never been enabled.
+     */
+    public ByteBuffer getTouchBuffer() {
+        SharedTouchBuffer touchBuffer = mSharedTouchBuffer;
+        return touchBuffer != null ? touchBuffer.getBuffer() : null;
+    }
 
-                @Override
-                public void onDisplayRemoved(int displayId) {}
-            }, null);
-        }
+    /**
+     * Returns the native address of the shared touch buffer, or 0 if it has never been enabled
+     * or the address cannot be determined; in the latter case use {@link #copyTouchBuffer()}.
+     */
+    public long getTouchBufferAddress() {
+        SharedTouchBuffer touchBuffer = mSharedTouchBuffer;
+        return touchBuffer != null ? touchBuffer.getAddress() : 0;
+    }
 
-        mUnityPlayer = new UnityPlayer(this);
-        if (mUnityPlayer.getSettings().getBoolean("hide_status_bar", true)) {
-            getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN,
-                    WindowManager.LayoutParams.FLAG_FULLSCREEN);
+    public int getTouchBufferLayoutVersion() {
+        return SharedTouchBuffer.LAYOUT_VERSION;
+    }
+
+    /**
+     * Returns a consistent copy of the shared touch buffer, for readers on runtimes where
+     * {@link #getTouchBufferAddress()} returns 0, or null if it has never been enabled. The
+     * returned array is reused by the next call.
+     */
+    public synchronized byte[] copyTouchBuffer() {
+        SharedTouchBuffer touchBuffer = mSharedTouchBuffer;
+        if (touchBuffer == null) {
+            return null;
+        }
+        if (mSharedTouchBufferCopy == null) {
+            mSharedTouchBufferCopy = new byte[SharedTouchBuffer.SIZE];
         }
+        touchBuffer.copyTo(mSharedTouchBufferCopy);
+        return mSharedTouchBufferCopy;
+    }
 
-        ((ViewGroup) findViewById(android.R.id.content)).addView(mUnityPlayer.getView(), 0);
-        mUnityPlayer.requestFocus();
+    /**
+     * Returns p50, p90, p99, max and sample count for touch, generic motion and key delivery
+     * latency, in milliseconds, followed by event injection time in microseconds: 5 values per
+     * histogram, 20 in all.
+     */
+    public long[] getInputLatencyStats() {
+        return mInputLatencyStats.getSummary();
     }
 
-    public void showAndroidViewLayer(final int layoutResId) {
-        final Activity self = this;
-        runOnUiThread(new Runnable() {
-            @Override
-            public void run() {
-                ViewGroup androidViewContainer =
-                        (ViewGroup) findViewById(R.id.android_view_container);
-                androidViewContainer.removeAllViews();
+    public void resetInputLatencyStats() {
+        mInputLatencyStats.reset();
+    }
 
-                // Make it possible for the developer to specify their own layout.
-                LayoutInflater.from(self).inflate(layoutResId, androidViewContainer);
-            }
-        });
+    /**
+     * Turns recording of lifecycle and startup spans on or off. Recording is on by default so
+     * that startup is captured.
+     */
+    public void setTraceRecordingEnabled(boolean enabled) {
+        mTraceRecorder.setEnabled(enabled);
+    }
+
+    /**
+     * Writes the recorded spans to |path| in Chrome trace-event JSON format, viewable in
+     * chrome://tracing. Returns false if the file could not be written.
+     */
+    public boolean dumpTrace(String path) {
+        try {
+            mTraceRecorder.writeChromeTrace(path);
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write trace to " + path, e);
+            return false;
+        }
+    }
+
+    /**
+     * Writes the recorded spans to a file in the app's files directory and returns its path, or
+     * null if it could not be written.
+     */
+    public String dumpTrace() {
+        String path = new File(getFilesDir(), "google_unity_trace.json").getPath();
+        return dumpTrace(path) ? path : null;
     }
 
     public View getAndroidViewLayer() {
-        return findViewById(R.id.android_view_container);
+        return mAndroidViewContainer;
     }
 
     public void launchIntent(String packageName, String className, String[] args, int requestcode) {
-        Intent intent = new Intent();
-        intent.setClassName(packageName, className);
-        if (args != null) {
-            for (int i = 0; i < args.length; i++) {
-                String[] keyVal = args[i].split(":");
-                if (keyVal.length == 2) {
-                    intent.putExtra(keyVal[0], keyVal[1]);
-                }
+        Intent intent = newLaunchIntent(packageName, className);
+        IntentExtras.putKeyValueExtras(intent, args);
+        startActivityForResult(intent, requestcode);
+    }
+
+    /**
+     * Launches an activity for result with String extras given as parallel key and value arrays.
+     */
+    public void launchIntent(String packageName, String className, String[] keys,
+        String[] values, int requestCode) {
+        Intent intent = newLaunchIntent(packageName, className);
+        IntentExtras.putStringExtras(intent, keys, values);
+        startActivityForResult(intent, requestCode);
+    }
+
+    /**
+     * Launches an activity for result with typed extras encoded as described in
+     * {@link IntentExtras}, so any number of String, int, long, float, boolean and byte[] extras
+     * can be passed in one call.
+     */
+    public void launchIntentWithExtras(String packageName, String className, byte[] extras,
+        int requestCode) {
+        Intent intent = newLaunchIntent(packageName, className);
+        IntentExtras.putEncodedExtras(intent, extras);
+        startActivityForResult(intent, requestCode);
+    }
+
+    /**
+     * Registers the extras to flatten when a result arrives for |requestCode|, or clears the
+     * registration if |keys| is null.
+     *
+     * The values are encoded in the {@link IntentExtras} format before listeners are called, so
+     * Unity can fetch the whole result with a single {@link #getActivityResultExtras} call
+     * instead of reading the Intent field by field. With queued lifecycle events the encoded
+     * extras replace the Intent as the event payload.
+     */
+    public void setActivityResultExtraKeys(int requestCode, String[] keys) {
+        synchronized (mActivityResultExtraKeys) {
+            if (keys == null) {
+                mActivityResultExtraKeys.remove(requestCode);
+                mActivityResultExtras.remove(requestCode);
+            } else {
+                mActivityResultExtraKeys.put(requestCode, keys.clone());
             }
         }
-        startActivityForResult(intent, requestcode);
+    }
+
+    /**
+     * Returns the flattened extras of the latest result for |requestCode|, or null if no extra
+     * keys are registered for it or no result has arrived yet.
+     */
+    public byte[] getActivityResultExtras(int requestCode) {
+        synchronized (mActivityResultExtraKeys) {
+            return mActivityResultExtras.get(requestCode);
+        }
+    }
+
+    // Returns null if no extra keys are registered for |requestCode|.
+    private byte[] flattenActivityResultExtras(int requestCode, Intent data) {
+        synchronized (mActivityResultExtraKeys) {
+            String[] keys = mActivityResultExtraKeys.get(requestCode);
+            if (keys == null) {
+                return null;
+            }
+            byte[] extras =
+                    IntentExtras.encodeExtras(data != null ? data.getExtras() : null, keys);
+            mActivityResultExtras.put(requestCode, extras);
+            return extras;
+        }
+    }
+
+    private Intent newLaunchIntent(String packageName, String className) {
+        Intent intent = new Intent();
+        intent.setComponent(new ComponentName(packageName, className));
+        return intent;
+    }
+
+    /**
+     * Returns the application label, the version name and code of this app, and those of Tango
+     * Core and the Tango service, in one call; see the AppMetadataCache.METADATA_ constants for
+     * the layout. The values are resolved once at startup and kept current from package
+     * broadcasts.
+     */
+    public String[] getAppMetadata() {
+        return mAppMetadata.getMetadata();
+    }
+
+    public String getCachedApplicationLabel() {
+        return mAppMetadata.getLabel();
+    }
+
+    /**
+     * Returns the cached version name of |packageName|, or an empty string if it is not
+     * installed. Packages other than this app and Tango are resolved on first use.
+     */
+    public String getCachedVersionName(String packageName) {
+        return mAppMetadata.getVersionName(packageName);
+    }
+
+    /**
+     * Returns the cached version code of |packageName|, or -1 if it is not installed.
+     */
+    public int getCachedVersionCode(String packageName) {
+        return mAppMetadata.getVersionCode(packageName);
     }
 
     public boolean checkAndroidPermission(String permission) {
-        int permissionCheck = ContextCompat.checkSelfPermission(this, permission);
-        return permissionCheck == PackageManager.PERMISSION_GRANTED;
+        return mPermissionCache.isGranted(permission);
+    }
+
+    /**
+     * Checks several permissions in one call. Returns a bitmask with bit i set if permissions[i]
+     * is granted; at most 32 permissions can be checked at once.
+     */
+    public int checkAndroidPermissions(String[] permissions) {
+        return mPermissionCache.getGrantedMask(permissions);
     }
 
+    /**
+     * Requests runtime permissions. Requests made while another is outstanding are queued, and
+     * queued requests are merged into one system dialog; each request still gets its own
+     * onRequestPermissionsResult callback under its own request code.
+     */
     public void requestAndroidPermissions(String[] permissions, int requestCode) {
-        ActivityCompat.requestPermissions(this, permissions, requestCode);
+        mPermissionRequestOrchestrator.request(permissions, requestCode);
+    }
+
+    /**
+     * Returns p50, p90, p99, max and count in milliseconds for the time permission requests spent
+     * queued, waiting on the system dialog, and in total: 5 values per stage, 15 in all.
+     */
+    public long[] getPermissionRequestStats() {
+        return mPermissionRequestOrchestrator.getStats();
+    }
+
+    public void resetPermissionRequestStats() {
+        mPermissionRequestOrchestrator.resetStats();
     }
 
     public boolean shouldShowRequestAndroidPermissionRationale(String permission) {
@@ -168,81 +1193,333 @@ public class GoogleUnityActivity
         launchIntent(packageName, className, args, requestcode);
     }
 
+    /**
+     * Adds a lifecycle listener. Listeners attached earlier stay attached.
+     */
     public void attachLifecycleListener(AndroidLifecycleListener listener) {
-        mAndroidLifecycleListener = listener;
+        attachLifecycleListener(listener, 0);
+    }
+
+    /**
+     * Adds a lifecycle listener that is called before all listeners of a lower priority.
+     */
+    public void attachLifecycleListener(AndroidLifecycleListener listener, int priority) {
+        synchronized (mLifecycleListeners) {
+            mLifecycleListeners.add(listener, priority);
+            if (mAndroidLifecycleListener == null) {
+                mAndroidLifecycleListener = listener;
+            }
+        }
+    }
+
+    public void detachLifecycleListener(AndroidLifecycleListener listener) {
+        synchronized (mLifecycleListeners) {
+            if (mLifecycleListeners.remove(listener) && listener == mAndroidLifecycleListener) {
+                AndroidLifecycleListener[] listeners = mLifecycleListeners.snapshot();
+                mAndroidLifecycleListener = listeners.length > 0 ? listeners[0] : null;
+            }
+        }
+    }
+
+    /**
+     * Enables or disables recording lifecycle events for {@link #pollLifecycleEvents()}.
+     *
+     * Queued delivery is an alternative to attaching a listener: Unity can drain every event of a
+     * frame in one call instead of taking a proxy upcall per event. Attached listeners are still
+     * called directly either way. Disabling discards any events not yet polled.
+     */
+    public void setLifecycleEventQueueEnabled(boolean enabled) {
+        synchronized (mLifecycleListeners) {
+            if (enabled && mLifecycleEventQueue == null) {
+                mLifecycleEventQueue = new LifecycleEventQueue(LIFECYCLE_EVENT_QUEUE_CAPACITY);
+            } else if (!enabled && mLifecycleEventQueue != null) {
+                mLifecycleEventQueue.clear();
+                mLifecycleEventQueue = null;
+            }
+        }
+    }
+
+    /**
+     * Returns and removes all queued lifecycle events as flattened records of
+     * {@link LifecycleEventQueue#RECORD_SIZE} longs each: type, timestamp in nanoseconds,
+     * arg0, arg1. Returns an empty array when queued delivery is disabled or nothing happened.
+     */
+    public long[] pollLifecycleEvents() {
+        LifecycleEventQueue queue = mLifecycleEventQueue;
+        return queue != null ? queue.poll() : new long[0];
+    }
+
+    /**
+     * Returns the object payloads (the Intent or its flattened extras for activity results,
+     * {permissions, grantResults} for permission results) of the events returned by the last
+     * {@link #pollLifecycleEvents()}, indexed by record.
+     */
+    public Object[] getPolledLifecycleEventPayloads() {
+        LifecycleEventQueue queue = mLifecycleEventQueue;
+        return queue != null ? queue.getLastPolledPayloads() : new Object[0];
+    }
+
+    public long getDroppedLifecycleEventCount() {
+        LifecycleEventQueue queue = mLifecycleEventQueue;
+        return queue != null ? queue.getDroppedCount() : 0;
+    }
+
+    private void queueLifecycleEvent(int type, int arg0, int arg1, Object payload) {
+        LifecycleEventQueue queue = mLifecycleEventQueue;
+        if (queue != null) {
+            queue.push(type, arg0, arg1, payload);
+        }
     }
 
     @Override
     public void onActivityResult(int requestCode, int resultCode, Intent data) {
         super.onActivityResult(requestCode, resultCode, data);
-        if (mAndroidLifecycleListener != null) {
-            mAndroidLifecycleListener.onActivityResult(requestCode, resultCode, data);
-        }
+        byte[] extras = flattenActivityResultExtras(requestCode, data);
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_ACTIVITY_RESULT, requestCode, resultCode,
+            extras != null ? extras : data);
+        mLifecycleListeners.dispatchActivityResult(requestCode, resultCode, data);
     }
 
     @Override
     public void onRequestPermissionsResult(
         int requestCode, String[] permissions, int[] grantResults) {
-        if (mAndroidLifecycleListener != null) {
-            mAndroidLifecycleListener.onRequestPermissionsResult(
-                requestCode, permissions, grantResults);
+        if (!mPermissionRequestOrchestrator.onRequestPermissionsResult(
+                requestCode, permissions, grantResults)) {
+            dispatchPermissionsResult(requestCode, permissions, grantResults);
         }
     }
 
+    private void dispatchPermissionsResult(
+        int requestCode, String[] permissions, int[] grantResults) {
+        mPermissionCache.update(permissions, grantResults);
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_REQUEST_PERMISSIONS_RESULT, requestCode, 0,
+            new Object[] {permissions, grantResults});
+        mLifecycleListeners.dispatchRequestPermissionsResult(
+            requestCode, permissions, grantResults);
+    }
+
 
     // Quit Unity
     @Override
     protected void onDestroy() {
+        journal(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_DESTROY, 0, null);
+        if (mDisplayTracker != null) {
+            mDisplayTracker.stop();
+        }
+        mOverlayLayerCache.release();
+        mPerformanceGovernor.stop();
+        mMemorySampler.stop();
+        mAppMetadata.stop();
+        // Quit after the stop requests above have run.
+        mMonitorHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mMonitorThread.quit();
+            }
+        });
+        mDynamicResolution.detach();
+        if (mMotionEventCoalescer != null) {
+            mMotionEventCoalescer.release();
+            mMotionEventCoalescer = null;
+        }
+        mMainHandler.removeCallbacks(mDeferredPause);
         mUnityPlayer.quit();
         mIsUnityQuit = true;
+        mLogger.stop();
+        // Messages the logger still writes after this are not journaled.
+        PerformanceJournal journal = mJournal;
+        mJournal = null;
+        if (journal != null) {
+            journal.close();
+        }
         super.onDestroy();
     }
 
     // Pause Unity
     @Override
     protected void onPause() {
+        long pauseStart = mTraceRecorder.beginSection("GoogleUnityActivity.onPause");
+        long pauseStartNanos = System.nanoTime();
+        journal(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_PAUSE, 0, null);
         super.onPause();
-        if (mAndroidLifecycleListener != null) {
-            mAndroidLifecycleListener.onPause();
+        mIsResumed = false;
+        mFramePacingMonitor.stop();
+        mPerformanceGovernor.stop();
+        mMemorySampler.stop();
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_PAUSE, 0, 0, null);
+        long start = mTraceRecorder.beginSection("listeners.onPause");
+        mLifecycleListeners.dispatchPause();
+        mTraceRecorder.endSection("listeners.onPause", start);
+
+        if (mWarmResumeEnabled) {
+            mMainHandler.postDelayed(mDeferredPause, mWarmResumeGraceMs);
+        } else {
+            pauseUnityPlayer();
         }
+        journal(PerformanceJournal.TYPE_TIMING, System.nanoTime() - pauseStartNanos, 0,
+                "onPause");
+        mTraceRecorder.endSection("GoogleUnityActivity.onPause", pauseStart);
+    }
 
-        if (!mIsUnityQuit) {
-            mUnityPlayer.pause();
+    @Override
+    protected void onStart() {
+        super.onStart();
+        journal(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_START, 0, null);
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_START, 0, 0, null);
+        mLifecycleListeners.dispatchStart();
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        journal(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_STOP, 0, null);
+        // No longer visible, so a deferred warm resume pause must not wait any longer.
+        pauseUnityPlayer();
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_STOP, 0, 0, null);
+        mLifecycleListeners.dispatchStop();
+    }
+
+    private void pauseUnityPlayer() {
+        mMainHandler.removeCallbacks(mDeferredPause);
+        if (mIsUnityQuit || mIsUnityPaused) {
+            return;
         }
+        long start = mTraceRecorder.beginSection("UnityPlayer.pause");
+        mUnityPlayer.pause();
+        mIsUnityPaused = true;
+        mUnityMessageChannel.setPaused(true);
+        mTraceRecorder.endSection("UnityPlayer.pause", start);
     }
 
     // Resume Unity
     @Override
     protected void onResume() {
+        long resumeStart = mTraceRecorder.beginSection("GoogleUnityActivity.onResume");
+        long resumeStartNanos = System.nanoTime();
+        journal(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_RESUME, 0, null);
         super.onResume();
-        if (mAndroidLifecycleListener != null) {
-            mAndroidLifecycleListener.onResume();
+        mIsResumed = true;
+        mPerformanceGovernor.start();
+        mMemorySampler.start();
+        if (mFramePacingMonitorEnabled) {
+            mFramePacingMonitor.start();
         }
+        // Permissions may have been granted in Settings while we were in the background.
+        mPermissionCache.invalidate();
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_RESUME, 0, 0, null);
+        long start = mTraceRecorder.beginSection("listeners.onResume");
+        mLifecycleListeners.dispatchResume();
+        mTraceRecorder.endSection("listeners.onResume", start);
 
-        if (!mIsUnityQuit) {
+        mMainHandler.removeCallbacks(mDeferredPause);
+        mResumeLatency.onResume(resumeStartNanos, !mIsUnityPaused);
+        if (!mIsUnityQuit && mIsUnityPaused) {
+            start = mTraceRecorder.beginSection("UnityPlayer.resume");
             mUnityPlayer.resume();
+            mIsUnityPaused = false;
+            mUnityMessageChannel.setPaused(false);
+            mTraceRecorder.endSection("UnityPlayer.resume", start);
         }
+        journal(PerformanceJournal.TYPE_TIMING, System.nanoTime() - resumeStartNanos, 0,
+                "onResume");
+        mTraceRecorder.endSection("GoogleUnityActivity.onResume", resumeStart);
     }
 
+    /**
+     * Logs an error under the package name. Logging happens on a background thread, so this
+     * only costs the caller an enqueue.
+     */
     public void logAndroidErrorMessage(String message) {
-        Log.e(this.getPackageName(), message);
+        mLogger.log(Log.ERROR, getLogTag(), message, true);
+    }
+
+    /**
+     * Logs a message at one of the android.util.Log levels, asynchronously.
+     */
+    public void logAndroidMessage(int level, String tag, String message) {
+        mLogger.log(level, tag != null ? tag : getLogTag(), message, true);
+    }
+
+    /**
+     * Drops asynchronous log messages below |level|.
+     */
+    public void setAndroidLogLevel(int level) {
+        mLogger.setMinLevel(level);
+    }
+
+    /**
+     * Limits how many asynchronous log messages each tag may write per second; 0 disables it.
+     */
+    public void setAndroidLogRateLimit(int messagesPerSecond) {
+        mLogger.setMaxMessagesPerTagPerSecond(messagesPerSecond);
+    }
+
+    /**
+     * Returns {messages dropped because the log queue was full, messages dropped by the rate
+     * limit}.
+     */
+    public long[] getDroppedLogMessageCounts() {
+        return mLogger.getDroppedCounts();
+    }
+
+    private String getLogTag() {
+        String tag = mLogTag;
+        if (tag == null) {
+            tag = getPackageName();
+            mLogTag = tag;
+        }
+        return tag;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        journal(PerformanceJournal.TYPE_MEMORY, level, 0, null);
+        sampleMemoryNow();
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_TRIM_MEMORY, level, 0, null);
+        mLifecycleListeners.dispatchTrimMemory(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        super.onLowMemory();
+        journal(PerformanceJournal.TYPE_MEMORY, -1, 0, null);
+        sampleMemoryNow();
+        queueLifecycleEvent(LifecycleEventQueue.TYPE_LOW_MEMORY, 0, 0, null);
+        mLifecycleListeners.dispatchLowMemory();
+    }
+
+    private void sampleMemoryNow() {
+        mMonitorHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mMemorySampler.sampleNow();
+            }
+        });
     }
 
     @Override
     public void onConfigurationChanged(Configuration newConfig) {
+        long start = mTraceRecorder.beginSection("GoogleUnityActivity.onConfigurationChanged");
         super.onConfigurationChanged(newConfig);
         if (!mIsUnityQuit) {
             mUnityPlayer.configurationChanged(newConfig);
         }
+        mTraceRecorder.endSection("GoogleUnityActivity.onConfigurationChanged", start);
     }
 
     // Notify Unity of the focus change.
     @Override
     public void onWindowFocusChanged(boolean hasFocus) {
+        long start = mTraceRecorder.beginSection("GoogleUnityActivity.onWindowFocusChanged");
         super.onWindowFocusChanged(hasFocus);
+        journal(PerformanceJournal.TYPE_FOCUS, hasFocus ? 1 : 0, 0, null);
+        queueLifecycleEvent(
+            LifecycleEventQueue.TYPE_WINDOW_FOCUS_CHANGED, hasFocus ? 1 : 0, 0, null);
         if (!mIsUnityQuit) {
             mUnityPlayer.windowFocusChanged(hasFocus);
         }
+        mTraceRecorder.endSection("GoogleUnityActivity.onWindowFocusChanged", start);
     }
 
     // For some reason the multiple keyevent type is not supported by the ndk.
@@ -250,7 +1527,7 @@ public class GoogleUnityActivity
     @Override
     public boolean dispatchKeyEvent(KeyEvent event) {
         if (event.getAction() == KeyEvent.ACTION_MULTIPLE) {
-            return mUnityPlayer.injectEvent(event);
+            return injectKeyEvent(event);
         }
         return super.dispatchKeyEvent(event);
     }
@@ -258,22 +1535,57 @@ public class GoogleUnityActivity
     // Pass any events not handled by (unfocused) views straight to UnityPlayer
     @Override
     public boolean onKeyUp(int keyCode, KeyEvent event) {
-        return mUnityPlayer.injectEvent(event);
+        return injectKeyEvent(event);
     }
 
     @Override
     public boolean onKeyDown(int keyCode, KeyEvent event) {
-        return mUnityPlayer.injectEvent(event);
+        return injectKeyEvent(event);
     }
 
     @Override
     public boolean onTouchEvent(MotionEvent event) {
-        return mUnityPlayer.injectEvent(event);
+        mInputLatencyStats.recordDelivery(InputLatencyStats.TOUCH_DELIVERY, event.getEventTime());
+        long start = System.nanoTime();
+        boolean handled = forwardTouchEvent(event);
+        mInputLatencyStats.recordInjection(start);
+        return handled;
     }
 
     /* API12 */
     @Override
     public boolean onGenericMotionEvent(MotionEvent event) {
+        mInputLatencyStats.recordDelivery(InputLatencyStats.MOTION_DELIVERY, event.getEventTime());
+        long start = System.nanoTime();
+        boolean handled = forwardMotionEvent(event);
+        mInputLatencyStats.recordInjection(start);
+        return handled;
+    }
+
+    private boolean injectKeyEvent(KeyEvent event) {
+        mInputLatencyStats.recordDelivery(InputLatencyStats.KEY_DELIVERY, event.getEventTime());
+        long start = System.nanoTime();
+        boolean handled = mUnityPlayer.injectEvent(event);
+        mInputLatencyStats.recordInjection(start);
+        return handled;
+    }
+
+    private boolean forwardTouchEvent(MotionEvent event) {
+        SharedTouchBuffer touchBuffer = mSharedTouchBuffer;
+        if (touchBuffer != null && mSharedTouchBufferEnabled) {
+            touchBuffer.write(event);
+            if (mSharedTouchBufferBypassesInjectEvent) {
+                return true;
+            }
+        }
+        return forwardMotionEvent(event);
+    }
+
+    private boolean forwardMotionEvent(MotionEvent event) {
+        MotionEventCoalescer coalescer = mMotionEventCoalescer;
+        if (coalescer != null) {
+            return coalescer.offer(event);
+        }
         return mUnityPlayer.injectEvent(event);
     }
 }
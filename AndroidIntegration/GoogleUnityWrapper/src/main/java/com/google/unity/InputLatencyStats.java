@@ -0,0 +1,77 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.SystemClock;
+
+/**
+ * Input latency histograms.
+ *
+ * Delivery latency is the time from the event's timestamp until the activity receives it, kept
+ * separately for touch, generic motion and key events. It is in milliseconds, since event times
+ * only have millisecond precision on this API level. Injection time is how long forwarding the
+ * event into Unity took on the UI thread, in microseconds.
+ */
+final class InputLatencyStats {
+    public static final int TOUCH_DELIVERY = 0;
+    public static final int MOTION_DELIVERY = 1;
+    public static final int KEY_DELIVERY = 2;
+    public static final int INJECTION = 3;
+    public static final int HISTOGRAM_COUNT = 4;
+
+    private static final long NANOS_PER_MICRO = 1000L;
+
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[HISTOGRAM_COUNT];
+
+    public InputLatencyStats() {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * Records the delivery latency, in ms, of an event with the given event time (uptime base,
+     * ms).
+     */
+    public synchronized void recordDelivery(int histogram, long eventTimeMs) {
+        mHistograms[histogram].record(SystemClock.uptimeMillis() - eventTimeMs);
+    }
+
+    /**
+     * Records the time since |startNanos|, taken from System.nanoTime() before injecting.
+     */
+    public synchronized void recordInjection(long startNanos) {
+        mHistograms[INJECTION].record((System.nanoTime() - startNanos) / NANOS_PER_MICRO);
+    }
+
+    /**
+     * Returns the summary of every histogram, {@link LatencyHistogram#SUMMARY_SIZE} values each
+     * in the order of the histogram constants.
+     */
+    public synchronized long[] getSummary() {
+        long[] summary = new long[HISTOGRAM_COUNT * LatencyHistogram.SUMMARY_SIZE];
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            mHistograms[i].writeSummary(summary, i * LatencyHistogram.SUMMARY_SIZE);
+        }
+        return summary;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < HISTOGRAM_COUNT; i++) {
+            mHistograms[i].reset();
+        }
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.Intent;
+import android.os.Bundle;
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * Encodes and decodes typed Intent extras as a compact binary blob, so any number of extras of
+ * mixed types can cross between Unity and Java in a single call.
+ *
+ * The blob is a sequence of entries, big-endian, until the end of the array:
+ * <pre>
+ *   byte   type (one of the TYPE_ constants)
+ *   short  key length in bytes, followed by the UTF-8 key
+ *   value:
+ *     TYPE_STRING      int length in bytes, followed by UTF-8 bytes
+ *     TYPE_INT         int
+ *     TYPE_LONG        long
+ *     TYPE_FLOAT       float
+ *     TYPE_BOOLEAN     byte, 0 or 1
+ *     TYPE_BYTE_ARRAY  int length, followed by the bytes
+ *     TYPE_DOUBLE      double
+ *     TYPE_INT_ARRAY, TYPE_LONG_ARRAY, TYPE_FLOAT_ARRAY, TYPE_DOUBLE_ARRAY, TYPE_BOOLEAN_ARRAY
+ *                      int length, followed by that many values as above
+ *     TYPE_STRING_ARRAY
+ *                      int length, followed by that many strings as above; a null element
+ *                      has length -1
+ * </pre>
+ */
+public final class IntentExtras {
+    public static final byte TYPE_STRING = 1;
+    public static final byte TYPE_INT = 2;
+    public static final byte TYPE_LONG = 3;
+    public static final byte TYPE_FLOAT = 4;
+    public static final byte TYPE_BOOLEAN = 5;
+    public static final byte TYPE_BYTE_ARRAY = 6;
+    public static final byte TYPE_DOUBLE = 7;
+    public static final byte TYPE_INT_ARRAY = 8;
+    public static final byte TYPE_LONG_ARRAY = 9;
+    public static final byte TYPE_FLOAT_ARRAY = 10;
+    public static final byte TYPE_DOUBLE_ARRAY = 11;
+    public static final byte TYPE_BOOLEAN_ARRAY = 12;
+    public static final byte TYPE_STRING_ARRAY = 13;
+
+    private static final String TAG = IntentExtras.class.getSimpleName();
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private IntentExtras() {}
+
+    /**
+     * Adds every extra encoded in |blob| to |intent|.
+     *
+     * @throws IllegalArgumentException if the blob is truncated, has an unknown type, or has a
+     *     length that does not fit in the rest of the blob.
+     */
+    public static void putEncodedExtras(Intent intent, byte[] blob) {
+        if (blob == null) {
+            return;
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(blob);
+        try {
+            while (buffer.hasRemaining()) {
+                byte type = buffer.get();
+                String key = readString(buffer, buffer.getShort() & 0xffff);
+                switch (type) {
+                    case TYPE_STRING:
+                        intent.putExtra(key, readString(buffer, buffer.getInt()));
+                        break;
+                    case TYPE_INT:
+                        intent.putExtra(key, buffer.getInt());
+                        break;
+                    case TYPE_LONG:
+                        intent.putExtra(key, buffer.getLong());
+                        break;
+                    case TYPE_FLOAT:
+                        intent.putExtra(key, buffer.getFloat());
+                        break;
+                    case TYPE_BOOLEAN:
+                        intent.putExtra(key, buffer.get() != 0);
+                        break;
+                    case TYPE_BYTE_ARRAY:
+                        byte[] value = new byte[readLength(buffer, 1)];
+                        buffer.get(value);
+                        intent.putExtra(key, value);
+                        break;
+                    case TYPE_DOUBLE:
+                        intent.putExtra(key, buffer.getDouble());
+                        break;
+                    case TYPE_INT_ARRAY:
+                        int[] ints = new int[readLength(buffer, 4)];
+                        buffer.asIntBuffer().get(ints);
+                        buffer.position(buffer.position() + ints.length * 4);
+                        intent.putExtra(key, ints);
+                        break;
+                    case TYPE_LONG_ARRAY:
+                        long[] longs = new long[readLength(buffer, 8)];
+                        buffer.asLongBuffer().get(longs);
+                        buffer.position(buffer.position() + longs.length * 8);
+                        intent.putExtra(key, longs);
+                        break;
+                    case TYPE_FLOAT_ARRAY:
+                        float[] floats = new float[readLength(buffer, 4)];
+                        buffer.asFloatBuffer().get(floats);
+                        buffer.position(buffer.position() + floats.length * 4);
+                        intent.putExtra(key, floats);
+                        break;
+                    case TYPE_DOUBLE_ARRAY:
+                        double[] doubles = new double[readLength(buffer, 8)];
+                        buffer.asDoubleBuffer().get(doubles);
+                        buffer.position(buffer.position() + doubles.length * 8);
+                        intent.putExtra(key, doubles);
+                        break;
+                    case TYPE_BOOLEAN_ARRAY:
+                        boolean[] booleans = new boolean[readLength(buffer, 1)];
+                        for (int i = 0; i < booleans.length; i++) {
+                            booleans[i] = buffer.get() != 0;
+                        }
+                        intent.putExtra(key, booleans);
+                        break;
+                    case TYPE_STRING_ARRAY:
+                        // Each element takes at least its 4-byte length.
+                        String[] strings = new String[readLength(buffer, 4)];
+                        for (int i = 0; i < strings.length; i++) {
+                            int length = buffer.getInt();
+                            strings[i] = length == -1 ? null : readString(buffer, length);
+                        }
+                        intent.putExtra(key, strings);
+                        break;
+                    default:
+                        throw new IllegalArgumentException(
+                            "Unknown extra type " + type + " for key " + key);
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("Truncated intent extras", e);
+        } catch (NegativeArraySizeException e) {
+            throw new IllegalArgumentException("Malformed intent extras", e);
+        }
+    }
+
+    /**
+     * Encodes the values of |keys| found in |extras|. Bytes, shorts and chars are widened to
+     * TYPE_INT and CharSequences are encoded as TYPE_STRING. Keys that are missing or null, and
+     * values of types the format cannot represent (e.g. Parcelables), are skipped.
+     */
+    public static byte[] encodeExtras(Bundle extras, String[] keys) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        if (extras == null || keys == null) {
+            return bytes.toByteArray();
+        }
+
+        try {
+            for (String key : keys) {
+                Object value = extras.get(key);
+                if (value == null) {
+                    continue;
+                }
+                if (value instanceof Integer) {
+                    writeKey(out, TYPE_INT, key);
+                    out.writeInt((Integer) value);
+                } else if (value instanceof Long) {
+                    writeKey(out, TYPE_LONG, key);
+                    out.writeLong((Long) value);
+                } else if (value instanceof Byte || value instanceof Short) {
+                    writeKey(out, TYPE_INT, key);
+                    out.writeInt(((Number) value).intValue());
+                } else if (value instanceof Character) {
+                    writeKey(out, TYPE_INT, key);
+                    out.writeInt((Character) value);
+                } else if (value instanceof Float) {
+                    writeKey(out, TYPE_FLOAT, key);
+                    out.writeFloat((Float) value);
+                } else if (value instanceof Double) {
+                    writeKey(out, TYPE_DOUBLE, key);
+                    out.writeDouble((Double) value);
+                } else if (value instanceof Boolean) {
+                    writeKey(out, TYPE_BOOLEAN, key);
+                    out.writeByte((Boolean) value ? 1 : 0);
+                } else if (value instanceof byte[]) {
+                    byte[] array = (byte[]) value;
+                    writeKey(out, TYPE_BYTE_ARRAY, key);
+                    out.writeInt(array.length);
+                    out.write(array);
+                } else if (value instanceof CharSequence) {
+                    writeKey(out, TYPE_STRING, key);
+                    writeString(out, value.toString());
+                } else if (value instanceof int[]) {
+                    int[] array = (int[]) value;
+                    writeKey(out, TYPE_INT_ARRAY, key);
+                    out.writeInt(array.length);
+                    for (int element : array) {
+                        out.writeInt(element);
+                    }
+                } else if (value instanceof long[]) {
+                    long[] array = (long[]) value;
+                    writeKey(out, TYPE_LONG_ARRAY, key);
+                    out.writeInt(array.length);
+                    for (long element : array) {
+                        out.writeLong(element);
+                    }
+                } else if (value instanceof float[]) {
+                    float[] array = (float[]) value;
+                    writeKey(out, TYPE_FLOAT_ARRAY, key);
+                    out.writeInt(array.length);
+                    for (float element : array) {
+                        out.writeFloat(element);
+                    }
+                } else if (value instanceof double[]) {
+                    double[] array = (double[]) value;
+                    writeKey(out, TYPE_DOUBLE_ARRAY, key);
+                    out.writeInt(array.length);
+                    for (double element : array) {
+                        out.writeDouble(element);
+                    }
+                } else if (value instanceof boolean[]) {
+                    boolean[] array = (boolean[]) value;
+                    writeKey(out, TYPE_BOOLEAN_ARRAY, key);
+                    out.writeInt(array.length);
+                    for (boolean element : array) {
+                        out.writeByte(element ? 1 : 0);
+                    }
+                } else if (value instanceof CharSequence[]) {
+                    CharSequence[] array = (CharSequence[]) value;
+                    writeKey(out, TYPE_STRING_ARRAY, key);
+                    out.writeInt(array.length);
+                    for (CharSequence element : array) {
+                        if (element == null) {
+                            out.writeInt(-1);
+                        } else {
+                            writeString(out, element.toString());
+                        }
+                    }
+                } else {
+                    Log.w(TAG, "Skipping extra " + key + " of unsupported type "
+                            + value.getClass().getName());
+                }
+            }
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw.
+            throw new IllegalStateException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Adds String extras from parallel key and value arrays.
+     */
+    public static void putStringExtras(Intent intent, String[] keys, String[] values) {
+        if (keys == null || values == null) {
+            return;
+        }
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("Got " + keys.length + " keys but "
+                    + values.length + " values");
+        }
+        for (int i = 0; i < keys.length; i++) {
+            intent.putExtra(keys[i], values[i]);
+        }
+    }
+
+    /**
+     * Adds String extras given as "key:value". Everything after the first colon is the value,
+     * so values may themselves contain colons. Arguments without a colon are ignored.
+     */
+    public static void putKeyValueExtras(Intent intent, String[] args) {
+        if (args == null) {
+            return;
+        }
+        for (String arg : args) {
+            int separator = arg.indexOf(':');
+            if (separator >= 0) {
+                intent.putExtra(arg.substring(0, separator), arg.substring(separator + 1));
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] utf8 = value.getBytes(UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static void writeKey(DataOutputStream out, byte type, String key) throws IOException {
+        byte[] utf8 = key.getBytes(UTF_8);
+        out.writeByte(type);
+        out.writeShort(utf8.length);
+        out.write(utf8);
+    }
+
+    // Reads an element count and checks that that many elements of |elementSize| bytes fit in
+    // the rest of the buffer, before anything is allocated for them.
+    private static int readLength(ByteBuffer buffer, int elementSize) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining() / elementSize) {
+            throw new BufferUnderflowException();
+        }
+        return length;
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
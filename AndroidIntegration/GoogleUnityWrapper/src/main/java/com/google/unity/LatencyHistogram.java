@@ -0,0 +1,119 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+/**
+ * Log-linear histogram of non-negative values with a fixed set of preallocated buckets.
+ *
+ * Values below 16 get a bucket each; above that every power of two is split into 16 equal
+ * buckets, so quantiles are accurate to within about 6%. Recording never allocates.
+ */
+final class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_VALUE_BITS = 31;
+    private static final long MAX_VALUE = (1L << MAX_VALUE_BITS) - 1;
+    private static final int BUCKET_COUNT =
+            SUB_BUCKET_COUNT + (MAX_VALUE_BITS - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    // Layout of the array filled by writeSummary().
+    public static final int SUMMARY_P50 = 0;
+    public static final int SUMMARY_P90 = 1;
+    public static final int SUMMARY_P99 = 2;
+    public static final int SUMMARY_MAX = 3;
+    public static final int SUMMARY_COUNT = 4;
+    public static final int SUMMARY_SIZE = 5;
+
+    private final long[] mBuckets = new long[BUCKET_COUNT];
+    private long mCount;
+    private long mMax;
+
+    public void record(long value) {
+        if (value < 0) {
+            value = 0;
+        } else if (value > MAX_VALUE) {
+            value = MAX_VALUE;
+        }
+        mBuckets[bucketIndex(value)]++;
+        mCount++;
+        if (value > mMax) {
+            mMax = value;
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            mBuckets[i] = 0;
+        }
+        mCount = 0;
+        mMax = 0;
+    }
+
+    public long getCount() {
+        return mCount;
+    }
+
+    /**
+     * Returns the upper bound of the bucket containing the given quantile (0..1), clamped to the
+     * largest recorded value, or 0 if nothing has been recorded.
+     */
+    public long getQuantile(double quantile) {
+        if (mCount == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(quantile * mCount);
+        if (rank < 1) {
+            rank = 1;
+        }
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += mBuckets[i];
+            if (seen >= rank) {
+                return Math.min(bucketUpperBound(i), mMax);
+            }
+        }
+        return mMax;
+    }
+
+    /**
+     * Writes p50, p90, p99, max and count at |offset| in |out|; see the SUMMARY_ constants.
+     */
+    public void writeSummary(long[] out, int offset) {
+        out[offset + SUMMARY_P50] = getQuantile(0.50);
+        out[offset + SUMMARY_P90] = getQuantile(0.90);
+        out[offset + SUMMARY_P99] = getQuantile(0.99);
+        out[offset + SUMMARY_MAX] = mMax;
+        out[offset + SUMMARY_COUNT] = mCount;
+    }
+
+    private static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    private static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_BUCKET_COUNT) / SUB_BUCKET_COUNT;
+        int subBucket = (index - SUB_BUCKET_COUNT) % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+/**
+ * Fixed-capacity ring of lifecycle events, stored as primitive records so Unity can drain a
+ * whole frame's worth of events in a single call instead of receiving one proxy upcall per event.
+ *
+ * Each record is {@link #RECORD_SIZE} longs: event type, {@link System#nanoTime()} timestamp and
+ * two integer arguments whose meaning depends on the type. Events that carry an object (an
+ * activity result Intent or its flattened extras, permission arrays) keep it in a parallel
+ * payload slot. When the ring is full the oldest event is overwritten and counted as dropped.
+ */
+final class LifecycleEventQueue {
+    public static final int TYPE_PAUSE = 1;
+    public static final int TYPE_RESUME = 2;
+    // arg0 = requestCode, arg1 = resultCode, payload = flattened extras (byte[]) if extra keys
+    // were registered for the request code, otherwise the Intent (may be null).
+    public static final int TYPE_ACTIVITY_RESULT = 3;
+    // arg0 = requestCode, payload = Object[] { String[] permissions, int[] grantResults }.
+    public static final int TYPE_REQUEST_PERMISSIONS_RESULT = 4;
+    public static final int TYPE_DISPLAY_CHANGED = 5;
+    // arg0 = 1 if the window gained focus, 0 if it lost it.
+    public static final int TYPE_WINDOW_FOCUS_CHANGED = 6;
+    // UI thread jank as seen by FramePacingMonitor, not Unity's rendered frames.
+    // arg0 = 1 if the jank rate rose to the alert threshold, 0 if it fell below it again,
+    // arg1 = jank episodes in the last minute.
+    public static final int TYPE_JANK_ALERT = 7;
+    // arg0 = one of the PerformanceGovernor.TIER_ constants.
+    public static final int TYPE_PERFORMANCE_TIER_CHANGED = 8;
+    // arg0 = ComponentCallbacks2.TRIM_MEMORY_ level.
+    public static final int TYPE_TRIM_MEMORY = 9;
+    public static final int TYPE_LOW_MEMORY = 10;
+    public static final int TYPE_START = 11;
+    public static final int TYPE_STOP = 12;
+
+    public static final int RECORD_SIZE = 4;
+
+    private static final long[] EMPTY_RECORDS = new long[0];
+    private static final Object[] EMPTY_PAYLOADS = new Object[0];
+
+    private final int mCapacity;
+    private final long[] mRecords;
+    private final Object[] mPayloads;
+
+    // All fields below are guarded by |this|.
+    private int mHead;
+    private int mCount;
+    private long mDroppedCount;
+    private Object[] mLastPolledPayloads = EMPTY_PAYLOADS;
+
+    public LifecycleEventQueue(int capacity) {
+        mCapacity = capacity;
+        mRecords = new long[capacity * RECORD_SIZE];
+        mPayloads = new Object[capacity];
+    }
+
+    public void push(int type, int arg0, int arg1) {
+        push(type, arg0, arg1, null);
+    }
+
+    public synchronized void push(int type, int arg0, int arg1, Object payload) {
+        // Back-to-back display changes carry no data, so a burst collapses into one event.
+        if (type == TYPE_DISPLAY_CHANGED && mCount > 0
+                && mRecords[indexOf(mCount - 1) * RECORD_SIZE] == TYPE_DISPLAY_CHANGED) {
+            mRecords[indexOf(mCount - 1) * RECORD_SIZE + 1] = System.nanoTime();
+            return;
+        }
+
+        if (mCount == mCapacity) {
+            mPayloads[mHead] = null;
+            mHead = (mHead + 1) % mCapacity;
+            mCount--;
+            mDroppedCount++;
+        }
+
+        int slot = indexOf(mCount);
+        int offset = slot * RECORD_SIZE;
+        mRecords[offset] = type;
+        mRecords[offset + 1] = System.nanoTime();
+        mRecords[offset + 2] = arg0;
+        mRecords[offset + 3] = arg1;
+        mPayloads[slot] = payload;
+        mCount++;
+    }
+
+    /**
+     * Removes all queued events and returns their records, oldest first. Payloads for the
+     * returned events are available from {@link #getLastPolledPayloads()} until the next poll.
+     */
+    public synchronized long[] poll() {
+        if (mCount == 0) {
+            mLastPolledPayloads = EMPTY_PAYLOADS;
+            return EMPTY_RECORDS;
+        }
+
+        long[] records = new long[mCount * RECORD_SIZE];
+        Object[] payloads = null;
+        for (int i = 0; i < mCount; i++) {
+            int slot = indexOf(i);
+            System.arraycopy(mRecords, slot * RECORD_SIZE, records, i * RECORD_SIZE, RECORD_SIZE);
+            if (mPayloads[slot] != null) {
+                if (payloads == null) {
+                    payloads = new Object[mCount];
+                }
+                payloads[i] = mPayloads[slot];
+                mPayloads[slot] = null;
+            }
+        }
+        mLastPolledPayloads = payloads != null ? payloads : EMPTY_PAYLOADS;
+        mHead = 0;
+        mCount = 0;
+        return records;
+    }
+
+    /**
+     * Returns the payloads of the last poll, indexed by record position, or an empty array if
+     * none of those events had one.
+     */
+    public synchronized Object[] getLastPolledPayloads() {
+        return mLastPolledPayloads;
+    }
+
+    public synchronized long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < mCapacity; i++) {
+            mPayloads[i] = null;
+        }
+        mLastPolledPayloads = EMPTY_PAYLOADS;
+        mHead = 0;
+        mCount = 0;
+    }
+
+    private int indexOf(int position) {
+        return (mHead + position) % mCapacity;
+    }
+}
@@ -0,0 +1,208 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.Intent;
+
+import com.google.unity.GoogleUnityActivity.AndroidLifecycleListener;
+import com.google.unity.GoogleUnityActivity.ExtendedAndroidLifecycleListener;
+
+/**
+ * Multicast set of {@link AndroidLifecycleListener}s.
+ *
+ * Attaching and detaching publish a new copy of the listener array; the dispatch methods read the
+ * current array once and iterate it, so they never lock or allocate. Listeners with a higher
+ * priority are called first, listeners of equal priority in the order they were attached. The
+ * callbacks of {@link ExtendedAndroidLifecycleListener} only go to listeners that implement it.
+ */
+final class LifecycleListenerRegistry {
+    private static final AndroidLifecycleListener[] EMPTY_LISTENERS =
+            new AndroidLifecycleListener[0];
+    private static final int[] EMPTY_PRIORITIES = new int[0];
+
+    private final Object mLock = new Object();
+
+    // Guarded by mLock; always the same length as mListeners.
+    private int[] mPriorities = EMPTY_PRIORITIES;
+
+    // Written under mLock, read without it. The array itself is never modified once published.
+    private volatile AndroidLifecycleListener[] mListeners = EMPTY_LISTENERS;
+
+    /**
+     * Adds a listener, or updates its priority if it is already attached.
+     */
+    public void add(AndroidLifecycleListener listener, int priority) {
+        if (listener == null) {
+            return;
+        }
+
+        synchronized (mLock) {
+            AndroidLifecycleListener[] listeners = removeLocked(listener);
+            int count = listeners.length;
+            int insertAt = count;
+            for (int i = 0; i < count; i++) {
+                if (mPriorities[i] < priority) {
+                    insertAt = i;
+                    break;
+                }
+            }
+
+            AndroidLifecycleListener[] newListeners = new AndroidLifecycleListener[count + 1];
+            int[] newPriorities = new int[count + 1];
+            System.arraycopy(listeners, 0, newListeners, 0, insertAt);
+            System.arraycopy(mPriorities, 0, newPriorities, 0, insertAt);
+            newListeners[insertAt] = listener;
+            newPriorities[insertAt] = priority;
+            System.arraycopy(listeners, insertAt, newListeners, insertAt + 1, count - insertAt);
+            System.arraycopy(mPriorities, insertAt, newPriorities, insertAt + 1, count - insertAt);
+
+            mPriorities = newPriorities;
+            mListeners = newListeners;
+        }
+    }
+
+    /**
+     * Removes a listener. Returns false if it was not attached.
+     */
+    public boolean remove(AndroidLifecycleListener listener) {
+        synchronized (mLock) {
+            AndroidLifecycleListener[] before = mListeners;
+            AndroidLifecycleListener[] after = removeLocked(listener);
+            mListeners = after;
+            return after != before;
+        }
+    }
+
+    public void clear() {
+        synchronized (mLock) {
+            mPriorities = EMPTY_PRIORITIES;
+            mListeners = EMPTY_LISTENERS;
+        }
+    }
+
+    public int size() {
+        return mListeners.length;
+    }
+
+    /**
+     * Returns the current listeners in dispatch order. Callers must not modify the array.
+     */
+    public AndroidLifecycleListener[] snapshot() {
+        return mListeners;
+    }
+
+    public void dispatchStart() {
+        for (AndroidLifecycleListener listener : mListeners) {
+            if (listener instanceof ExtendedAndroidLifecycleListener) {
+                ((ExtendedAndroidLifecycleListener) listener).onStart();
+            }
+        }
+    }
+
+    public void dispatchStop() {
+        for (AndroidLifecycleListener listener : mListeners) {
+            if (listener instanceof ExtendedAndroidLifecycleListener) {
+                ((ExtendedAndroidLifecycleListener) listener).onStop();
+            }
+        }
+    }
+
+    public void dispatchPause() {
+        for (AndroidLifecycleListener listener : mListeners) {
+            listener.onPause();
+        }
+    }
+
+    public void dispatchResume() {
+        for (AndroidLifecycleListener listener : mListeners) {
+            listener.onResume();
+        }
+    }
+
+    public void dispatchActivityResult(int requestCode, int resultCode, Intent data) {
+        for (AndroidLifecycleListener listener : mListeners) {
+            listener.onActivityResult(requestCode, resultCode, data);
+        }
+    }
+
+    public void dispatchRequestPermissionsResult(
+        int requestCode, String[] permissions, int[] grantResults) {
+        for (AndroidLifecycleListener listener : mListeners) {
+            listener.onRequestPermissionsResult(requestCode, permissions, grantResults);
+        }
+    }
+
+    public void dispatchDisplayChanged() {
+        for (AndroidLifecycleListener listener : mListeners) {
+            listener.onDisplayChanged();
+        }
+    }
+
+    public void dispatchPerformanceTierChanged(int tier) {
+        for (AndroidLifecycleListener listener : mListeners) {
+            if (listener instanceof ExtendedAndroidLifecycleListener) {
+                ((ExtendedAndroidLifecycleListener) listener).onPerformanceTierChanged(tier);
+            }
+        }
+    }
+
+    public void dispatchTrimMemory(int level) {
+        for (AndroidLifecycleListener listener : mListeners) {
+            if (listener instanceof ExtendedAndroidLifecycleListener) {
+                ((ExtendedAndroidLifecycleListener) listener).onTrimMemory(level);
+            }
+        }
+    }
+
+    public void dispatchLowMemory() {
+        for (AndroidLifecycleListener listener : mListeners) {
+            if (listener instanceof ExtendedAndroidLifecycleListener) {
+                ((ExtendedAndroidLifecycleListener) listener).onLowMemory();
+            }
+        }
+    }
+
+    // Returns the listener array without |listener|, updating mPriorities to match. Returns the
+    // current array unchanged if |listener| is not attached.
+    private AndroidLifecycleListener[] removeLocked(AndroidLifecycleListener listener) {
+        AndroidLifecycleListener[] listeners = mListeners;
+        int index = -1;
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                index = i;
+                break;
+            }
+        }
+        if (index < 0) {
+            return listeners;
+        }
+
+        int count = listeners.length - 1;
+        if (count == 0) {
+            mPriorities = EMPTY_PRIORITIES;
+            return EMPTY_LISTENERS;
+        }
+
+        AndroidLifecycleListener[] newListeners = new AndroidLifecycleListener[count];
+        int[] newPriorities = new int[count];
+        System.arraycopy(listeners, 0, newListeners, 0, index);
+        System.arraycopy(mPriorities, 0, newPriorities, 0, index);
+        System.arraycopy(listeners, index + 1, newListeners, index, count - index);
+        System.arraycopy(mPriorities, index + 1, newPriorities, index, count - index);
+        mPriorities = newPriorities;
+        return newListeners;
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.Debug;
+import android.os.Handler;
+import android.os.SystemClock;
+
+/**
+ * Periodically samples Java heap, native heap and PSS into a fixed ring of records.
+ *
+ * Each record is {@link #RECORD_SIZE} longs, laid out as described by the FIELD_ constants.
+ * Reading PSS walks the process's memory maps and costs milliseconds, so it is only refreshed
+ * every {@link #PSS_EVERY_N_SAMPLES} samples; the samples in between repeat the last value.
+ * Sampling runs on the handler passed to the constructor and does not allocate.
+ */
+final class MemorySampler {
+    public static final long DEFAULT_INTERVAL_MS = 5000;
+    public static final int DEFAULT_CAPACITY = 120;
+    public static final int PSS_EVERY_N_SAMPLES = 6;
+
+    public static final int FIELD_UPTIME_MS = 0;
+    public static final int FIELD_JAVA_USED_BYTES = 1;
+    public static final int FIELD_JAVA_MAX_BYTES = 2;
+    public static final int FIELD_NATIVE_ALLOCATED_BYTES = 3;
+    public static final int FIELD_PSS_KB = 4;
+    public static final int RECORD_SIZE = 5;
+
+    private final Handler mHandler;
+    private final int mCapacity;
+    private final long[] mRecords;
+
+    // All fields below are guarded by |this|.
+    private int mHead;
+    private int mCount;
+    private long mSamples;
+    private long mLastPssKb;
+    private long mIntervalMs = DEFAULT_INTERVAL_MS;
+    private boolean mRunning;
+
+    private final Runnable mSample = new Runnable() {
+        @Override
+        public void run() {
+            long intervalMs;
+            synchronized (MemorySampler.this) {
+                if (!mRunning) {
+                    return;
+                }
+                intervalMs = mIntervalMs;
+            }
+            sample();
+            mHandler.postDelayed(this, intervalMs);
+        }
+    };
+
+    public MemorySampler(Handler handler, int capacity) {
+        mHandler = handler;
+        mCapacity = capacity;
+        mRecords = new long[capacity * RECORD_SIZE];
+    }
+
+    public synchronized void start() {
+        if (mRunning) {
+            return;
+        }
+        mRunning = true;
+        mHandler.post(mSample);
+    }
+
+    public synchronized void stop() {
+        mRunning = false;
+        mHandler.removeCallbacks(mSample);
+    }
+
+    public synchronized void setIntervalMillis(long intervalMs) {
+        mIntervalMs = Math.max(100, intervalMs);
+    }
+
+    /**
+     * Takes a sample now, including PSS. Safe to call from any thread.
+     */
+    public void sampleNow() {
+        synchronized (this) {
+            mSamples = 0;
+        }
+        sample();
+    }
+
+    /**
+     * Returns the buffered records oldest first, {@link #RECORD_SIZE} longs each.
+     */
+    public synchronized long[] getRecords() {
+        long[] records = new long[mCount * RECORD_SIZE];
+        for (int i = 0; i < mCount; i++) {
+            System.arraycopy(mRecords, ((mHead + i) % mCapacity) * RECORD_SIZE,
+                    records, i * RECORD_SIZE, RECORD_SIZE);
+        }
+        return records;
+    }
+
+    public synchronized void clear() {
+        mHead = 0;
+        mCount = 0;
+    }
+
+    private void sample() {
+        boolean readPss;
+        synchronized (this) {
+            readPss = mSamples % PSS_EVERY_N_SAMPLES == 0;
+            mSamples++;
+        }
+        // Read outside the lock; getPss() is slow.
+        Runtime runtime = Runtime.getRuntime();
+        long javaUsed = runtime.totalMemory() - runtime.freeMemory();
+        long javaMax = runtime.maxMemory();
+        long nativeAllocated = Debug.getNativeHeapAllocatedSize();
+        long pssKb = readPss ? Debug.getPss() : -1;
+        long uptimeMs = SystemClock.uptimeMillis();
+
+        synchronized (this) {
+            if (pssKb >= 0) {
+                mLastPssKb = pssKb;
+            }
+            if (mCount == mCapacity) {
+                mHead = (mHead + 1) % mCapacity;
+                mCount--;
+            }
+            int offset = ((mHead + mCount) % mCapacity) * RECORD_SIZE;
+            mRecords[offset + FIELD_UPTIME_MS] = uptimeMs;
+            mRecords[offset + FIELD_JAVA_USED_BYTES] = javaUsed;
+            mRecords[offset + FIELD_JAVA_MAX_BYTES] = javaMax;
+            mRecords[offset + FIELD_NATIVE_ALLOCATED_BYTES] = nativeAllocated;
+            mRecords[offset + FIELD_PSS_KB] = mLastPssKb;
+            mCount++;
+        }
+    }
+}
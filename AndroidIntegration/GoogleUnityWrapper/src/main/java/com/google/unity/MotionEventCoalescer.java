@@ -0,0 +1,207 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.view.Choreographer;
+import android.view.MotionEvent;
+
+import com.unity3d.player.UnityPlayer;
+
+/**
+ * Input stage that merges consecutive move events before they are injected into Unity.
+ *
+ * A move that can be merged into the pending one is appended to it as a batch of historical
+ * samples, so no position data is lost, and the pending event is injected once per flush. Any
+ * other action (down, up, cancel, pointer changes, scroll, ...) first flushes the pending move
+ * and is then injected immediately, so those are never dropped or reordered.
+ *
+ * Must be created on the UI thread. {@link #flush()} may be called from any thread; the
+ * injection itself always happens on the UI thread, as UnityPlayer requires.
+ */
+final class MotionEventCoalescer {
+    /** Flush the pending move on the next vsync. */
+    public static final int FLUSH_ON_VSYNC = 1;
+    /** Flush the pending move when Unity calls {@link #flush()} at the start of its frame. */
+    public static final int FLUSH_ON_UNITY_FRAME = 2;
+
+    private static final int MAX_POINTERS = 16;
+
+    private final UnityPlayer mUnityPlayer;
+    private final Choreographer mChoreographer;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final int mFlushMode;
+
+    // Scratch space for copying samples into the pending event; guarded by |this|.
+    private final MotionEvent.PointerCoords[] mCoords =
+            new MotionEvent.PointerCoords[MAX_POINTERS];
+
+    // All fields below are guarded by |this|.
+    private MotionEvent mPending;
+    private boolean mFrameCallbackPosted;
+    private boolean mFlushPosted;
+    private long mEventsIn;
+    private long mEventsOut;
+
+    private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            synchronized (MotionEventCoalescer.this) {
+                mFrameCallbackPosted = false;
+                flushLocked();
+            }
+        }
+    };
+
+    private final Runnable mFlushOnMainThread = new Runnable() {
+        @Override
+        public void run() {
+            synchronized (MotionEventCoalescer.this) {
+                mFlushPosted = false;
+                flushLocked();
+            }
+        }
+    };
+
+    public MotionEventCoalescer(UnityPlayer unityPlayer, int flushMode) {
+        mUnityPlayer = unityPlayer;
+        mFlushMode = flushMode;
+        mChoreographer = flushMode == FLUSH_ON_VSYNC ? Choreographer.getInstance() : null;
+        for (int i = 0; i < MAX_POINTERS; i++) {
+            mCoords[i] = new MotionEvent.PointerCoords();
+        }
+    }
+
+    /**
+     * Takes ownership of forwarding |event| to Unity. Returns the injection result for events
+     * forwarded immediately and true for moves held back for merging.
+     */
+    public synchronized boolean offer(MotionEvent event) {
+        mEventsIn++;
+        if (!isMergeable(event)) {
+            flushLocked();
+            mEventsOut++;
+            return mUnityPlayer.injectEvent(event);
+        }
+
+        if (mPending != null && canMerge(mPending, event)) {
+            appendSamples(mPending, event);
+            return true;
+        }
+
+        flushLocked();
+        mPending = MotionEvent.obtain(event);
+        if (mChoreographer != null && !mFrameCallbackPosted) {
+            mFrameCallbackPosted = true;
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+        return true;
+    }
+
+    /**
+     * Injects the pending merged move, if any. Called off the UI thread, e.g. from Unity's frame,
+     * the injection is posted to the UI thread instead.
+     */
+    public synchronized void flush() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            flushLocked();
+        } else if (mPending != null && !mFlushPosted) {
+            mFlushPosted = true;
+            mMainHandler.post(mFlushOnMainThread);
+        }
+    }
+
+    /**
+     * Flushes and stops any scheduled vsync callback. Must be called on the UI thread.
+     */
+    public synchronized void release() {
+        flushLocked();
+        if (mFrameCallbackPosted) {
+            mChoreographer.removeFrameCallback(mFrameCallback);
+            mFrameCallbackPosted = false;
+        }
+        if (mFlushPosted) {
+            mMainHandler.removeCallbacks(mFlushOnMainThread);
+            mFlushPosted = false;
+        }
+    }
+
+    public int getFlushMode() {
+        return mFlushMode;
+    }
+
+    /**
+     * Returns {events offered, events injected into Unity} since creation or the last reset.
+     */
+    public synchronized long[] getCounters() {
+        return new long[] {mEventsIn, mEventsOut};
+    }
+
+    public synchronized void resetCounters() {
+        mEventsIn = 0;
+        mEventsOut = 0;
+    }
+
+    private void flushLocked() {
+        if (mPending == null) {
+            return;
+        }
+        MotionEvent pending = mPending;
+        mPending = null;
+        mEventsOut++;
+        // UnityPlayer copies the event during injection, so it can be recycled right after.
+        mUnityPlayer.injectEvent(pending);
+        pending.recycle();
+    }
+
+    private static boolean isMergeable(MotionEvent event) {
+        int action = event.getActionMasked();
+        return (action == MotionEvent.ACTION_MOVE || action == MotionEvent.ACTION_HOVER_MOVE)
+                && event.getPointerCount() <= MAX_POINTERS;
+    }
+
+    private static boolean canMerge(MotionEvent pending, MotionEvent event) {
+        if (pending.getAction() != event.getAction()
+                || pending.getDeviceId() != event.getDeviceId()
+                || pending.getSource() != event.getSource()
+                || pending.getPointerCount() != event.getPointerCount()) {
+            return false;
+        }
+        for (int i = 0; i < event.getPointerCount(); i++) {
+            if (pending.getPointerId(i) != event.getPointerId(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Appends every historical sample of |event| and then its current sample to |pending|.
+    private void appendSamples(MotionEvent pending, MotionEvent event) {
+        int pointerCount = event.getPointerCount();
+        int historySize = event.getHistorySize();
+        for (int h = 0; h < historySize; h++) {
+            for (int p = 0; p < pointerCount; p++) {
+                event.getHistoricalPointerCoords(p, h, mCoords[p]);
+            }
+            pending.addBatch(event.getHistoricalEventTime(h), mCoords, event.getMetaState());
+        }
+        for (int p = 0; p < pointerCount; p++) {
+            event.getPointerCoords(p, mCoords[p]);
+        }
+        pending.addBatch(event.getEventTime(), mCoords, event.getMetaState());
+    }
+}
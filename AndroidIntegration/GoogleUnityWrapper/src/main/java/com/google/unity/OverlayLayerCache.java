@@ -0,0 +1,300 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Keeps inflated overlay layouts around so that switching between them does not re-inflate.
+ *
+ * Each layout is inflated once into its own full-size layer. Showing a layout detaches the
+ * current layer from the container and attaches the cached one; view state such as text or
+ * scroll position is kept while a layer is cached. The least recently shown layers are evicted
+ * once more than the maximum are cached. The container is left as it is until a layer is shown;
+ * hiding a layer takes the container out of layout and drawing if nothing else is in it.
+ *
+ * Layouts can be prefetched on a background thread. Like AsyncLayoutInflater, that thread has no
+ * Looper, so views that need one fail there and are inflated on the main thread instead rather
+ * than binding Handlers to a background looper.
+ *
+ * {@link #show}, {@link #hide} and {@link #clear} must be called on the main thread;
+ * {@link #prefetch} and {@link #getStats} may be called from any thread.
+ */
+final class OverlayLayerCache {
+    public static final int DEFAULT_MAX_LAYERS = 4;
+
+    // Indices into getStats().
+    public static final int STAT_HITS = 0;
+    public static final int STAT_MISSES = 1;
+    public static final int STAT_PREFETCHED = 2;
+    public static final int STAT_EVICTIONS = 3;
+    public static final int STAT_CACHED = 4;
+    public static final int STAT_COUNT = 5;
+
+    private static final String TAG = OverlayLayerCache.class.getSimpleName();
+    private static final int NO_LAYER = 0;
+
+    private final Context mContext;
+    private final ViewGroup mContainer;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only. Access-ordered, so iteration starts at the least recently shown layer.
+    private final LinkedHashMap<Integer, View> mLayers = new LinkedHashMap<>(8, 0.75f, true);
+    private final HashSet<Integer> mPendingPrefetches = new HashSet<>();
+    private int mCurrentLayoutResId = NO_LAYER;
+    private int mMaxLayers = DEFAULT_MAX_LAYERS;
+
+    // Written on the main thread only.
+    private volatile long mHits;
+    private volatile long mMisses;
+    private volatile long mPrefetched;
+    private volatile long mEvictions;
+    private volatile int mCachedCount;
+
+    private final LinkedBlockingQueue<Integer> mInflateRequests = new LinkedBlockingQueue<>();
+
+    // Guarded by |this|.
+    private Thread mInflaterThread;
+    private boolean mReleased;
+
+    public OverlayLayerCache(Context context, ViewGroup container) {
+        mContext = context;
+        mContainer = container;
+    }
+
+    /**
+     * Shows the layer for |layoutResId|, inflating it if it is not cached.
+     */
+    public void show(int layoutResId) {
+        if (layoutResId == mCurrentLayoutResId) {
+            return;
+        }
+        View layer = mLayers.get(layoutResId);
+        if (layer != null) {
+            mHits++;
+        } else {
+            mMisses++;
+            layer = inflate(layoutResId);
+            mLayers.put(layoutResId, layer);
+        }
+
+        detachCurrent();
+        mContainer.addView(layer);
+        mContainer.setVisibility(View.VISIBLE);
+        mCurrentLayoutResId = layoutResId;
+        trim();
+    }
+
+    /**
+     * Detaches the current layer, keeping it cached. If that leaves the container empty, it is
+     * taken out of layout until the next layer is shown.
+     */
+    public void hide() {
+        if (detachCurrent() && mContainer.getChildCount() == 0) {
+            mContainer.setVisibility(View.GONE);
+        }
+    }
+
+    /**
+     * Inflates the given layouts on a background thread so that showing them later is a hit.
+     * Layouts that cannot be inflated off the main thread are inflated on it instead.
+     */
+    public void prefetch(final int[] layoutResIds) {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                for (int layoutResId : layoutResIds) {
+                    if (!mLayers.containsKey(layoutResId)
+                            && mPendingPrefetches.add(layoutResId)) {
+                        inflateInBackground(layoutResId);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the layer being shown, or null if there is none.
+     */
+    public View getCurrentLayer() {
+        return mCurrentLayoutResId != NO_LAYER ? mLayers.get(mCurrentLayoutResId) : null;
+    }
+
+    public void setMaxLayers(int maxLayers) {
+        mMaxLayers = Math.max(1, maxLayers);
+        trim();
+    }
+
+    /**
+     * Drops every cached layer except the one being shown.
+     */
+    public void clear() {
+        Iterator<Map.Entry<Integer, View>> it = mLayers.entrySet().iterator();
+        while (it.hasNext()) {
+            if (it.next().getKey() != mCurrentLayoutResId) {
+                it.remove();
+            }
+        }
+        mCachedCount = mLayers.size();
+    }
+
+    /**
+     * Stops the prefetch thread. Prefetches still in flight are discarded.
+     */
+    public synchronized void release() {
+        mReleased = true;
+        mInflateRequests.clear();
+        if (mInflaterThread != null) {
+            mInflaterThread.interrupt();
+            mInflaterThread = null;
+        }
+    }
+
+    /**
+     * Returns the counters indexed by the STAT_ constants.
+     */
+    public long[] getStats() {
+        long[] stats = new long[STAT_COUNT];
+        stats[STAT_HITS] = mHits;
+        stats[STAT_MISSES] = mMisses;
+        stats[STAT_PREFETCHED] = mPrefetched;
+        stats[STAT_EVICTIONS] = mEvictions;
+        stats[STAT_CACHED] = mCachedCount;
+        return stats;
+    }
+
+    public void resetStats() {
+        mMainHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mHits = 0;
+                mMisses = 0;
+                mPrefetched = 0;
+                mEvictions = 0;
+            }
+        });
+    }
+
+    // Inflating into a plain FrameLayout, like the container itself, keeps the layout params the
+    // layout would get from the container and also supports <merge> roots.
+    private View inflate(int layoutResId) {
+        FrameLayout layer = new FrameLayout(mContext);
+        layer.setLayoutParams(new FrameLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        LayoutInflater.from(mContext).inflate(layoutResId, layer);
+        return layer;
+    }
+
+    private void inflateInBackground(int layoutResId) {
+        if (!startInflaterThread()) {
+            mPendingPrefetches.remove(layoutResId);
+            return;
+        }
+        mInflateRequests.offer(layoutResId);
+    }
+
+    private void onPrefetched(int layoutResId, View layer) {
+        if (!mPendingPrefetches.remove(layoutResId) || mLayers.containsKey(layoutResId)) {
+            return;
+        }
+        if (layer == null) {
+            layer = inflate(layoutResId);
+        }
+        mLayers.put(layoutResId, layer);
+        mPrefetched++;
+        trim();
+    }
+
+    private synchronized boolean startInflaterThread() {
+        if (mReleased) {
+            return false;
+        }
+        if (mInflaterThread == null) {
+            mInflaterThread = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+                    runInflater();
+                }
+            }, "GoogleUnityOverlayInflater");
+            mInflaterThread.start();
+        }
+        return true;
+    }
+
+    private void runInflater() {
+        while (true) {
+            final int layoutResId;
+            try {
+                layoutResId = mInflateRequests.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+            View layer = null;
+            try {
+                layer = inflate(layoutResId);
+            } catch (RuntimeException e) {
+                // Views that need a Looper or the main thread; onPrefetched falls back to it.
+                Log.d(TAG, "Inflating layout " + layoutResId + " off the main thread failed", e);
+            }
+            final View inflated = layer;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    onPrefetched(layoutResId, inflated);
+                }
+            });
+        }
+    }
+
+    // Returns whether a layer was detached.
+    private boolean detachCurrent() {
+        if (mCurrentLayoutResId == NO_LAYER) {
+            return false;
+        }
+        View current = mLayers.get(mCurrentLayoutResId);
+        if (current != null) {
+            mContainer.removeView(current);
+        }
+        mCurrentLayoutResId = NO_LAYER;
+        return current != null;
+    }
+
+    private void trim() {
+        Iterator<Map.Entry<Integer, View>> it = mLayers.entrySet().iterator();
+        while (mLayers.size() > mMaxLayers && it.hasNext()) {
+            if (it.next().getKey() != mCurrentLayoutResId) {
+                it.remove();
+                mEvictions++;
+            }
+        }
+        mCachedCount = mLayers.size();
+    }
+}
@@ -0,0 +1,297 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.Handler;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.util.Log;
+
+import java.lang.reflect.Method;
+
+/**
+ * Picks a performance tier from the battery, power save and thermal state, so that Unity can
+ * lower its frame rate, resolution and depth/mesh work before the OS throttles the device.
+ *
+ * The state is refreshed from battery and power save broadcasts and every
+ * {@link #POLL_INTERVAL_MS} ms while running. Thermal status and headroom are read through
+ * reflection where the platform has them (API 29 and 30). The tier drops as soon as conditions
+ * get worse, but only rises again once they have stayed better for
+ * {@link #RECOVERY_DELAY_MS} ms, so that it does not flap around a threshold.
+ *
+ * All work happens on the handler passed to the constructor; {@link #getState} may be called
+ * from any thread.
+ */
+final class PerformanceGovernor {
+    /**
+     * Called on the governor's handler thread when the tier changes.
+     */
+    public interface Listener {
+        public void onPerformanceTierChanged(int tier);
+    }
+
+    public static final int TIER_HIGH = 0;
+    public static final int TIER_MEDIUM = 1;
+    public static final int TIER_LOW = 2;
+    public static final int TIER_MINIMUM = 3;
+    public static final int TIER_COUNT = 4;
+
+    // Layout of getState().
+    public static final int STATE_TIER = 0;
+    public static final int STATE_FRAME_RATE_CAP = 1;
+    public static final int STATE_RESOLUTION_SCALE = 2;
+    /** Depth and mesh updates per second. */
+    public static final int STATE_UPDATE_BUDGET = 3;
+    /** 0 to 100, or -1 if unknown. */
+    public static final int STATE_BATTERY_PERCENT = 4;
+    public static final int STATE_CHARGING = 5;
+    public static final int STATE_POWER_SAVE = 6;
+    /** PowerManager.THERMAL_STATUS_ value, or -1 if the platform does not report it. */
+    public static final int STATE_THERMAL_STATUS = 7;
+    /** Forecast fraction of the thermal budget used, or -1 if not reported. */
+    public static final int STATE_THERMAL_HEADROOM = 8;
+    public static final int STATE_SIZE = 9;
+
+    public static final long POLL_INTERVAL_MS = 10000;
+    public static final long RECOVERY_DELAY_MS = 30000;
+
+    private static final String TAG = PerformanceGovernor.class.getSimpleName();
+
+    // PowerManager.THERMAL_STATUS_ values (API 29).
+    private static final int THERMAL_STATUS_LIGHT = 1;
+    private static final int THERMAL_STATUS_MODERATE = 2;
+    private static final int THERMAL_STATUS_SEVERE = 3;
+
+    // Headroom above which the device is expected to throttle soon.
+    private static final float THERMAL_HEADROOM_WARNING = 0.85f;
+    private static final float THERMAL_HEADROOM_CRITICAL = 0.95f;
+    private static final int THERMAL_HEADROOM_FORECAST_SECONDS = 10;
+
+    private static final int LOW_BATTERY_PERCENT = 30;
+    private static final int CRITICAL_BATTERY_PERCENT = 15;
+
+    private static final int[] FRAME_RATE_CAPS = {60, 30, 30, 20};
+    private static final float[] RESOLUTION_SCALES = {1.0f, 0.85f, 0.7f, 0.5f};
+    private static final int[] UPDATE_BUDGETS = {10, 5, 3, 1};
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final Listener mListener;
+    private final PowerManager mPowerManager;
+    private final Method mGetCurrentThermalStatus;
+    private final Method mGetThermalHeadroom;
+
+    // Handler thread only.
+    private boolean mRunning;
+    private int mBatteryPercent = -1;
+    private boolean mCharging;
+    private long mBetterSinceMillis;
+    // The two state buffers; update() fills the one that is not published and swaps them.
+    private final float[] mStateBuffer0 = new float[STATE_SIZE];
+    private final float[] mStateBuffer1 = new float[STATE_SIZE];
+    private final Object[] mThermalHeadroomArgs = {THERMAL_HEADROOM_FORECAST_SECONDS};
+
+    // One of the two state buffers. Written under |this| so that getState() never copies a
+    // buffer while update() refills it.
+    private volatile float[] mState;
+
+    private final BroadcastReceiver mReceiver = new BroadcastReceiver() {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            if (Intent.ACTION_BATTERY_CHANGED.equals(intent.getAction())) {
+                int level = intent.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+                int scale = intent.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+                mBatteryPercent = level >= 0 && scale > 0 ? level * 100 / scale : -1;
+                mCharging = intent.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) != 0;
+            }
+            update();
+        }
+    };
+
+    private final Runnable mPoll = new Runnable() {
+        @Override
+        public void run() {
+            if (mRunning) {
+                update();
+                mHandler.postDelayed(this, POLL_INTERVAL_MS);
+            }
+        }
+    };
+
+    public PerformanceGovernor(Context context, Handler handler, Listener listener) {
+        mContext = context.getApplicationContext();
+        mHandler = handler;
+        mListener = listener;
+        mPowerManager = (PowerManager) context.getSystemService(Context.POWER_SERVICE);
+        mGetCurrentThermalStatus = findPowerManagerMethod("getCurrentThermalStatus");
+        mGetThermalHeadroom = findPowerManagerMethod("getThermalHeadroom", int.class);
+
+        float[] state = mStateBuffer0;
+        writeTier(state, TIER_HIGH);
+        state[STATE_BATTERY_PERCENT] = -1;
+        state[STATE_THERMAL_STATUS] = -1;
+        state[STATE_THERMAL_HEADROOM] = -1;
+        mState = state;
+    }
+
+    public void start() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (mRunning) {
+                    return;
+                }
+                mRunning = true;
+                IntentFilter filter = new IntentFilter(Intent.ACTION_BATTERY_CHANGED);
+                if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+                    filter.addAction(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED);
+                }
+                // The battery broadcast is sticky, so this delivers the current state at once.
+                mContext.registerReceiver(mReceiver, filter, null, mHandler);
+                mHandler.post(mPoll);
+            }
+        });
+    }
+
+    public void stop() {
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!mRunning) {
+                    return;
+                }
+                mRunning = false;
+                mContext.unregisterReceiver(mReceiver);
+                mHandler.removeCallbacks(mPoll);
+            }
+        });
+    }
+
+    /**
+     * Returns the current state laid out as described by the STATE_ constants.
+     */
+    public synchronized float[] getState() {
+        return mState.clone();
+    }
+
+    public int getTier() {
+        return (int) mState[STATE_TIER];
+    }
+
+    private void update() {
+        boolean powerSave = Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP
+                && mPowerManager != null && mPowerManager.isPowerSaveMode();
+        int thermalStatus = readThermalStatus();
+        float thermalHeadroom = readThermalHeadroom();
+
+        int target = TIER_HIGH;
+        if (thermalStatus >= THERMAL_STATUS_SEVERE
+                || thermalHeadroom >= THERMAL_HEADROOM_CRITICAL) {
+            target = TIER_MINIMUM;
+        } else if (thermalStatus == THERMAL_STATUS_MODERATE) {
+            target = TIER_LOW;
+        } else if (thermalStatus == THERMAL_STATUS_LIGHT
+                || thermalHeadroom >= THERMAL_HEADROOM_WARNING) {
+            target = TIER_MEDIUM;
+        }
+        if (powerSave) {
+            target = Math.max(target, TIER_LOW);
+        }
+        if (!mCharging && mBatteryPercent >= 0) {
+            if (mBatteryPercent <= CRITICAL_BATTERY_PERCENT) {
+                target = Math.max(target, TIER_LOW);
+            } else if (mBatteryPercent <= LOW_BATTERY_PERCENT) {
+                target = Math.max(target, TIER_MEDIUM);
+            }
+        }
+
+        int current = (int) mState[STATE_TIER];
+        int tier = current;
+        long now = SystemClock.elapsedRealtime();
+        if (target > current) {
+            tier = target;
+            mBetterSinceMillis = 0;
+        } else if (target < current) {
+            if (mBetterSinceMillis == 0) {
+                mBetterSinceMillis = now;
+            } else if (now - mBetterSinceMillis >= RECOVERY_DELAY_MS) {
+                tier = current - 1;
+                mBetterSinceMillis = tier > target ? now : 0;
+            }
+        } else {
+            mBetterSinceMillis = 0;
+        }
+
+        synchronized (this) {
+            float[] state = mState == mStateBuffer0 ? mStateBuffer1 : mStateBuffer0;
+            writeTier(state, tier);
+            state[STATE_BATTERY_PERCENT] = mBatteryPercent;
+            state[STATE_CHARGING] = mCharging ? 1 : 0;
+            state[STATE_POWER_SAVE] = powerSave ? 1 : 0;
+            state[STATE_THERMAL_STATUS] = thermalStatus;
+            state[STATE_THERMAL_HEADROOM] = thermalHeadroom;
+            mState = state;
+        }
+
+        if (tier != current) {
+            mListener.onPerformanceTierChanged(tier);
+        }
+    }
+
+    private static void writeTier(float[] state, int tier) {
+        state[STATE_TIER] = tier;
+        state[STATE_FRAME_RATE_CAP] = FRAME_RATE_CAPS[tier];
+        state[STATE_RESOLUTION_SCALE] = RESOLUTION_SCALES[tier];
+        state[STATE_UPDATE_BUDGET] = UPDATE_BUDGETS[tier];
+    }
+
+    private int readThermalStatus() {
+        Object status = invoke(mGetCurrentThermalStatus);
+        return status instanceof Integer ? (Integer) status : -1;
+    }
+
+    private float readThermalHeadroom() {
+        Object headroom = invoke(mGetThermalHeadroom, mThermalHeadroomArgs);
+        // NaN means the platform has no forecast yet.
+        return headroom instanceof Float && !((Float) headroom).isNaN() ? (Float) headroom : -1;
+    }
+
+    private Object invoke(Method method, Object... args) {
+        if (method == null || mPowerManager == null) {
+            return null;
+        }
+        try {
+            return method.invoke(mPowerManager, args);
+        } catch (Exception e) {
+            Log.w(TAG, "Failed to call PowerManager." + method.getName(), e);
+            return null;
+        }
+    }
+
+    private static Method findPowerManagerMethod(String name, Class<?>... parameterTypes) {
+        try {
+            return PowerManager.class.getMethod(name, parameterTypes);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+
+/**
+ * Fixed-size ring of binary records in a memory-mapped file.
+ *
+ * Records are written straight into the mapping, so appending costs no system call, and the
+ * kernel still writes the pages back if the process dies, including from a native crash. The file
+ * can be read back with the PerformanceJournalDecoder host tool in GoogleUnityWrapperHost. This
+ * class only uses java.* so the format can be shared with that tool on a desktop JVM.
+ *
+ * Layout (little-endian):
+ * <pre>
+ *   header, HEADER_SIZE bytes:
+ *     0 int magic, 4 int version, 8 int record size, 12 int capacity,
+ *     16 long number of records written, 24 long wall clock at open (ms),
+ *     32 long System.nanoTime() at open, 40 int pid
+ *   records, RECORD_SIZE bytes each, record n at slot n % capacity:
+ *     0 long System.nanoTime(), 8 long arg0, 16 long arg1, 24 short type,
+ *     26 short text length, 28 int sequence (n + 1, written last), 32 UTF-8 text
+ * </pre>
+ */
+public final class PerformanceJournal {
+    public static final int MAGIC = 0x47554a31;
+    public static final int VERSION = 1;
+    public static final int HEADER_SIZE = 64;
+    public static final int RECORD_SIZE = 128;
+    public static final int MAX_TEXT_BYTES = RECORD_SIZE - 32;
+
+    public static final int HEADER_OFFSET_MAGIC = 0;
+    public static final int HEADER_OFFSET_VERSION = 4;
+    public static final int HEADER_OFFSET_RECORD_SIZE = 8;
+    public static final int HEADER_OFFSET_CAPACITY = 12;
+    public static final int HEADER_OFFSET_RECORD_COUNT = 16;
+    public static final int HEADER_OFFSET_WALL_CLOCK_MS = 24;
+    public static final int HEADER_OFFSET_NANO_TIME = 32;
+    public static final int HEADER_OFFSET_PID = 40;
+
+    public static final int RECORD_OFFSET_TIME = 0;
+    public static final int RECORD_OFFSET_ARG0 = 8;
+    public static final int RECORD_OFFSET_ARG1 = 16;
+    public static final int RECORD_OFFSET_TYPE = 24;
+    public static final int RECORD_OFFSET_TEXT_LENGTH = 26;
+    public static final int RECORD_OFFSET_SEQUENCE = 28;
+    public static final int RECORD_OFFSET_TEXT = 32;
+
+    // Record types.
+    /** arg0 = one of the LIFECYCLE_ constants. */
+    public static final short TYPE_LIFECYCLE = 1;
+    /** arg0 = rotation, arg1 = width << 32 | height. */
+    public static final short TYPE_DISPLAY = 2;
+    /** arg0 = 1 if the window gained focus, 0 if it lost it. */
+    public static final short TYPE_FOCUS = 3;
+    /** text = message, arg0 = android.util.Log level. */
+    public static final short TYPE_LOG = 4;
+    /** text = what was timed, arg0 = duration in nanoseconds. */
+    public static final short TYPE_TIMING = 5;
+    /** arg0 = ComponentCallbacks2.TRIM_MEMORY_ level, or -1 for onLowMemory. */
+    public static final short TYPE_MEMORY = 6;
+
+    public static final long LIFECYCLE_CREATE = 1;
+    public static final long LIFECYCLE_START = 2;
+    public static final long LIFECYCLE_RESUME = 3;
+    public static final long LIFECYCLE_PAUSE = 4;
+    public static final long LIFECYCLE_STOP = 5;
+    public static final long LIFECYCLE_DESTROY = 6;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    // Paths already opened by this process; guarded by itself.
+    private static final HashSet<String> sOpenedPaths = new HashSet<>();
+
+    private final MappedByteBuffer mBuffer;
+    private final int mCapacity;
+
+    // Guarded by |this|.
+    private long mRecordCount;
+    private boolean mClosed;
+
+    private PerformanceJournal(MappedByteBuffer buffer, int capacity, long recordCount) {
+        mBuffer = buffer;
+        mCapacity = capacity;
+        mRecordCount = recordCount;
+    }
+
+    /**
+     * Opens the journal at |file| with room for |capacity| records. The first open in a process
+     * moves any existing journal there to |previousFile|, so the record of the previous run, which
+     * may have crashed, is kept; later opens in the same process, e.g. after the activity was
+     * recreated for a configuration change, append to the journal already there.
+     */
+    public static PerformanceJournal open(File file, File previousFile, int capacity, int pid)
+            throws IOException {
+        boolean firstOpen;
+        synchronized (sOpenedPaths) {
+            firstOpen = sOpenedPaths.add(file.getCanonicalPath());
+        }
+        if (firstOpen && file.exists() && previousFile != null) {
+            previousFile.delete();
+            file.renameTo(previousFile);
+        }
+
+        long size = HEADER_SIZE + (long) capacity * RECORD_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        MappedByteBuffer buffer;
+        try {
+            raf.setLength(size);
+            buffer = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } finally {
+            // The mapping stays valid after the file is closed.
+            raf.close();
+        }
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (!firstOpen && buffer.getInt(HEADER_OFFSET_MAGIC) == MAGIC
+                && buffer.getInt(HEADER_OFFSET_VERSION) == VERSION
+                && buffer.getInt(HEADER_OFFSET_RECORD_SIZE) == RECORD_SIZE
+                && buffer.getInt(HEADER_OFFSET_CAPACITY) == capacity
+                && buffer.getInt(HEADER_OFFSET_PID) == pid) {
+            return new PerformanceJournal(
+                    buffer, capacity, buffer.getLong(HEADER_OFFSET_RECORD_COUNT));
+        }
+
+        buffer.putInt(HEADER_OFFSET_MAGIC, MAGIC);
+        buffer.putInt(HEADER_OFFSET_VERSION, VERSION);
+        buffer.putInt(HEADER_OFFSET_RECORD_SIZE, RECORD_SIZE);
+        buffer.putInt(HEADER_OFFSET_CAPACITY, capacity);
+        buffer.putLong(HEADER_OFFSET_RECORD_COUNT, 0);
+        buffer.putLong(HEADER_OFFSET_WALL_CLOCK_MS, System.currentTimeMillis());
+        buffer.putLong(HEADER_OFFSET_NANO_TIME, System.nanoTime());
+        buffer.putInt(HEADER_OFFSET_PID, pid);
+        return new PerformanceJournal(buffer, capacity, 0);
+    }
+
+    /**
+     * Flushes the mapping to the file and ignores any further records. The mapping itself is
+     * released when this object is collected.
+     */
+    public synchronized void close() {
+        if (mClosed) {
+            return;
+        }
+        mClosed = true;
+        mBuffer.force();
+    }
+
+    public void record(short type, long arg0, long arg1) {
+        record(type, arg0, arg1, null);
+    }
+
+    /**
+     * Appends a record, overwriting the oldest one once the ring is full. Text longer than
+     * {@link #MAX_TEXT_BYTES} UTF-8 bytes is truncated at the last whole code point that fits.
+     */
+    public synchronized void record(short type, long arg0, long arg1, String text) {
+        if (mClosed) {
+            return;
+        }
+        int offset = HEADER_SIZE + (int) (mRecordCount % mCapacity) * RECORD_SIZE;
+
+        // Invalidate the slot first so a half-written record is never mistaken for a whole one.
+        mBuffer.putInt(offset + RECORD_OFFSET_SEQUENCE, 0);
+        mBuffer.putLong(offset + RECORD_OFFSET_TIME, System.nanoTime());
+        mBuffer.putLong(offset + RECORD_OFFSET_ARG0, arg0);
+        mBuffer.putLong(offset + RECORD_OFFSET_ARG1, arg1);
+        mBuffer.putShort(offset + RECORD_OFFSET_TYPE, type);
+
+        int textLength = 0;
+        if (text != null) {
+            byte[] utf8 = text.getBytes(UTF_8);
+            textLength = Math.min(utf8.length, MAX_TEXT_BYTES);
+            // Back off over continuation bytes so a multi-byte sequence is never split.
+            while (textLength < utf8.length && textLength > 0
+                    && (utf8[textLength] & 0xc0) == 0x80) {
+                textLength--;
+            }
+            for (int i = 0; i < textLength; i++) {
+                mBuffer.put(offset + RECORD_OFFSET_TEXT + i, utf8[i]);
+            }
+        }
+        mBuffer.putShort(offset + RECORD_OFFSET_TEXT_LENGTH, (short) textLength);
+
+        mRecordCount++;
+        mBuffer.putInt(offset + RECORD_OFFSET_SEQUENCE, (int) mRecordCount);
+        mBuffer.putLong(HEADER_OFFSET_RECORD_COUNT, mRecordCount);
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.Context;
+import android.content.pm.PackageManager;
+import android.support.v4.content.ContextCompat;
+
+import java.util.HashMap;
+
+/**
+ * Caches the grant state of runtime permissions so that repeated checks do not go through
+ * ContextCompat.checkSelfPermission every time.
+ *
+ * Android kills the process when a granted permission is revoked, so a cached grant stays valid.
+ * A cached denial can go stale when the user grants the permission in Settings, so the owner
+ * must call {@link #invalidate()} whenever the activity resumes.
+ */
+final class PermissionCache {
+    public static final int MAX_BATCH_SIZE = 32;
+
+    private final Context mContext;
+
+    // Guarded by |this|.
+    private final HashMap<String, Boolean> mGranted = new HashMap<>();
+
+    public PermissionCache(Context context) {
+        mContext = context;
+    }
+
+    public synchronized boolean isGranted(String permission) {
+        Boolean granted = mGranted.get(permission);
+        if (granted == null) {
+            granted = ContextCompat.checkSelfPermission(mContext, permission)
+                    == PackageManager.PERMISSION_GRANTED;
+            mGranted.put(permission, granted);
+        }
+        return granted;
+    }
+
+    /**
+     * Returns a bitmask with bit i set if permissions[i] is granted.
+     *
+     * @throws IllegalArgumentException if more than {@link #MAX_BATCH_SIZE} are given.
+     */
+    public synchronized int getGrantedMask(String[] permissions) {
+        if (permissions.length > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_SIZE
+                    + " permissions can be checked at once, got " + permissions.length);
+        }
+        int mask = 0;
+        for (int i = 0; i < permissions.length; i++) {
+            if (isGranted(permissions[i])) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Records the outcome of a permission request.
+     */
+    public synchronized void update(String[] permissions, int[] grantResults) {
+        int count = Math.min(permissions.length, grantResults.length);
+        for (int i = 0; i < count; i++) {
+            mGranted.put(permissions[i], grantResults[i] == PackageManager.PERMISSION_GRANTED);
+        }
+    }
+
+    public synchronized void invalidate() {
+        mGranted.clear();
+    }
+}
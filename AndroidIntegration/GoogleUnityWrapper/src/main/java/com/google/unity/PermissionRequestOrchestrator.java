@@ -0,0 +1,247 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.app.Activity;
+import android.content.pm.PackageManager;
+import android.os.Handler;
+import android.os.Looper;
+import android.support.v4.app.ActivityCompat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+
+/**
+ * Serializes runtime permission requests so that they do not collide.
+ *
+ * Android only allows one outstanding permission request per activity. Requests made while one
+ * is outstanding are queued; every request queued by the time the system dialog can be shown is
+ * merged into a single system request. When the result arrives it is split back up and reported
+ * once per original request, under that request's own request code and in its own permission
+ * order. Requests whose permissions are all granted already are answered without a dialog.
+ *
+ * All request handling happens on the main thread; {@link #request} may be called from any
+ * thread.
+ */
+final class PermissionRequestOrchestrator {
+    /**
+     * Receives the result of each original request, on the main thread. As with Android's own
+     * callback, both arrays are empty if the request was interrupted (e.g. the system dismissed
+     * the dialog), meaning the outcome is unknown. Requests still in flight when the activity is
+     * recreated are not reported at all: the new activity has no record of them.
+     */
+    public interface Callback {
+        public void onPermissionsResult(int requestCode, String[] permissions, int[] grantResults);
+    }
+
+    /**
+     * Request code used for the merged system requests. Results for other request codes are not
+     * handled by the orchestrator.
+     */
+    public static final int MERGED_REQUEST_CODE = 0xfe01;
+
+    // Indices of the stages timed by getStats().
+    public static final int STAGE_QUEUED = 0;
+    public static final int STAGE_SYSTEM_DIALOG = 1;
+    public static final int STAGE_TOTAL = 2;
+    public static final int STAGE_COUNT = 3;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private static final class Request {
+        final String[] permissions;
+        final int requestCode;
+        final long enqueuedNanos;
+
+        Request(String[] permissions, int requestCode, long enqueuedNanos) {
+            this.permissions = permissions;
+            this.requestCode = requestCode;
+            this.enqueuedNanos = enqueuedNanos;
+        }
+    }
+
+    private final Activity mActivity;
+    private final PermissionCache mPermissionCache;
+    private final Callback mCallback;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Main thread only.
+    private final List<Request> mQueued = new ArrayList<>();
+    private List<Request> mInFlight;
+    private long mInFlightSinceNanos;
+    private boolean mDispatchPosted;
+
+    // Milliseconds spent in each stage; guarded by |this|.
+    private final LatencyHistogram[] mStageHistograms = new LatencyHistogram[STAGE_COUNT];
+
+    private final Runnable mDispatch = new Runnable() {
+        @Override
+        public void run() {
+            mDispatchPosted = false;
+            dispatchQueued();
+        }
+    };
+
+    public PermissionRequestOrchestrator(
+        Activity activity, PermissionCache permissionCache, Callback callback) {
+        mActivity = activity;
+        mPermissionCache = permissionCache;
+        mCallback = callback;
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mStageHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public void request(String[] permissions, int requestCode) {
+        final Request request = new Request(permissions.clone(), requestCode, System.nanoTime());
+        mHandler.post(new Runnable() {
+            @Override
+            public void run() {
+                mQueued.add(request);
+                // Dispatch on a later turn of the loop so that requests made in the same frame
+                // end up in the same system dialog.
+                if (mInFlight == null && !mDispatchPosted) {
+                    mDispatchPosted = true;
+                    mHandler.post(mDispatch);
+                }
+            }
+        });
+    }
+
+    /**
+     * Handles a permission result if it belongs to a merged request. Returns false for results
+     * of requests the orchestrator did not make.
+     */
+    public boolean onRequestPermissionsResult(
+        int requestCode, String[] permissions, int[] grantResults) {
+        if (requestCode != MERGED_REQUEST_CODE) {
+            return false;
+        }
+        if (mInFlight == null) {
+            // Made by an earlier instance of the activity, whose callers are gone. The grants
+            // are still current, so they are cached, but there is nobody to report them to.
+            if (grantResults.length > 0) {
+                mPermissionCache.update(permissions, grantResults);
+            }
+            return true;
+        }
+
+        long now = System.nanoTime();
+        recordStage(STAGE_SYSTEM_DIALOG, now - mInFlightSinceNanos);
+
+        // An empty result means the request was interrupted and says nothing about the
+        // permissions, so it is neither cached nor reported as a denial.
+        if (grantResults.length == 0) {
+            List<Request> interrupted = mInFlight;
+            mInFlight = null;
+            for (Request request : interrupted) {
+                recordStage(STAGE_TOTAL, now - request.enqueuedNanos);
+                mCallback.onPermissionsResult(request.requestCode, new String[0], new int[0]);
+            }
+            dispatchQueued();
+            return true;
+        }
+
+        mPermissionCache.update(permissions, grantResults);
+        HashMap<String, Integer> results = new HashMap<>();
+        int count = Math.min(permissions.length, grantResults.length);
+        for (int i = 0; i < count; i++) {
+            results.put(permissions[i], grantResults[i]);
+        }
+
+        List<Request> completed = mInFlight;
+        mInFlight = null;
+        for (Request request : completed) {
+            deliver(request, results, now);
+        }
+        dispatchQueued();
+        return true;
+    }
+
+    /**
+     * Returns p50, p90, p99, max and count in milliseconds for each stage (queued, system
+     * dialog, total), {@link LatencyHistogram#SUMMARY_SIZE} values per stage.
+     */
+    public synchronized long[] getStats() {
+        long[] stats = new long[STAGE_COUNT * LatencyHistogram.SUMMARY_SIZE];
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mStageHistograms[i].writeSummary(stats, i * LatencyHistogram.SUMMARY_SIZE);
+        }
+        return stats;
+    }
+
+    public synchronized void resetStats() {
+        for (int i = 0; i < STAGE_COUNT; i++) {
+            mStageHistograms[i].reset();
+        }
+    }
+
+    private void dispatchQueued() {
+        if (mInFlight != null || mQueued.isEmpty()) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        List<Request> batch = new ArrayList<>(mQueued);
+        mQueued.clear();
+
+        LinkedHashSet<String> missing = new LinkedHashSet<>();
+        for (Request request : batch) {
+            recordStage(STAGE_QUEUED, now - request.enqueuedNanos);
+            for (String permission : request.permissions) {
+                if (!mPermissionCache.isGranted(permission)) {
+                    missing.add(permission);
+                }
+            }
+        }
+
+        if (missing.isEmpty()) {
+            for (Request request : batch) {
+                deliver(request, null, now);
+            }
+            return;
+        }
+
+        mInFlight = batch;
+        mInFlightSinceNanos = now;
+        ActivityCompat.requestPermissions(
+                mActivity, missing.toArray(new String[missing.size()]), MERGED_REQUEST_CODE);
+    }
+
+    // Reports |request| using |results| for the permissions the system returned, and the cached
+    // state for the rest, which were granted already when the system request was made.
+    private void deliver(Request request, HashMap<String, Integer> results, long now) {
+        int[] grantResults = new int[request.permissions.length];
+        for (int i = 0; i < grantResults.length; i++) {
+            String permission = request.permissions[i];
+            Integer result = results != null ? results.get(permission) : null;
+            if (result != null) {
+                grantResults[i] = result;
+            } else {
+                grantResults[i] = mPermissionCache.isGranted(permission)
+                        ? PackageManager.PERMISSION_GRANTED : PackageManager.PERMISSION_DENIED;
+            }
+        }
+        recordStage(STAGE_TOTAL, now - request.enqueuedNanos);
+        mCallback.onPermissionsResult(request.requestCode, request.permissions, grantResults);
+    }
+
+    private synchronized void recordStage(int stage, long durationNanos) {
+        mStageHistograms[stage].record(durationNanos / NANOS_PER_MILLI);
+    }
+}
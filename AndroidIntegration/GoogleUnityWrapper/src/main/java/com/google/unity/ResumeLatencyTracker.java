@@ -0,0 +1,81 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+/**
+ * Measures the time from onResume to the first frame Unity renders afterwards, separately for
+ * warm resumes (the player was never paused) and cold ones.
+ *
+ * {@link #onResume} is called on the main thread and {@link #onFrame} on Unity's; both are
+ * cheap enough to call unconditionally.
+ */
+final class ResumeLatencyTracker {
+    public static final int KIND_WARM = 0;
+    public static final int KIND_COLD = 1;
+    public static final int KIND_COUNT = 2;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    // Milliseconds from onResume to the first frame; guarded by |this|.
+    private final LatencyHistogram[] mHistograms = new LatencyHistogram[KIND_COUNT];
+    private long mResumeNanos;
+    private int mResumeKind;
+
+    private volatile boolean mAwaitingFrame;
+
+    public ResumeLatencyTracker() {
+        for (int i = 0; i < KIND_COUNT; i++) {
+            mHistograms[i] = new LatencyHistogram();
+        }
+    }
+
+    public synchronized void onResume(long resumeNanos, boolean warm) {
+        mResumeNanos = resumeNanos;
+        mResumeKind = warm ? KIND_WARM : KIND_COLD;
+        mAwaitingFrame = true;
+    }
+
+    public void onFrame() {
+        if (!mAwaitingFrame) {
+            return;
+        }
+        synchronized (this) {
+            if (mAwaitingFrame) {
+                mAwaitingFrame = false;
+                mHistograms[mResumeKind].record(
+                        (System.nanoTime() - mResumeNanos) / NANOS_PER_MILLI);
+            }
+        }
+    }
+
+    /**
+     * Returns p50, p90, p99, max and count in milliseconds for warm and then cold resumes,
+     * {@link LatencyHistogram#SUMMARY_SIZE} values each.
+     */
+    public synchronized long[] getStats() {
+        long[] stats = new long[KIND_COUNT * LatencyHistogram.SUMMARY_SIZE];
+        for (int i = 0; i < KIND_COUNT; i++) {
+            mHistograms[i].writeSummary(stats, i * LatencyHistogram.SUMMARY_SIZE);
+        }
+        return stats;
+    }
+
+    public synchronized void reset() {
+        for (int i = 0; i < KIND_COUNT; i++) {
+            mHistograms[i].reset();
+        }
+    }
+}
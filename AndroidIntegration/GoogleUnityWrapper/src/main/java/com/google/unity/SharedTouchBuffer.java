@@ -0,0 +1,217 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.util.Log;
+import android.view.MotionEvent;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Direct buffer holding the latest pointer state, for readers that map the memory once and read
+ * it every frame instead of receiving MotionEvents.
+ *
+ * Besides the latest state, the down, up and cancel edges of every pointer are appended to a
+ * small ring, so that a tap that starts and ends between two reads is not lost. A reader keeps
+ * the edge count it has seen and reads the edges written since; if it falls more than
+ * {@link #EDGE_CAPACITY} edges behind, the oldest are gone.
+ *
+ * Layout (native byte order), version {@link #LAYOUT_VERSION}:
+ * <pre>
+ *   offset  0  int   layout version
+ *   offset  4  int   sequence; odd while a write is in progress
+ *   offset  8  int   number of valid pointer records
+ *   offset 12  int   maximum number of pointer records
+ *   offset 16  long  number of events written so far
+ *   offset 24  int   1 while touch events are being written, 0 while disabled
+ *   offset 28  int   number of edge records in the ring
+ *   offset 32  long  number of edges written so far; edge n is at ring slot (n % capacity)
+ *   offset 64  pointer records, then edge records, RECORD_SIZE bytes each:
+ *              +0 int pointer id, +4 float x, +8 float y, +12 float pressure,
+ *              +16 int action (MotionEvent.ACTION_* masked), +20 int reserved,
+ *              +24 long event time in nanoseconds (uptime base), with millisecond
+ *                  precision: MotionEvent times are in ms on this API level
+ * </pre>
+ *
+ * Readers follow the usual sequence lock protocol: read the sequence, retry while it is odd,
+ * copy the records, and retry if the sequence changed in the meantime. The reads of the
+ * sequence must be acquire loads (or be followed by a full barrier), e.g.
+ * Thread.MemoryBarrier() in C#.
+ *
+ * The buffer stays allocated for as long as this object is reachable, so the owner must keep it
+ * for as long as a reader may hold its address.
+ */
+public final class SharedTouchBuffer {
+    private static final String TAG = SharedTouchBuffer.class.getSimpleName();
+
+    public static final int LAYOUT_VERSION = 2;
+    public static final int MAX_POINTERS = 10;
+    public static final int EDGE_CAPACITY = 32;
+
+    public static final int OFFSET_VERSION = 0;
+    public static final int OFFSET_SEQUENCE = 4;
+    public static final int OFFSET_POINTER_COUNT = 8;
+    public static final int OFFSET_MAX_POINTERS = 12;
+    public static final int OFFSET_EVENT_COUNT = 16;
+    public static final int OFFSET_ENABLED = 24;
+    public static final int OFFSET_EDGE_CAPACITY = 28;
+    public static final int OFFSET_EDGE_COUNT = 32;
+    public static final int HEADER_SIZE = 64;
+
+    public static final int RECORD_OFFSET_ID = 0;
+    public static final int RECORD_OFFSET_X = 4;
+    public static final int RECORD_OFFSET_Y = 8;
+    public static final int RECORD_OFFSET_PRESSURE = 12;
+    public static final int RECORD_OFFSET_ACTION = 16;
+    public static final int RECORD_OFFSET_EVENT_TIME = 24;
+    public static final int RECORD_SIZE = 32;
+
+    public static final int OFFSET_EDGES = HEADER_SIZE + MAX_POINTERS * RECORD_SIZE;
+
+    public static final int SIZE = OFFSET_EDGES + EDGE_CAPACITY * RECORD_SIZE;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final ByteBuffer mBuffer;
+    private int mSequence;
+    private long mEventCount;
+    private long mEdgeCount;
+
+    // Only used by fence(); see there.
+    private volatile int mFence;
+
+    public SharedTouchBuffer() {
+        mBuffer = ByteBuffer.allocateDirect(SIZE).order(ByteOrder.nativeOrder());
+        mBuffer.putInt(OFFSET_VERSION, LAYOUT_VERSION);
+        mBuffer.putInt(OFFSET_MAX_POINTERS, MAX_POINTERS);
+        mBuffer.putInt(OFFSET_EDGE_CAPACITY, EDGE_CAPACITY);
+        mBuffer.putInt(OFFSET_ENABLED, 1);
+    }
+
+    public ByteBuffer getBuffer() {
+        return mBuffer;
+    }
+
+    /**
+     * Returns the native address of the buffer, or 0 if it cannot be determined on this runtime;
+     * readers must then fall back to {@link #copyTo(byte[])}.
+     */
+    public long getAddress() {
+        try {
+            Field field = java.nio.Buffer.class.getDeclaredField("address");
+            field.setAccessible(true);
+            return field.getLong(mBuffer);
+        } catch (NoSuchFieldException e) {
+            Log.w(TAG, "Direct buffer address is not available", e);
+        } catch (IllegalAccessException e) {
+            Log.w(TAG, "Direct buffer address is not available", e);
+        }
+        return 0;
+    }
+
+    /**
+     * Sets the enabled flag in the header. May be called from any thread.
+     */
+    public void setEnabled(boolean enabled) {
+        mBuffer.putInt(OFFSET_ENABLED, enabled ? 1 : 0);
+        fence();
+    }
+
+    /**
+     * Copies a consistent snapshot of the whole buffer into |destination|, which must hold at
+     * least {@link #SIZE} bytes. For readers that cannot map the buffer; may be called from any
+     * thread.
+     */
+    public void copyTo(byte[] destination) {
+        while (true) {
+            int sequence = mBuffer.getInt(OFFSET_SEQUENCE);
+            fence();
+            if ((sequence & 1) != 0) {
+                Thread.yield();
+                continue;
+            }
+            for (int i = 0; i < SIZE; i++) {
+                destination[i] = mBuffer.get(i);
+            }
+            fence();
+            if (mBuffer.getInt(OFFSET_SEQUENCE) == sequence) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Records the current state of every pointer in |event|. Must only be called from one thread.
+     */
+    public void write(MotionEvent event) {
+        int pointerCount = Math.min(event.getPointerCount(), MAX_POINTERS);
+        int actionMasked = event.getActionMasked();
+        int actionIndex = event.getActionIndex();
+        long eventTimeNanos = event.getEventTime() * NANOS_PER_MILLI;
+
+        mBuffer.putInt(OFFSET_SEQUENCE, ++mSequence);
+        fence();
+
+        for (int i = 0; i < pointerCount; i++) {
+            int action = actionMasked;
+            if ((actionMasked == MotionEvent.ACTION_POINTER_DOWN
+                    || actionMasked == MotionEvent.ACTION_POINTER_UP) && i != actionIndex) {
+                action = MotionEvent.ACTION_MOVE;
+            }
+            writeRecord(HEADER_SIZE + i * RECORD_SIZE, event, i, action, eventTimeNanos);
+            if (isEdge(action)) {
+                writeRecord(OFFSET_EDGES + (int) (mEdgeCount % EDGE_CAPACITY) * RECORD_SIZE,
+                        event, i, action, eventTimeNanos);
+                mEdgeCount++;
+            }
+        }
+        mBuffer.putInt(OFFSET_POINTER_COUNT, pointerCount);
+        mBuffer.putLong(OFFSET_EVENT_COUNT, ++mEventCount);
+        mBuffer.putLong(OFFSET_EDGE_COUNT, mEdgeCount);
+
+        fence();
+        mBuffer.putInt(OFFSET_SEQUENCE, ++mSequence);
+    }
+
+    private void writeRecord(int offset, MotionEvent event, int pointerIndex, int action,
+            long eventTimeNanos) {
+        mBuffer.putInt(offset + RECORD_OFFSET_ID, event.getPointerId(pointerIndex));
+        mBuffer.putFloat(offset + RECORD_OFFSET_X, event.getX(pointerIndex));
+        mBuffer.putFloat(offset + RECORD_OFFSET_Y, event.getY(pointerIndex));
+        mBuffer.putFloat(offset + RECORD_OFFSET_PRESSURE, event.getPressure(pointerIndex));
+        mBuffer.putInt(offset + RECORD_OFFSET_ACTION, action);
+        mBuffer.putLong(offset + RECORD_OFFSET_EVENT_TIME, eventTimeNanos);
+    }
+
+    private static boolean isEdge(int action) {
+        return action == MotionEvent.ACTION_DOWN || action == MotionEvent.ACTION_UP
+                || action == MotionEvent.ACTION_POINTER_DOWN
+                || action == MotionEvent.ACTION_POINTER_UP
+                || action == MotionEvent.ACTION_CANCEL;
+    }
+
+    // Full two-way barrier between the plain buffer accesses before and after it. A volatile
+    // store alone only has release semantics (stlr on arm64), so later plain stores could still
+    // become visible before earlier ones; the volatile load that follows it (ldar) cannot be
+    // reordered with the store, and later accesses cannot move above the load. The result is
+    // only returned so that the load is not dead code.
+    private int fence() {
+        mFence = 0;
+        return mFence;
+    }
+}
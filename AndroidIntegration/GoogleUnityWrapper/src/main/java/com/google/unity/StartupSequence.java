@@ -0,0 +1,137 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.Trace;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs activity startup as a series of named stages, some of which may run on background
+ * threads in parallel with the main thread, and keeps the duration of each.
+ *
+ * Background stages are started with {@link #startInBackground} and must be joined with
+ * {@link #joinBackgroundStages()} before anything that depends on them runs. Each stage is also
+ * traced as an android.os.Trace section and recorded in the given {@link TraceRecorder}.
+ */
+final class StartupSequence {
+    private static final String TAG = StartupSequence.class.getSimpleName();
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final boolean HAS_SYSTRACE =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private final TraceRecorder mTraceRecorder;
+    private final List<Thread> mBackgroundThreads = new ArrayList<>();
+
+    // Guarded by |this|; background stages add to these concurrently.
+    private final List<String> mStageNames = new ArrayList<>();
+    private final List<Long> mStageDurationsNanos = new ArrayList<>();
+
+    public StartupSequence(TraceRecorder traceRecorder) {
+        mTraceRecorder = traceRecorder;
+    }
+
+    /**
+     * Starts a stage on the calling thread and returns its start time for {@link #endStage}.
+     */
+    public long beginStage(String name) {
+        if (HAS_SYSTRACE) {
+            Trace.beginSection(name);
+        }
+        return System.nanoTime();
+    }
+
+    public void endStage(String name, long startNanos) {
+        long durationNanos = System.nanoTime() - startNanos;
+        if (HAS_SYSTRACE) {
+            Trace.endSection();
+        }
+        mTraceRecorder.record(name, startNanos, durationNanos);
+        addStage(name, durationNanos);
+    }
+
+    /**
+     * Runs |stage| on a new background thread. Failures are logged and do not fail startup, so
+     * background stages must only do work that the main thread can redo or live without.
+     */
+    public void startInBackground(final String name, final Runnable stage) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(Process.THREAD_PRIORITY_DISPLAY);
+                long start = beginStage(name);
+                try {
+                    stage.run();
+                } catch (RuntimeException e) {
+                    Log.w(TAG, "Startup stage " + name + " failed", e);
+                } catch (LinkageError e) {
+                    Log.w(TAG, "Startup stage " + name + " failed", e);
+                } finally {
+                    endStage(name, start);
+                }
+            }
+        }, "GoogleUnityStartup-" + name);
+        mBackgroundThreads.add(thread);
+        thread.start();
+    }
+
+    /**
+     * Waits for every background stage started so far. The time spent waiting is recorded as
+     * its own stage.
+     */
+    public void joinBackgroundStages() {
+        long start = beginStage("joinBackgroundStages");
+        boolean interrupted = false;
+        for (Thread thread : mBackgroundThreads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        mBackgroundThreads.clear();
+        endStage("joinBackgroundStages", start);
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public synchronized String[] getStageNames() {
+        return mStageNames.toArray(new String[mStageNames.size()]);
+    }
+
+    /**
+     * Returns the stage durations in microseconds, in the same order as {@link #getStageNames()}.
+     */
+    public synchronized long[] getStageDurationsMicros() {
+        long[] durations = new long[mStageDurationsNanos.size()];
+        for (int i = 0; i < durations.length; i++) {
+            durations[i] = mStageDurationsNanos.get(i) / NANOS_PER_MICRO;
+        }
+        return durations;
+    }
+
+    private synchronized void addStage(String name, long durationNanos) {
+        mStageNames.add(name);
+        mStageDurationsNanos.add(durationNanos);
+    }
+}
@@ -0,0 +1,177 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.Build;
+import android.os.Process;
+import android.os.Trace;
+
+import java.io.BufferedWriter;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Records named spans both as android.os.Trace sections (visible in systrace) and into a
+ * fixed-size in-memory ring that can be written out as a Chrome trace-event JSON file, so traces
+ * can be collected in the field without attaching systrace.
+ *
+ * Usage: {@code long start = recorder.beginSection("name"); ...; recorder.endSection("name",
+ * start);}. Section names should be constants; recording stores a reference, not a copy.
+ */
+final class TraceRecorder {
+    private static final long NANOS_PER_MICRO = 1000L;
+    private static final boolean HAS_SYSTRACE =
+            Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR2;
+
+    private final int mCapacity;
+    private final String[] mNames;
+    private final long[] mStartNanos;
+    private final long[] mDurationNanos;
+    private final int[] mThreadIds;
+
+    private volatile boolean mEnabled = true;
+
+    // Guarded by |this|.
+    private int mNext;
+    private int mCount;
+
+    public TraceRecorder(int capacity) {
+        mCapacity = capacity;
+        mNames = new String[capacity];
+        mStartNanos = new long[capacity];
+        mDurationNanos = new long[capacity];
+        mThreadIds = new int[capacity];
+    }
+
+    public void setEnabled(boolean enabled) {
+        mEnabled = enabled;
+    }
+
+    /**
+     * Opens a section and returns its start time, to be passed to {@link #endSection}.
+     */
+    public long beginSection(String name) {
+        if (!mEnabled) {
+            return 0;
+        }
+        if (HAS_SYSTRACE) {
+            Trace.beginSection(name);
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Closes the innermost section opened on this thread and records it.
+     */
+    public void endSection(String name, long startNanos) {
+        if (startNanos == 0) {
+            return;
+        }
+        long durationNanos = System.nanoTime() - startNanos;
+        if (HAS_SYSTRACE) {
+            Trace.endSection();
+        }
+        record(name, startNanos, durationNanos);
+    }
+
+    /**
+     * Records a span measured elsewhere, without a systrace section.
+     */
+    public synchronized void record(String name, long startNanos, long durationNanos) {
+        mNames[mNext] = name;
+        mStartNanos[mNext] = startNanos;
+        mDurationNanos[mNext] = durationNanos;
+        mThreadIds[mNext] = Process.myTid();
+        mNext = (mNext + 1) % mCapacity;
+        if (mCount < mCapacity) {
+            mCount++;
+        }
+    }
+
+    public synchronized void clear() {
+        for (int i = 0; i < mCapacity; i++) {
+            mNames[i] = null;
+        }
+        mNext = 0;
+        mCount = 0;
+    }
+
+    /**
+     * Writes the recorded spans, oldest first, as a Chrome trace-event JSON file.
+     */
+    public void writeChromeTrace(String path) throws IOException {
+        String[] names;
+        long[] startNanos;
+        long[] durationNanos;
+        int[] threadIds;
+        int count;
+        synchronized (this) {
+            count = mCount;
+            names = new String[count];
+            startNanos = new long[count];
+            durationNanos = new long[count];
+            threadIds = new int[count];
+            int first = (mNext - count + mCapacity) % mCapacity;
+            for (int i = 0; i < count; i++) {
+                int slot = (first + i) % mCapacity;
+                names[i] = mNames[slot];
+                startNanos[i] = mStartNanos[slot];
+                durationNanos[i] = mDurationNanos[slot];
+                threadIds[i] = mThreadIds[slot];
+            }
+        }
+
+        int pid = Process.myPid();
+        Writer writer = new BufferedWriter(new FileWriter(path));
+        try {
+            writer.write("{\"traceEvents\":[");
+            for (int i = 0; i < count; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write("\n{\"name\":\"");
+                writeEscaped(writer, names[i]);
+                writer.write("\",\"ph\":\"X\",\"ts\":");
+                writer.write(Long.toString(startNanos[i] / NANOS_PER_MICRO));
+                writer.write(",\"dur\":");
+                writer.write(Long.toString(durationNanos[i] / NANOS_PER_MICRO));
+                writer.write(",\"pid\":");
+                writer.write(Integer.toString(pid));
+                writer.write(",\"tid\":");
+                writer.write(Integer.toString(threadIds[i]));
+                writer.write('}');
+            }
+            writer.write("\n],\"displayTimeUnit\":\"ms\"}\n");
+        } finally {
+            writer.close();
+        }
+    }
+
+    private static void writeEscaped(Writer writer, String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                writer.write('\\');
+                writer.write(c);
+            } else if (c < 0x20) {
+                writer.write(String.format("\\u%04x", (int) c));
+            } else {
+                writer.write(c);
+            }
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.util.Log;
+
+import java.lang.reflect.Field;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.HashMap;
+
+/**
+ * Typed messages from Java to Unity through a ring in a direct buffer, so that values such as
+ * colors or slider positions reach Unity without string formatting, parsing or a GameObject
+ * lookup.
+ *
+ * Unity registers the channels it listens to once, by name, and gets a numeric id for each;
+ * Java looks the ids up once as well and publishes by id. Unity maps the buffer once and reads
+ * every message written since its last read position each frame, then stores the new read
+ * position back into the header. Messages that do not fit in the free space are dropped and
+ * counted.
+ *
+ * Layout (native byte order), version {@link #LAYOUT_VERSION}:
+ * <pre>
+ *   offset  0  int   layout version
+ *   offset  4  int   capacity of the data area in bytes
+ *   offset  8  long  write position: total bytes written, published after the message data
+ *   offset 16  long  read position: total bytes consumed, written by the reader
+ *   offset 24  long  number of dropped messages
+ *   offset 64  data area; position p is at byte (p % capacity)
+ * </pre>
+ * Each message is aligned to 8 bytes and never wraps around the end of the data area:
+ * <pre>
+ *   +0 int channel id, +4 short type (one of the TYPE_ constants), +6 short payload length,
+ *   +8 payload, padded to a multiple of 8
+ * </pre>
+ * A {@link #TYPE_PADDING} message fills the space up to the end of the data area when the next
+ * message would not fit there; readers skip it and continue at the start.
+ *
+ * The writer fences between the message data and the write position, and between loading the
+ * read position and reusing the space behind it. Readers must do the same on their side: load
+ * the write position with acquire semantics before reading messages, and store the read position
+ * with release semantics after they are done with them (e.g. Volatile.Read and Volatile.Write).
+ */
+public final class UnityMessageBus {
+    private static final String TAG = UnityMessageBus.class.getSimpleName();
+
+    public static final int LAYOUT_VERSION = 1;
+    public static final int DEFAULT_CAPACITY = 64 * 1024;
+
+    public static final int OFFSET_VERSION = 0;
+    public static final int OFFSET_CAPACITY = 4;
+    public static final int OFFSET_WRITE_POSITION = 8;
+    public static final int OFFSET_READ_POSITION = 16;
+    public static final int OFFSET_DROPPED = 24;
+    public static final int HEADER_SIZE = 64;
+
+    public static final int MESSAGE_OFFSET_CHANNEL = 0;
+    public static final int MESSAGE_OFFSET_TYPE = 4;
+    public static final int MESSAGE_OFFSET_LENGTH = 6;
+    public static final int MESSAGE_HEADER_SIZE = 8;
+    public static final int MAX_PAYLOAD_SIZE = Short.MAX_VALUE;
+
+    public static final short TYPE_PADDING = 0;
+    public static final short TYPE_INT = 1;
+    public static final short TYPE_LONG = 2;
+    public static final short TYPE_FLOAT = 3;
+    public static final short TYPE_VECTOR2 = 4;
+    public static final short TYPE_VECTOR3 = 5;
+    public static final short TYPE_VECTOR4 = 6;
+    public static final short TYPE_BYTES = 7;
+
+    private static final int ALIGNMENT = 8;
+
+    private final ByteBuffer mBuffer;
+    private final int mCapacity;
+
+    // Guarded by |this|.
+    private long mWritePosition;
+    private long mDropped;
+    private final HashMap<String, Integer> mChannels = new HashMap<>();
+
+    // Only used by fence(); see there.
+    private volatile int mFence;
+
+    /**
+     * Creates a bus whose data area holds |capacity| bytes, rounded up to a multiple of 8.
+     */
+    public UnityMessageBus(int capacity) {
+        mCapacity = align(Math.max(capacity, ALIGNMENT * 2));
+        mBuffer = ByteBuffer.allocateDirect(HEADER_SIZE + mCapacity).order(ByteOrder.nativeOrder());
+        mBuffer.putInt(OFFSET_VERSION, LAYOUT_VERSION);
+        mBuffer.putInt(OFFSET_CAPACITY, mCapacity);
+    }
+
+    public ByteBuffer getBuffer() {
+        return mBuffer;
+    }
+
+    /**
+     * Returns the native address of the buffer, or 0 if it cannot be determined on this runtime.
+     */
+    public long getAddress() {
+        try {
+            Field field = java.nio.Buffer.class.getDeclaredField("address");
+            field.setAccessible(true);
+            return field.getLong(mBuffer);
+        } catch (NoSuchFieldException e) {
+            Log.w(TAG, "Direct buffer address is not available", e);
+        } catch (IllegalAccessException e) {
+            Log.w(TAG, "Direct buffer address is not available", e);
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the id of the channel called |name|, registering it if needed. Ids start at 1 and
+     * stay the same for the lifetime of the bus.
+     */
+    public synchronized int registerChannel(String name) {
+        Integer id = mChannels.get(name);
+        if (id == null) {
+            id = mChannels.size() + 1;
+            mChannels.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Returns the id of the channel called |name|, or 0 if Unity has not registered it.
+     */
+    public synchronized int getChannelId(String name) {
+        Integer id = mChannels.get(name);
+        return id != null ? id : 0;
+    }
+
+    public synchronized long getDroppedCount() {
+        return mDropped;
+    }
+
+    public synchronized boolean publishInt(int channel, int value) {
+        int offset = begin(channel, TYPE_INT, 4);
+        if (offset < 0) {
+            return false;
+        }
+        mBuffer.putInt(offset, value);
+        return commit(4);
+    }
+
+    public synchronized boolean publishLong(int channel, long value) {
+        int offset = begin(channel, TYPE_LONG, 8);
+        if (offset < 0) {
+            return false;
+        }
+        mBuffer.putLong(offset, value);
+        return commit(8);
+    }
+
+    public synchronized boolean publishFloat(int channel, float value) {
+        int offset = begin(channel, TYPE_FLOAT, 4);
+        if (offset < 0) {
+            return false;
+        }
+        mBuffer.putFloat(offset, value);
+        return commit(4);
+    }
+
+    public synchronized boolean publishVector2(int channel, float x, float y) {
+        int offset = begin(channel, TYPE_VECTOR2, 8);
+        if (offset < 0) {
+            return false;
+        }
+        mBuffer.putFloat(offset, x);
+        mBuffer.putFloat(offset + 4, y);
+        return commit(8);
+    }
+
+    public synchronized boolean publishVector3(int channel, float x, float y, float z) {
+        int offset = begin(channel, TYPE_VECTOR3, 12);
+        if (offset < 0) {
+            return false;
+        }
+        mBuffer.putFloat(offset, x);
+        mBuffer.putFloat(offset + 4, y);
+        mBuffer.putFloat(offset + 8, z);
+        return commit(12);
+    }
+
+    public synchronized boolean publishVector4(int channel, float x, float y, float z, float w) {
+        int offset = begin(channel, TYPE_VECTOR4, 16);
+        if (offset < 0) {
+            return false;
+        }
+        mBuffer.putFloat(offset, x);
+        mBuffer.putFloat(offset + 4, y);
+        mBuffer.putFloat(offset + 8, z);
+        mBuffer.putFloat(offset + 12, w);
+        return commit(16);
+    }
+
+    public synchronized boolean publishBytes(int channel, byte[] bytes, int start, int length) {
+        int offset = begin(channel, TYPE_BYTES, length);
+        if (offset < 0) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            mBuffer.put(offset + i, bytes[start + i]);
+        }
+        return commit(length);
+    }
+
+    // Writes the message header and returns the buffer offset of the payload, or -1 if the
+    // message was dropped. Must be followed by commit() when it succeeds.
+    private int begin(int channel, short type, int payloadLength) {
+        if (channel <= 0 || payloadLength < 0 || payloadLength > MAX_PAYLOAD_SIZE) {
+            mDropped++;
+            mBuffer.putLong(OFFSET_DROPPED, mDropped);
+            return -1;
+        }
+
+        int size = MESSAGE_HEADER_SIZE + align(payloadLength);
+        int position = (int) (mWritePosition % mCapacity);
+        int padding = position + size > mCapacity ? mCapacity - position : 0;
+        long readPosition = mBuffer.getLong(OFFSET_READ_POSITION);
+        // The reader is done with everything below readPosition; do not let the writes below
+        // reach that space before the load.
+        fence();
+        long free = mCapacity - (mWritePosition - readPosition);
+        if (size > mCapacity || padding + size > free) {
+            mDropped++;
+            mBuffer.putLong(OFFSET_DROPPED, mDropped);
+            return -1;
+        }
+
+        if (padding > 0) {
+            int offset = HEADER_SIZE + position;
+            mBuffer.putInt(offset + MESSAGE_OFFSET_CHANNEL, 0);
+            mBuffer.putShort(offset + MESSAGE_OFFSET_TYPE, TYPE_PADDING);
+            mBuffer.putShort(offset + MESSAGE_OFFSET_LENGTH,
+                    (short) (padding - MESSAGE_HEADER_SIZE));
+            mWritePosition += padding;
+            position = 0;
+        }
+
+        int offset = HEADER_SIZE + position;
+        mBuffer.putInt(offset + MESSAGE_OFFSET_CHANNEL, channel);
+        mBuffer.putShort(offset + MESSAGE_OFFSET_TYPE, type);
+        mBuffer.putShort(offset + MESSAGE_OFFSET_LENGTH, (short) payloadLength);
+        return offset + MESSAGE_HEADER_SIZE;
+    }
+
+    private boolean commit(int payloadLength) {
+        mWritePosition += MESSAGE_HEADER_SIZE + align(payloadLength);
+        // The message must be visible before the position that covers it.
+        fence();
+        mBuffer.putLong(OFFSET_WRITE_POSITION, mWritePosition);
+        return true;
+    }
+
+    // Full two-way barrier between the plain buffer accesses before and after it: the volatile
+    // store has release semantics and the volatile load of the same field acquire semantics, and
+    // the two cannot be reordered with each other. The result is only returned so that the load
+    // is not dead code.
+    private int fence() {
+        mFence = 0;
+        return mFence;
+    }
+
+    private static int align(int size) {
+        return (size + ALIGNMENT - 1) & ~(ALIGNMENT - 1);
+    }
+}
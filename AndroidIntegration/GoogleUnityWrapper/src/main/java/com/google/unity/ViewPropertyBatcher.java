@@ -0,0 +1,270 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.View;
+import android.widget.CompoundButton;
+import android.widget.ImageView;
+import android.widget.ProgressBar;
+import android.widget.TextView;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * Applies batches of view property changes to the overlay layer, so Unity can update any number
+ * of widgets with one call and one main thread post instead of several calls per widget.
+ *
+ * A batch is a sequence of operations, big-endian, until the end of the array:
+ * <pre>
+ *   int    view id
+ *   byte   property (one of the PROPERTY_ constants)
+ *   value:
+ *     PROPERTY_TEXT                                int length in bytes, followed by UTF-8 bytes
+ *     PROPERTY_ALPHA, PROPERTY_TRANSLATION_X/Y     float
+ *     every other property                         int
+ * </pre>
+ *
+ * Batches submitted before the main thread gets to them are applied together, in order, in a
+ * single post. Views are looked up once per overlay layer and then served from a table.
+ */
+final class ViewPropertyBatcher {
+    /**
+     * Supplies the root of the overlay layer currently shown, or null if there is none.
+     */
+    public interface RootProvider {
+        public View getRoot();
+    }
+
+    public static final byte PROPERTY_TEXT = 1;
+    /** View.VISIBLE, View.INVISIBLE or View.GONE. */
+    public static final byte PROPERTY_VISIBILITY = 2;
+    public static final byte PROPERTY_ALPHA = 3;
+    /** ARGB color. */
+    public static final byte PROPERTY_TEXT_COLOR = 4;
+    /** ARGB color. */
+    public static final byte PROPERTY_BACKGROUND_COLOR = 5;
+    /** 0 or 1. */
+    public static final byte PROPERTY_ENABLED = 6;
+    public static final byte PROPERTY_PROGRESS = 7;
+    public static final byte PROPERTY_TRANSLATION_X = 8;
+    public static final byte PROPERTY_TRANSLATION_Y = 9;
+    /** 0 or 1. */
+    public static final byte PROPERTY_CHECKED = 10;
+    public static final byte PROPERTY_IMAGE_RESOURCE = 11;
+
+    // Indices into getStats().
+    public static final int STAT_BATCHES = 0;
+    public static final int STAT_POSTS = 1;
+    public static final int STAT_OPERATIONS = 2;
+    public static final int STAT_MISSING_VIEWS = 3;
+    public static final int STAT_COUNT = 4;
+
+    private static final String TAG = ViewPropertyBatcher.class.getSimpleName();
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final RootProvider mRootProvider;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+    // Guarded by |this|.
+    private ArrayList<byte[]> mPending = new ArrayList<>();
+    private ArrayList<byte[]> mSpare = new ArrayList<>();
+    private boolean mPosted;
+    private final long[] mStats = new long[STAT_COUNT];
+
+    // Main thread only. Views of |mLookupRoot| by id; null entries are ids known to be missing.
+    private View mLookupRoot;
+    private final SparseArray<View> mViews = new SparseArray<>();
+
+    private final Runnable mApply = new Runnable() {
+        @Override
+        public void run() {
+            ArrayList<byte[]> batches;
+            synchronized (ViewPropertyBatcher.this) {
+                batches = mPending;
+                mPending = mSpare;
+                mSpare = batches;
+                mPosted = false;
+            }
+            for (int i = 0; i < batches.size(); i++) {
+                apply(batches.get(i));
+            }
+            batches.clear();
+        }
+    };
+
+    public ViewPropertyBatcher(RootProvider rootProvider) {
+        mRootProvider = rootProvider;
+    }
+
+    /**
+     * Queues |batch| to be applied on the main thread. May be called from any thread; the array
+     * must not be modified afterwards.
+     */
+    public void submit(byte[] batch) {
+        synchronized (this) {
+            mPending.add(batch);
+            mStats[STAT_BATCHES]++;
+            if (mPosted) {
+                return;
+            }
+            mPosted = true;
+            mStats[STAT_POSTS]++;
+        }
+        mHandler.post(mApply);
+    }
+
+    /**
+     * Returns the counters indexed by the STAT_ constants.
+     */
+    public synchronized long[] getStats() {
+        return mStats.clone();
+    }
+
+    public synchronized void resetStats() {
+        for (int i = 0; i < STAT_COUNT; i++) {
+            mStats[i] = 0;
+        }
+    }
+
+    private void apply(byte[] batch) {
+        View root = mRootProvider.getRoot();
+        if (root != mLookupRoot) {
+            mViews.clear();
+            mLookupRoot = root;
+        }
+
+        int operations = 0;
+        int missingViews = 0;
+        ByteBuffer buffer = ByteBuffer.wrap(batch);
+        try {
+            while (buffer.hasRemaining()) {
+                int viewId = buffer.getInt();
+                byte property = buffer.get();
+                View view = findView(viewId);
+                if (view == null) {
+                    missingViews++;
+                }
+                operations++;
+                switch (property) {
+                    case PROPERTY_TEXT:
+                        String text = readString(buffer);
+                        if (view instanceof TextView) {
+                            ((TextView) view).setText(text);
+                        }
+                        break;
+                    case PROPERTY_VISIBILITY:
+                        int visibility = buffer.getInt();
+                        if (view != null) {
+                            view.setVisibility(visibility);
+                        }
+                        break;
+                    case PROPERTY_ALPHA:
+                        float alpha = buffer.getFloat();
+                        if (view != null) {
+                            view.setAlpha(alpha);
+                        }
+                        break;
+                    case PROPERTY_TEXT_COLOR:
+                        int textColor = buffer.getInt();
+                        if (view instanceof TextView) {
+                            ((TextView) view).setTextColor(textColor);
+                        }
+                        break;
+                    case PROPERTY_BACKGROUND_COLOR:
+                        int backgroundColor = buffer.getInt();
+                        if (view != null) {
+                            view.setBackgroundColor(backgroundColor);
+                        }
+                        break;
+                    case PROPERTY_ENABLED:
+                        boolean enabled = buffer.getInt() != 0;
+                        if (view != null) {
+                            view.setEnabled(enabled);
+                        }
+                        break;
+                    case PROPERTY_PROGRESS:
+                        int progress = buffer.getInt();
+                        if (view instanceof ProgressBar) {
+                            ((ProgressBar) view).setProgress(progress);
+                        }
+                        break;
+                    case PROPERTY_TRANSLATION_X:
+                        float translationX = buffer.getFloat();
+                        if (view != null) {
+                            view.setTranslationX(translationX);
+                        }
+                        break;
+                    case PROPERTY_TRANSLATION_Y:
+                        float translationY = buffer.getFloat();
+                        if (view != null) {
+                            view.setTranslationY(translationY);
+                        }
+                        break;
+                    case PROPERTY_CHECKED:
+                        boolean checked = buffer.getInt() != 0;
+                        if (view instanceof CompoundButton) {
+                            ((CompoundButton) view).setChecked(checked);
+                        }
+                        break;
+                    case PROPERTY_IMAGE_RESOURCE:
+                        int resId = buffer.getInt();
+                        if (view instanceof ImageView) {
+                            ((ImageView) view).setImageResource(resId);
+                        }
+                        break;
+                    default:
+                        Log.w(TAG, "Unknown view property " + property + ", dropping the rest "
+                                + "of the batch");
+                        return;
+                }
+            }
+        } catch (BufferUnderflowException e) {
+            Log.w(TAG, "Truncated view property batch", e);
+        } finally {
+            synchronized (this) {
+                mStats[STAT_OPERATIONS] += operations;
+                mStats[STAT_MISSING_VIEWS] += missingViews;
+            }
+        }
+    }
+
+    private View findView(int viewId) {
+        int index = mViews.indexOfKey(viewId);
+        if (index >= 0) {
+            return mViews.valueAt(index);
+        }
+        View view = mLookupRoot != null ? mLookupRoot.findViewById(viewId) : null;
+        mViews.put(viewId, view);
+        return view;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0 || length > buffer.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        String value = new String(buffer.array(), buffer.position(), length, UTF_8);
+        buffer.position(buffer.position() + length);
+        return value;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.ContextWrapper;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the model color picker's palette: generating it, and binding drop-down rows while the
+ * list scrolls through recycled views. The palette matches the one the picker activity uses.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ColorSpinnerBenchmark {
+    private static final int HUE_STEPS = 120;
+    private static final int SATURATION_STEPS = 3;
+    private static final int VALUE_STEPS = 3;
+    private static final float MIN_SATURATION = 0.7f;
+    private static final float MIN_VALUE = 0.7f;
+
+    // Rows visible in an open drop-down, each with a recycled view.
+    private static final int VISIBLE_ROWS = 12;
+
+    private ColorSpinnerAdapter mAdapter;
+    private FrameLayout mParent;
+    private View[] mRows;
+    private int mFirstRow;
+
+    @Setup
+    public void setUp() {
+        ContextWrapper context = new ContextWrapper();
+        mAdapter = new ColorSpinnerAdapter(context, createPalette());
+        mParent = new FrameLayout(context);
+        mRows = new View[VISIBLE_ROWS];
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            mRows[i] = mAdapter.getDropDownView(i, null, mParent);
+        }
+    }
+
+    @Benchmark
+    public ColorPalette createPalette() {
+        return ColorPalette.createHsvGrid(
+                HUE_STEPS, SATURATION_STEPS, VALUE_STEPS, MIN_SATURATION, MIN_VALUE);
+    }
+
+    // Scrolls by one row: every visible row is rebound to the color below it.
+    @Benchmark
+    public View scrollDropDown() {
+        mFirstRow = (mFirstRow + 1) % (mAdapter.getCount() - VISIBLE_ROWS);
+        View last = null;
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            last = mAdapter.getDropDownView(mFirstRow + i, mRows[i], mParent);
+        }
+        return last;
+    }
+
+    // Rebinds the visible rows to the colors they already show, e.g. on a relayout.
+    @Benchmark
+    public View rebindDropDown() {
+        View last = null;
+        for (int i = 0; i < VISIBLE_ROWS; i++) {
+            last = mAdapter.getDropDownView(mFirstRow + i, mRows[i], mParent);
+        }
+        return last;
+    }
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.ContextWrapper;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of forwarding a drag gesture to Unity: a down, {@link #MOVES_PER_FRAME} moves and an up
+ * per frame. Compares injecting every event, merging the moves with
+ * {@link MotionEventCoalescer}, and writing them to the {@link SharedTouchBuffer}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class InputForwardingBenchmark {
+    // Moves delivered per 60 Hz frame by a 240 Hz touch panel.
+    private static final int MOVES_PER_FRAME = 4;
+
+    private UnityPlayer mUnityPlayer;
+    private MotionEventCoalescer mCoalescer;
+    private SharedTouchBuffer mTouchBuffer;
+    private InputLatencyStats mLatencyStats;
+    private MotionEvent mDown;
+    private MotionEvent[] mMoves;
+    private MotionEvent mUp;
+    private byte[] mSnapshot;
+
+    @Setup
+    public void setUp() {
+        mUnityPlayer = new UnityPlayer(new ContextWrapper());
+        mCoalescer = new MotionEventCoalescer(
+                mUnityPlayer, MotionEventCoalescer.FLUSH_ON_UNITY_FRAME);
+        mTouchBuffer = new SharedTouchBuffer();
+        mTouchBuffer.setEnabled(true);
+        mLatencyStats = new InputLatencyStats();
+        mSnapshot = new byte[SharedTouchBuffer.SIZE];
+
+        long downTime = SystemClock.uptimeMillis();
+        mDown = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, 10, 10, 0);
+        mMoves = new MotionEvent[MOVES_PER_FRAME];
+        for (int i = 0; i < MOVES_PER_FRAME; i++) {
+            mMoves[i] = MotionEvent.obtain(
+                    downTime, downTime + i + 1, MotionEvent.ACTION_MOVE, 10 + i, 10 + i, 0);
+        }
+        mUp = MotionEvent.obtain(
+                downTime, downTime + MOVES_PER_FRAME + 1, MotionEvent.ACTION_UP, 20, 20, 0);
+    }
+
+    @Benchmark
+    public long injectEveryEvent() {
+        mUnityPlayer.injectEvent(mDown);
+        for (MotionEvent move : mMoves) {
+            mUnityPlayer.injectEvent(move);
+        }
+        mUnityPlayer.injectEvent(mUp);
+        return mUnityPlayer.getInjectedEventCount();
+    }
+
+    @Benchmark
+    public long coalesceMoves() {
+        mCoalescer.offer(mDown);
+        for (MotionEvent move : mMoves) {
+            mCoalescer.offer(move);
+        }
+        mCoalescer.flush();
+        mCoalescer.offer(mUp);
+        return mUnityPlayer.getInjectedEventCount();
+    }
+
+    @Benchmark
+    public byte[] sharedTouchBuffer() {
+        mTouchBuffer.write(mDown);
+        for (MotionEvent move : mMoves) {
+            mTouchBuffer.write(move);
+        }
+        mTouchBuffer.write(mUp);
+        // Unity's side: one copy of the whole buffer per frame.
+        mTouchBuffer.copyTo(mSnapshot);
+        return mSnapshot;
+    }
+
+    @Benchmark
+    public void recordLatency() {
+        long start = System.nanoTime();
+        mLatencyStats.recordDelivery(InputLatencyStats.TOUCH_DELIVERY, mDown.getEventTime());
+        mLatencyStats.recordInjection(start);
+    }
+}
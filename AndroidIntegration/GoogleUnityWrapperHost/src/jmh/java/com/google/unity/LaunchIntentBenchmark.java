@@ -0,0 +1,95 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning launchIntent arguments into Intent extras: the "key:value" string form and
+ * the typed binary form, and encoding activity result extras for Unity.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LaunchIntentBenchmark {
+    @Param({"1", "8", "32"})
+    public int mExtraCount;
+
+    private String[] mKeyValueArgs;
+    private String[] mKeys;
+    private Bundle mExtras;
+    private byte[] mEncodedExtras;
+
+    @Setup
+    public void setUp() {
+        mKeyValueArgs = new String[mExtraCount];
+        mKeys = new String[mExtraCount];
+        mExtras = new Bundle();
+        for (int i = 0; i < mExtraCount; i++) {
+            mKeys[i] = "extra" + i;
+            mKeyValueArgs[i] = mKeys[i] + ":value:" + i;
+            switch (i % 3) {
+                case 0:
+                    mExtras.putString(mKeys[i], "value:" + i);
+                    break;
+                case 1:
+                    mExtras.putInt(mKeys[i], i);
+                    break;
+                default:
+                    mExtras.putObject(mKeys[i], new float[] {i, i, i});
+                    break;
+            }
+        }
+        mEncodedExtras = IntentExtras.encodeExtras(mExtras, mKeys);
+    }
+
+    @Benchmark
+    public Intent keyValueExtras() {
+        Intent intent = new Intent();
+        IntentExtras.putKeyValueExtras(intent, mKeyValueArgs);
+        return intent;
+    }
+
+    @Benchmark
+    public Intent encodedExtras() {
+        Intent intent = new Intent();
+        IntentExtras.putEncodedExtras(intent, mEncodedExtras);
+        return intent;
+    }
+
+    @Benchmark
+    public byte[] encodeResultExtras() {
+        return IntentExtras.encodeExtras(mExtras, mKeys);
+    }
+}
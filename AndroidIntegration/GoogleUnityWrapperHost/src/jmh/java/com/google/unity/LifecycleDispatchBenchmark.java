@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.Intent;
+
+import com.google.unity.GoogleUnityActivity.AndroidLifecycleListener;
+import com.google.unity.GoogleUnityActivity.ExtendedAndroidLifecycleListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fanning lifecycle callbacks out to the attached listeners, and of queueing them for
+ * Unity to drain. Per-listener cost should stay flat from 1 to 32 listeners.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LifecycleDispatchBenchmark {
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int mListenerCount;
+
+    private LifecycleListenerRegistry mRegistry;
+    private LifecycleEventQueue mQueue;
+
+    // Counts calls so that the JIT cannot drop them.
+    private static class CountingListener implements ExtendedAndroidLifecycleListener {
+        long mCalls;
+
+        @Override
+        public void onPause() {
+            mCalls++;
+        }
+
+        @Override
+        public void onResume() {
+            mCalls++;
+        }
+
+        @Override
+        public void onActivityResult(int requestCode, int resultCode, Intent data) {
+            mCalls++;
+        }
+
+        @Override
+        public void onRequestPermissionsResult(
+            int requestCode, String[] permissions, int[] grantResults) {
+            mCalls++;
+        }
+
+        @Override
+        public void onDisplayChanged() {
+            mCalls++;
+        }
+
+        @Override
+        public void onStart() {
+            mCalls++;
+        }
+
+        @Override
+        public void onStop() {
+            mCalls++;
+        }
+
+        @Override
+        public void onPerformanceTierChanged(int tier) {
+            mCalls++;
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            mCalls++;
+        }
+
+        @Override
+        public void onLowMemory() {
+            mCalls++;
+        }
+    }
+
+    // Only implements the original interface, so the extended callbacks skip it.
+    private static class PlainListener implements AndroidLifecycleListener {
+        long mCalls;
+
+        @Override
+        public void onPause() {
+            mCalls++;
+        }
+
+        @Override
+        public void onResume() {
+            mCalls++;
+        }
+
+        @Override
+        public void onActivityResult(int requestCode, int resultCode, Intent data) {
+            mCalls++;
+        }
+
+        @Override
+        public void onRequestPermissionsResult(
+            int requestCode, String[] permissions, int[] grantResults) {
+            mCalls++;
+        }
+
+        @Override
+        public void onDisplayChanged() {
+            mCalls++;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        mRegistry = new LifecycleListenerRegistry();
+        for (int i = 0; i < mListenerCount; i++) {
+            AndroidLifecycleListener listener =
+                    i % 2 == 0 ? new CountingListener() : new PlainListener();
+            mRegistry.add(listener, i % 3);
+        }
+        mQueue = new LifecycleEventQueue(64);
+    }
+
+    @Benchmark
+    public void pauseResume() {
+        mRegistry.dispatchPause();
+        mRegistry.dispatchResume();
+    }
+
+    @Benchmark
+    public void activityResult() {
+        mRegistry.dispatchActivityResult(1, -1, null);
+    }
+
+    @Benchmark
+    public void trimMemory() {
+        mRegistry.dispatchTrimMemory(15);
+    }
+
+    @Benchmark
+    public long[] queuePauseResume() {
+        mQueue.push(LifecycleEventQueue.TYPE_PAUSE, 0, 0);
+        mQueue.push(LifecycleEventQueue.TYPE_RESUME, 0, 0);
+        return mQueue.poll();
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.ContextWrapper;
+import android.content.pm.PackageManager;
+import android.support.v4.content.ContextCompat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of answering Unity's permission checks through {@link PermissionCache} compared to asking
+ * the framework every time. The stub context burns a fixed amount of CPU per check in place of
+ * the binder call to the package manager, so the numbers compare call counts, not device cost.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PermissionCheckBenchmark {
+    private static final String[] PERMISSIONS = {
+        "android.permission.CAMERA",
+        "android.permission.RECORD_AUDIO",
+        "android.permission.ACCESS_FINE_LOCATION",
+        "android.permission.READ_EXTERNAL_STORAGE",
+    };
+
+    @Param({"0", "500"})
+    public int mCheckCostTokens;
+
+    private ContextWrapper mContext;
+    private PermissionCache mCache;
+
+    @Setup
+    public void setUp() {
+        final long tokens = mCheckCostTokens;
+        mContext = new ContextWrapper() {
+            @Override
+            public int checkSelfPermission(String permission) {
+                Blackhole.consumeCPU(tokens);
+                return PackageManager.PERMISSION_GRANTED;
+            }
+        };
+        mCache = new PermissionCache(mContext);
+    }
+
+    @Benchmark
+    public int uncached() {
+        int mask = 0;
+        for (int i = 0; i < PERMISSIONS.length; i++) {
+            if (ContextCompat.checkSelfPermission(mContext, PERMISSIONS[i])
+                    == PackageManager.PERMISSION_GRANTED) {
+                mask |= 1 << i;
+            }
+        }
+        return mask;
+    }
+
+    @Benchmark
+    public int cachedMask() {
+        return mCache.getGrantedMask(PERMISSIONS);
+    }
+
+    // The cache is cleared on every resume, so the first check after it pays the full cost.
+    @Benchmark
+    public int cachedAfterResume() {
+        mCache.invalidate();
+        return mCache.getGrantedMask(PERMISSIONS);
+    }
+}
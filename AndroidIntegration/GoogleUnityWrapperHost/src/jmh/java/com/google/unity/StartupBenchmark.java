@@ -0,0 +1,174 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.content.ContextWrapper;
+
+import com.unity3d.player.UnityPlayer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time from the start of onCreate to a UnityPlayer in place, with the main stages of
+ * {@link GoogleUnityActivity#onCreate} run one after another, and with the independent ones on
+ * background threads as {@link StartupSequence} does. Each invocation is a single cold start.
+ *
+ * The stub UnityPlayer does no work, so the other stages burn a fixed amount of CPU instead.
+ * Opening the journal is real file I/O.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 10)
+@Measurement(iterations = 50)
+@Fork(1)
+public class StartupBenchmark {
+    private static final long WINDOW_TOKENS = 20000;
+    private static final long CONTENT_VIEW_TOKENS = 100000;
+    private static final long UNITY_PLAYER_TOKENS = 400000;
+    private static final long NATIVE_LIBRARIES_TOKENS = 300000;
+    private static final long DISPLAY_TRACKER_TOKENS = 20000;
+    private static final long APP_METADATA_TOKENS = 20000;
+    private static final int JOURNAL_CAPACITY = 256;
+
+    private File mDirectory;
+    private ContextWrapper mContext;
+    private int mRun;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("startup").toFile();
+        mContext = new ContextWrapper();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        mDirectory.delete();
+    }
+
+    @Benchmark
+    public UnityPlayer serial() {
+        StartupSequence startup = new StartupSequence(new TraceRecorder(64));
+        runStage(startup, "preloadNativeLibraries", preloadNativeLibraries());
+        runStage(startup, "displayTracker", displayTracker());
+        runStage(startup, "openJournal", openJournal());
+        runStage(startup, "appMetadata", appMetadata());
+        return createPlayer(startup);
+    }
+
+    @Benchmark
+    public UnityPlayer staged() {
+        StartupSequence startup = new StartupSequence(new TraceRecorder(64));
+        startup.startInBackground("preloadNativeLibraries", preloadNativeLibraries());
+        startup.startInBackground("displayTracker", displayTracker());
+        startup.startInBackground("openJournal", openJournal());
+        startup.startInBackground("appMetadata", appMetadata());
+        UnityPlayer player = createPlayer(startup);
+        startup.joinBackgroundStages();
+        return player;
+    }
+
+    private UnityPlayer createPlayer(StartupSequence startup) {
+        long start = startup.beginStage("window");
+        Blackhole.consumeCPU(WINDOW_TOKENS);
+        startup.endStage("window", start);
+
+        start = startup.beginStage("setContentView");
+        Blackhole.consumeCPU(CONTENT_VIEW_TOKENS);
+        startup.endStage("setContentView", start);
+
+        start = startup.beginStage("new UnityPlayer");
+        UnityPlayer player = new UnityPlayer(mContext);
+        Blackhole.consumeCPU(UNITY_PLAYER_TOKENS);
+        startup.endStage("new UnityPlayer", start);
+        return player;
+    }
+
+    private static void runStage(StartupSequence startup, String name, Runnable stage) {
+        long start = startup.beginStage(name);
+        stage.run();
+        startup.endStage(name, start);
+    }
+
+    private static Runnable preloadNativeLibraries() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Blackhole.consumeCPU(NATIVE_LIBRARIES_TOKENS);
+            }
+        };
+    }
+
+    private static Runnable displayTracker() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Blackhole.consumeCPU(DISPLAY_TRACKER_TOKENS);
+            }
+        };
+    }
+
+    private static Runnable appMetadata() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                Blackhole.consumeCPU(APP_METADATA_TOKENS);
+            }
+        };
+    }
+
+    // A new file per run, so every start initializes a fresh journal as a first launch would.
+    private Runnable openJournal() {
+        final File file = new File(mDirectory, "journal" + (mRun++) + ".bin");
+        return new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    PerformanceJournal journal =
+                            PerformanceJournal.open(file, null, JOURNAL_CAPACITY, 1);
+                    journal.record(PerformanceJournal.TYPE_LIFECYCLE,
+                            PerformanceJournal.LIFECYCLE_CREATE, 0);
+                    journal.close();
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.Charset;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+/**
+ * Desktop tool that prints a {@link PerformanceJournal} file as text or JSON, oldest record
+ * first. It is built against the wrapper's own PerformanceJournal source:
+ *
+ * <pre>
+ *   adb pull /data/data/&lt;package&gt;/files/google_unity_journal.prev.bin
+ *   gradle run --args="--json $PWD/google_unity_journal.prev.bin"
+ * </pre>
+ */
+public final class PerformanceJournalDecoder {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final double NANOS_PER_MILLI = 1000000.0;
+
+    private PerformanceJournalDecoder() {}
+
+    public static void main(String[] args) throws IOException {
+        boolean json = false;
+        String path = null;
+        for (String arg : args) {
+            if (arg.equals("--json")) {
+                json = true;
+            } else {
+                path = arg;
+            }
+        }
+        if (path == null) {
+            System.err.println("Usage: PerformanceJournalDecoder [--json] <journal file>");
+            System.exit(2);
+        }
+        decode(readFile(new File(path)), json, System.out);
+    }
+
+    /**
+     * Writes every intact record in |journal| to |out|.
+     *
+     * @throws IOException if |journal| is not a journal this decoder understands.
+     */
+    public static void decode(byte[] journal, boolean json, PrintStream out) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(journal).order(ByteOrder.LITTLE_ENDIAN);
+        if (journal.length < PerformanceJournal.HEADER_SIZE
+                || buffer.getInt(PerformanceJournal.HEADER_OFFSET_MAGIC)
+                        != PerformanceJournal.MAGIC) {
+            throw new IOException("Not a performance journal");
+        }
+        int version = buffer.getInt(PerformanceJournal.HEADER_OFFSET_VERSION);
+        if (version != PerformanceJournal.VERSION) {
+            throw new IOException("Unsupported journal version " + version);
+        }
+
+        int recordSize = buffer.getInt(PerformanceJournal.HEADER_OFFSET_RECORD_SIZE);
+        int capacity = buffer.getInt(PerformanceJournal.HEADER_OFFSET_CAPACITY);
+        long recordCount = buffer.getLong(PerformanceJournal.HEADER_OFFSET_RECORD_COUNT);
+        long wallClockMs = buffer.getLong(PerformanceJournal.HEADER_OFFSET_WALL_CLOCK_MS);
+        long nanoTime = buffer.getLong(PerformanceJournal.HEADER_OFFSET_NANO_TIME);
+        int pid = buffer.getInt(PerformanceJournal.HEADER_OFFSET_PID);
+        if (journal.length < PerformanceJournal.HEADER_SIZE + (long) capacity * recordSize) {
+            throw new IOException("Truncated journal");
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        if (json) {
+            out.println("{\"pid\":" + pid + ",\"opened\":\""
+                    + dateFormat.format(new Date(wallClockMs)) + "\",\"records\":[");
+        } else {
+            out.println("pid " + pid + ", opened " + dateFormat.format(new Date(wallClockMs))
+                    + ", " + recordCount + " records written");
+        }
+
+        long first = Math.max(0, recordCount - capacity);
+        boolean firstOutput = true;
+        for (long n = first; n < recordCount; n++) {
+            int offset = PerformanceJournal.HEADER_SIZE + (int) (n % capacity) * recordSize;
+            if (buffer.getInt(offset + PerformanceJournal.RECORD_OFFSET_SEQUENCE) != (int) (n + 1)) {
+                // Torn or overwritten while the process died.
+                continue;
+            }
+            long time = buffer.getLong(offset + PerformanceJournal.RECORD_OFFSET_TIME);
+            long arg0 = buffer.getLong(offset + PerformanceJournal.RECORD_OFFSET_ARG0);
+            long arg1 = buffer.getLong(offset + PerformanceJournal.RECORD_OFFSET_ARG1);
+            short type = buffer.getShort(offset + PerformanceJournal.RECORD_OFFSET_TYPE);
+            int textLength = Math.min(
+                    buffer.getShort(offset + PerformanceJournal.RECORD_OFFSET_TEXT_LENGTH),
+                    PerformanceJournal.MAX_TEXT_BYTES);
+            String text = new String(journal, offset + PerformanceJournal.RECORD_OFFSET_TEXT,
+                    Math.max(0, textLength), UTF_8);
+
+            String timestamp = dateFormat.format(
+                    new Date(wallClockMs + (long) ((time - nanoTime) / NANOS_PER_MILLI)));
+            String description = describe(type, arg0, arg1, text);
+            if (json) {
+                out.print(firstOutput ? "" : ",\n");
+                out.print("{\"seq\":" + (n + 1) + ",\"time\":\"" + timestamp
+                        + "\",\"type\":\"" + typeName(type) + "\",\"arg0\":" + arg0
+                        + ",\"arg1\":" + arg1 + ",\"text\":\"" + escapeJson(text)
+                        + "\",\"description\":\"" + escapeJson(description) + "\"}");
+            } else {
+                out.println(timestamp + "  " + description);
+            }
+            firstOutput = false;
+        }
+        if (json) {
+            out.println("\n]}");
+        }
+    }
+
+    private static String typeName(short type) {
+        switch (type) {
+            case PerformanceJournal.TYPE_LIFECYCLE:
+                return "lifecycle";
+            case PerformanceJournal.TYPE_DISPLAY:
+                return "display";
+            case PerformanceJournal.TYPE_FOCUS:
+                return "focus";
+            case PerformanceJournal.TYPE_LOG:
+                return "log";
+            case PerformanceJournal.TYPE_TIMING:
+                return "timing";
+            case PerformanceJournal.TYPE_MEMORY:
+                return "memory";
+            default:
+                return "type" + type;
+        }
+    }
+
+    private static String describe(short type, long arg0, long arg1, String text) {
+        switch (type) {
+            case PerformanceJournal.TYPE_LIFECYCLE:
+                return "lifecycle " + lifecycleName(arg0);
+            case PerformanceJournal.TYPE_DISPLAY:
+                return "display rotation " + arg0 + ", " + (arg1 >>> 32) + "x"
+                        + (arg1 & 0xffffffffL);
+            case PerformanceJournal.TYPE_FOCUS:
+                return arg0 != 0 ? "focus gained" : "focus lost";
+            case PerformanceJournal.TYPE_LOG:
+                return "log[" + arg0 + "] " + text;
+            case PerformanceJournal.TYPE_TIMING:
+                return "timing " + text + " "
+                        + String.format(Locale.US, "%.3f ms", arg0 / NANOS_PER_MILLI);
+            case PerformanceJournal.TYPE_MEMORY:
+                return arg0 < 0 ? "memory low" : "memory trim level " + arg0;
+            default:
+                return typeName(type) + " " + arg0 + " " + arg1 + " " + text;
+        }
+    }
+
+    private static String lifecycleName(long event) {
+        if (event == PerformanceJournal.LIFECYCLE_CREATE) {
+            return "create";
+        } else if (event == PerformanceJournal.LIFECYCLE_START) {
+            return "start";
+        } else if (event == PerformanceJournal.LIFECYCLE_RESUME) {
+            return "resume";
+        } else if (event == PerformanceJournal.LIFECYCLE_PAUSE) {
+            return "pause";
+        } else if (event == PerformanceJournal.LIFECYCLE_STOP) {
+            return "stop";
+        } else if (event == PerformanceJournal.LIFECYCLE_DESTROY) {
+            return "destroy";
+        }
+        return Long.toString(event);
+    }
+
+    private static String escapeJson(String value) {
+        StringBuilder escaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                escaped.append('\\').append(c);
+            } else if (c < 0x20) {
+                escaped.append(String.format(Locale.US, "\\u%04x", (int) c));
+            } else {
+                escaped.append(c);
+            }
+        }
+        return escaped.toString();
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+}
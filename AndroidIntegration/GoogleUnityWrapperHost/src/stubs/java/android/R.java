@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android;
+
+public final class R {
+    public static final class style {
+        public static final int Theme_NoTitleBar_Fullscreen = 0x01030007;
+    }
+
+    public static final class id {
+        public static final int content = 0x01020002;
+        public static final int text1 = 0x01020014;
+    }
+
+    public static final class layout {
+        public static final int simple_spinner_item = 0x01090008;
+        public static final int simple_spinner_dropdown_item = 0x01090009;
+    }
+}
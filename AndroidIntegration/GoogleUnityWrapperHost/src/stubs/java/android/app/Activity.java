@@ -0,0 +1,109 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.app;
+
+import android.content.*;
+import android.content.res.*;
+import android.os.*;
+import android.view.*;
+
+public class Activity extends ContextWrapper {
+    protected void onCreate(Bundle b) {}
+
+    protected void onDestroy() {}
+
+    protected void onPause() {}
+
+    protected void onResume() {}
+
+    protected void onStart() {}
+
+    protected void onStop() {}
+
+    protected void onRestart() {}
+
+    public void onActivityResult(int a, int b, Intent c) {}
+
+    public void onConfigurationChanged(Configuration c) {}
+
+    public void onWindowFocusChanged(boolean b) {}
+
+    public boolean dispatchKeyEvent(KeyEvent e) {
+        return false;
+    }
+
+    public boolean onKeyUp(int k, KeyEvent e) {
+        return false;
+    }
+
+    public boolean onKeyDown(int k, KeyEvent e) {
+        return false;
+    }
+
+    public boolean onTouchEvent(MotionEvent e) {
+        return false;
+    }
+
+    public boolean onGenericMotionEvent(MotionEvent e) {
+        return false;
+    }
+
+    public boolean requestWindowFeature(int f) {
+        return true;
+    }
+
+    public void setContentView(int id) {}
+
+    public Window getWindow() {
+        return null;
+    }
+
+    public void setTheme(int t) {}
+
+    public View findViewById(int id) {
+        return null;
+    }
+
+    public void runOnUiThread(Runnable r) {}
+
+    public void startActivityForResult(Intent i, int r) {}
+
+    public void startActivity(Intent i) {}
+
+    public void onTrimMemory(int level) {}
+
+    public void onLowMemory() {}
+
+    public WindowManager getWindowManager() {
+        return null;
+    }
+
+    public boolean isFinishing() {
+        return false;
+    }
+
+    public boolean isChangingConfigurations() {
+        return false;
+    }
+
+    public boolean hasWindowFocus() {
+        return false;
+    }
+
+    public final void requestPermissions(String[] p, int r) {}
+
+    public void finish() {}
+}
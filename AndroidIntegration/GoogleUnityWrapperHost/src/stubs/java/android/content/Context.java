@@ -0,0 +1,62 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content;
+
+import android.content.pm.*;
+import android.content.res.*;
+import android.os.Looper;
+
+import java.io.File;
+
+public abstract class Context {
+    public static final String DISPLAY_SERVICE = "display";
+    public static final String POWER_SERVICE = "power";
+    public static final String ACTIVITY_SERVICE = "activity";
+    public static final String BATTERY_SERVICE = "batterymanager";
+
+    public abstract String getPackageName();
+
+    public abstract Object getSystemService(String s);
+
+    public abstract PackageManager getPackageManager();
+
+    public abstract Resources getResources();
+
+    public abstract File getFilesDir();
+
+    public abstract File getCacheDir();
+
+    public abstract Context getApplicationContext();
+
+    public abstract Intent registerReceiver(BroadcastReceiver r, IntentFilter f);
+
+    public abstract Intent registerReceiver(
+            BroadcastReceiver r, IntentFilter f, String p, android.os.Handler h);
+
+    public abstract void unregisterReceiver(BroadcastReceiver r);
+
+    public abstract int checkSelfPermission(String p);
+
+    public abstract ApplicationInfo getApplicationInfo();
+
+    public abstract Looper getMainLooper();
+
+    public abstract File getExternalFilesDir(String type);
+
+    public ClassLoader getClassLoader() {
+        return null;
+    }
+}
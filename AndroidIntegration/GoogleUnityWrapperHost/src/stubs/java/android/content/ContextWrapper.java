@@ -0,0 +1,79 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content;
+
+import android.content.pm.*;
+import android.content.res.*;
+import android.os.Looper;
+
+import java.io.File;
+
+public class ContextWrapper extends Context {
+    public String getPackageName() {
+        return null;
+    }
+
+    public Object getSystemService(String s) {
+        return null;
+    }
+
+    public PackageManager getPackageManager() {
+        return null;
+    }
+
+    public Resources getResources() {
+        return null;
+    }
+
+    public File getFilesDir() {
+        return null;
+    }
+
+    public File getCacheDir() {
+        return null;
+    }
+
+    public Context getApplicationContext() {
+        return null;
+    }
+
+    public Intent registerReceiver(BroadcastReceiver r, IntentFilter f) {
+        return null;
+    }
+
+    public Intent registerReceiver(
+            BroadcastReceiver r, IntentFilter f, String p, android.os.Handler h) {
+        return null;
+    }
+
+    public void unregisterReceiver(BroadcastReceiver r) {}
+
+    public int checkSelfPermission(String p) {
+        return 0;
+    }
+
+    public ApplicationInfo getApplicationInfo() {
+        return null;
+    }
+
+    public Looper getMainLooper() {
+        return null;
+    }
+
+    public File getExternalFilesDir(String type) {
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content;
+
+import android.net.Uri;
+import android.os.Bundle;
+
+/** Stand-in for android.content.Intent that keeps its component, action, data and extras. */
+public class Intent {
+    public static final String ACTION_BATTERY_CHANGED = "android.intent.action.BATTERY_CHANGED";
+    public static final String ACTION_LOCALE_CHANGED = "android.intent.action.LOCALE_CHANGED";
+    public static final String ACTION_PACKAGE_ADDED = "android.intent.action.PACKAGE_ADDED";
+    public static final String ACTION_PACKAGE_REMOVED = "android.intent.action.PACKAGE_REMOVED";
+    public static final String ACTION_PACKAGE_CHANGED = "android.intent.action.PACKAGE_CHANGED";
+    public static final String ACTION_PACKAGE_REPLACED = "android.intent.action.PACKAGE_REPLACED";
+    public static final String ACTION_POWER_CONNECTED =
+            "android.intent.action.ACTION_POWER_CONNECTED";
+    public static final String ACTION_POWER_DISCONNECTED =
+            "android.intent.action.ACTION_POWER_DISCONNECTED";
+
+    private String mAction;
+    private ComponentName mComponent;
+    private String mPackage;
+    private Uri mData;
+    private Bundle mExtras;
+
+    public Intent() {}
+
+    public Intent(String action) {
+        mAction = action;
+    }
+
+    public Intent setClassName(String packageName, String className) {
+        mComponent = new ComponentName(packageName, className);
+        return this;
+    }
+
+    public Intent setComponent(ComponentName component) {
+        mComponent = component;
+        return this;
+    }
+
+    public ComponentName getComponent() {
+        return mComponent;
+    }
+
+    public Intent setPackage(String packageName) {
+        mPackage = packageName;
+        return this;
+    }
+
+    public String getPackage() {
+        return mPackage;
+    }
+
+    public String getAction() {
+        return mAction;
+    }
+
+    public Intent setAction(String action) {
+        mAction = action;
+        return this;
+    }
+
+    public Intent setData(Uri data) {
+        mData = data;
+        return this;
+    }
+
+    public Uri getData() {
+        return mData;
+    }
+
+    /** Returns a copy of the extras, or null if there are none, like the real class. */
+    public Bundle getExtras() {
+        return mExtras != null ? new Bundle(mExtras) : null;
+    }
+
+    public boolean hasExtra(String key) {
+        return mExtras != null && mExtras.containsKey(key);
+    }
+
+    public String getStringExtra(String key) {
+        return mExtras != null ? mExtras.getString(key) : null;
+    }
+
+    public int getIntExtra(String key, int defaultValue) {
+        Object value = mExtras != null ? mExtras.get(key) : null;
+        return value instanceof Integer ? (Integer) value : defaultValue;
+    }
+
+    public boolean getBooleanExtra(String key, boolean defaultValue) {
+        Object value = mExtras != null ? mExtras.get(key) : null;
+        return value instanceof Boolean ? (Boolean) value : defaultValue;
+    }
+
+    public Intent putExtra(String key, String value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, int value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, long value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, float value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, double value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, boolean value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, byte[] value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, int[] value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, long[] value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, float[] value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, double[] value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, boolean[] value) {
+        return put(key, value);
+    }
+
+    public Intent putExtra(String key, String[] value) {
+        return put(key, value);
+    }
+
+    public ComponentName resolveActivity(android.content.pm.PackageManager packageManager) {
+        return mComponent;
+    }
+
+    private Intent put(String key, Object value) {
+        if (mExtras == null) {
+            mExtras = new Bundle();
+        }
+        mExtras.putObject(key, value);
+        return this;
+    }
+}
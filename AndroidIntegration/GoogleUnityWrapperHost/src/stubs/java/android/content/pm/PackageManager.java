@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.content.pm;
+
+import android.content.*;
+
+public abstract class PackageManager {
+    public static final int PERMISSION_GRANTED = 0;
+    public static final int PERMISSION_DENIED = -1;
+    public static final int MATCH_DEFAULT_ONLY = 0x10000;
+
+    public static class NameNotFoundException extends Exception {}
+
+    public abstract PackageInfo getPackageInfo(String p, int f) throws NameNotFoundException;
+
+    public abstract CharSequence getApplicationLabel(ApplicationInfo i);
+
+    public abstract ResolveInfo resolveActivity(Intent i, int f);
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.graphics;
+
+public class Color {
+    public static final int BLACK = 0xff000000;
+    public static final int WHITE = 0xffffffff;
+    public static final int TRANSPARENT = 0;
+
+    public static int red(int color) {
+        return (color >> 16) & 0xff;
+    }
+
+    public static int green(int color) {
+        return (color >> 8) & 0xff;
+    }
+
+    public static int blue(int color) {
+        return color & 0xff;
+    }
+
+    public static int alpha(int color) {
+        return color >>> 24;
+    }
+
+    public static int rgb(int red, int green, int blue) {
+        return argb(0xff, red, green, blue);
+    }
+
+    public static int argb(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    /** Parses "#rrggbb" and "#aarrggbb"; color names are not supported. */
+    public static int parseColor(String colorString) {
+        if (colorString.length() < 1 || colorString.charAt(0) != '#') {
+            throw new IllegalArgumentException("Unknown color");
+        }
+        long color = Long.parseLong(colorString.substring(1), 16);
+        if (colorString.length() == 7) {
+            color |= 0xff000000L;
+        } else if (colorString.length() != 9) {
+            throw new IllegalArgumentException("Unknown color");
+        }
+        return (int) color;
+    }
+
+    public static int HSVToColor(float[] hsv) {
+        return HSVToColor(0xff, hsv);
+    }
+
+    /** Same conversion as Skia's SkHSVToColor, which the real method calls. */
+    public static int HSVToColor(int alpha, float[] hsv) {
+        float saturation = clamp(hsv[1]);
+        float value = clamp(hsv[2]);
+        int v = Math.round(value * 255);
+        if (saturation <= 0) {
+            return argb(alpha, v, v, v);
+        }
+        float hue = hsv[0] < 0 || hsv[0] >= 360 ? 0 : hsv[0] / 60;
+        int sector = (int) hue;
+        float fraction = hue - sector;
+        int p = Math.round((1 - saturation) * value * 255);
+        int q = Math.round((1 - saturation * fraction) * value * 255);
+        int t = Math.round((1 - saturation * (1 - fraction)) * value * 255);
+        switch (sector) {
+            case 0:
+                return argb(alpha, v, t, p);
+            case 1:
+                return argb(alpha, q, v, p);
+            case 2:
+                return argb(alpha, p, v, t);
+            case 3:
+                return argb(alpha, p, q, v);
+            case 4:
+                return argb(alpha, t, p, v);
+            default:
+                return argb(alpha, v, p, q);
+        }
+    }
+
+    public static void colorToHSV(int color, float[] hsv) {
+        float r = red(color) / 255f;
+        float g = green(color) / 255f;
+        float b = blue(color) / 255f;
+        float max = Math.max(r, Math.max(g, b));
+        float min = Math.min(r, Math.min(g, b));
+        float delta = max - min;
+        float hue = 0;
+        if (delta > 0) {
+            if (max == r) {
+                hue = 60 * (((g - b) / delta) % 6);
+            } else if (max == g) {
+                hue = 60 * ((b - r) / delta + 2);
+            } else {
+                hue = 60 * ((r - g) / delta + 4);
+            }
+        }
+        hsv[0] = hue < 0 ? hue + 360 : hue;
+        hsv[1] = max > 0 ? delta / max : 0;
+        hsv[2] = max;
+    }
+
+    private static float clamp(float value) {
+        return value < 0 ? 0 : value > 1 ? 1 : value;
+    }
+}
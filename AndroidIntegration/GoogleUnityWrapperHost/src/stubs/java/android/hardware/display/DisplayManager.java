@@ -0,0 +1,37 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.hardware.display;
+
+import android.os.Handler;
+import android.view.Display;
+
+public class DisplayManager {
+    public interface DisplayListener {
+        void onDisplayAdded(int id);
+
+        void onDisplayChanged(int id);
+
+        void onDisplayRemoved(int id);
+    }
+
+    public void registerDisplayListener(DisplayListener l, Handler h) {}
+
+    public void unregisterDisplayListener(DisplayListener l) {}
+
+    public Display getDisplay(int id) {
+        return null;
+    }
+}
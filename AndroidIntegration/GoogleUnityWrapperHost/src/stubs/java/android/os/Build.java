@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/** Matches the SDK the wrapper compiles against, API 23. */
+public class Build {
+    public static class VERSION {
+        // Not a compile-time constant, so that code is not folded for one version, as on a
+        // device.
+        public static final int SDK_INT = Integer.getInteger("android.os.Build.SDK_INT", 23);
+    }
+
+    public static class VERSION_CODES {
+        public static final int JELLY_BEAN = 16;
+        public static final int JELLY_BEAN_MR1 = 17;
+        public static final int JELLY_BEAN_MR2 = 18;
+        public static final int KITKAT = 19;
+        public static final int LOLLIPOP = 21;
+        public static final int M = 23;
+    }
+}
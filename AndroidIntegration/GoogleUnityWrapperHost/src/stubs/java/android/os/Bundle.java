@@ -0,0 +1,108 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+import java.util.LinkedHashMap;
+import java.util.Set;
+
+/** Map-backed stand-in for android.os.Bundle. */
+public class Bundle {
+    private final LinkedHashMap<String, Object> mMap = new LinkedHashMap<>();
+
+    public Bundle() {}
+
+    public Bundle(Bundle other) {
+        mMap.putAll(other.mMap);
+    }
+
+    public Object get(String key) {
+        return mMap.get(key);
+    }
+
+    public String getString(String key) {
+        Object value = mMap.get(key);
+        return value instanceof String ? (String) value : null;
+    }
+
+    public boolean containsKey(String key) {
+        return mMap.containsKey(key);
+    }
+
+    public Set<String> keySet() {
+        return mMap.keySet();
+    }
+
+    public int size() {
+        return mMap.size();
+    }
+
+    public boolean isEmpty() {
+        return mMap.isEmpty();
+    }
+
+    public void putAll(Bundle other) {
+        mMap.putAll(other.mMap);
+    }
+
+    /** Stores |value| as is; the typed put methods of the real class all end up here. */
+    public void putObject(String key, Object value) {
+        mMap.put(key, value);
+    }
+
+    public void putString(String key, String value) {
+        mMap.put(key, value);
+    }
+
+    public void putCharSequence(String key, CharSequence value) {
+        mMap.put(key, value);
+    }
+
+    public void putInt(String key, int value) {
+        mMap.put(key, value);
+    }
+
+    public void putLong(String key, long value) {
+        mMap.put(key, value);
+    }
+
+    public void putFloat(String key, float value) {
+        mMap.put(key, value);
+    }
+
+    public void putDouble(String key, double value) {
+        mMap.put(key, value);
+    }
+
+    public void putBoolean(String key, boolean value) {
+        mMap.put(key, value);
+    }
+
+    public void putByte(String key, byte value) {
+        mMap.put(key, value);
+    }
+
+    public void putShort(String key, short value) {
+        mMap.put(key, value);
+    }
+
+    public void putChar(String key, char value) {
+        mMap.put(key, value);
+    }
+
+    public void remove(String key) {
+        mMap.remove(key);
+    }
+}
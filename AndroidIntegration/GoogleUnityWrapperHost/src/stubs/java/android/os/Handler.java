@@ -0,0 +1,65 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/** Posted callbacks and messages are dropped; nothing runs them on the JVM. */
+public class Handler {
+    public Handler() {}
+
+    public Handler(Looper l) {}
+
+    public Handler(Looper l, Callback c) {}
+
+    public interface Callback {
+        boolean handleMessage(Message m);
+    }
+
+    public void handleMessage(Message m) {}
+
+    public final boolean post(Runnable r) {
+        return true;
+    }
+
+    public final boolean postDelayed(Runnable r, long d) {
+        return true;
+    }
+
+    public final boolean postAtFrontOfQueue(Runnable r) {
+        return true;
+    }
+
+    public final void removeCallbacks(Runnable r) {}
+
+    public final boolean sendEmptyMessageDelayed(int w, long d) {
+        return true;
+    }
+
+    public final boolean sendEmptyMessage(int w) {
+        return true;
+    }
+
+    public final boolean hasMessages(int w) {
+        return false;
+    }
+
+    public final void removeMessages(int w) {}
+
+    public final Looper getLooper() {
+        return null;
+    }
+
+    public final void removeCallbacksAndMessages(Object o) {}
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/**
+ * There are no loopers on the JVM. Both methods return null, so every thread looks like the main
+ * thread to code that compares them.
+ */
+public class Looper {
+    public static Looper getMainLooper() {
+        return null;
+    }
+
+    public static Looper myLooper() {
+        return null;
+    }
+
+    public Thread getThread() {
+        return null;
+    }
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.os;
+
+/** Both clocks count from an arbitrary origin, as on a device that never sleeps. */
+public class SystemClock {
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    public static long uptimeMillis() {
+        return System.nanoTime() / NANOS_PER_MILLI;
+    }
+
+    public static long elapsedRealtime() {
+        return System.nanoTime() / NANOS_PER_MILLI;
+    }
+
+    public static long elapsedRealtimeNanos() {
+        return System.nanoTime();
+    }
+}
@@ -0,0 +1,28 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.support.v4.app;
+
+public class ActivityCompat {
+    public interface OnRequestPermissionsResultCallback {
+        void onRequestPermissionsResult(int r, String[] p, int[] g);
+    }
+
+    public static void requestPermissions(android.app.Activity a, String[] p, int r) {}
+
+    public static boolean shouldShowRequestPermissionRationale(android.app.Activity a, String p) {
+        return false;
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.util;
+
+public class Log {
+    public static final int VERBOSE = 2, DEBUG = 3, INFO = 4, WARN = 5, ERROR = 6, ASSERT = 7;
+
+    public static int e(String t, String m) {
+        return 0;
+    }
+
+    public static int e(String t, String m, Throwable x) {
+        return 0;
+    }
+
+    public static int w(String t, String m) {
+        return 0;
+    }
+
+    public static int w(String t, String m, Throwable x) {
+        return 0;
+    }
+
+    public static int i(String t, String m) {
+        return 0;
+    }
+
+    public static int d(String t, String m) {
+        return 0;
+    }
+
+    public static int d(String t, String m, Throwable x) {
+        return 0;
+    }
+
+    public static int v(String t, String m) {
+        return 0;
+    }
+
+    public static int println(int p, String t, String m) {
+        return 0;
+    }
+
+    public static boolean isLoggable(String t, int l) {
+        return true;
+    }
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.util;
+
+public class SparseArray<E> {
+    public SparseArray() {}
+
+    public SparseArray(int c) {}
+
+    public E get(int k) {
+        return null;
+    }
+
+    public void put(int k, E v) {}
+
+    public void remove(int k) {}
+
+    public int size() {
+        return 0;
+    }
+
+    public E valueAt(int i) {
+        return null;
+    }
+
+    public int keyAt(int i) {
+        return 0;
+    }
+
+    public void clear() {}
+
+    public int indexOfKey(int k) {
+        return 0;
+    }
+
+    public void removeAt(int i) {}
+}
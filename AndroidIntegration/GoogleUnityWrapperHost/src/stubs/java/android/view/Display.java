@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+public class Display {
+    public static final int DEFAULT_DISPLAY = 0;
+
+    public int getDisplayId() {
+        return 0;
+    }
+
+    public int getRotation() {
+        return 0;
+    }
+
+    public float getRefreshRate() {
+        return 60f;
+    }
+
+    public void getRealMetrics(android.util.DisplayMetrics m) {}
+
+    public void getMetrics(android.util.DisplayMetrics m) {}
+
+    public void getRealSize(android.graphics.Point p) {}
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+public class KeyEvent extends InputEvent {
+    public static final int ACTION_DOWN = 0, ACTION_UP = 1, ACTION_MULTIPLE = 2;
+
+    public int getAction() {
+        return 0;
+    }
+
+    public long getEventTime() {
+        return 0;
+    }
+
+    public int getDeviceId() {
+        return 0;
+    }
+
+    public int getSource() {
+        return 0;
+    }
+
+    public int getKeyCode() {
+        return 0;
+    }
+}
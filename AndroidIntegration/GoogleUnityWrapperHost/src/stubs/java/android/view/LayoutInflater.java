@@ -0,0 +1,56 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+import android.content.Context;
+import android.widget.FrameLayout;
+import android.widget.TextView;
+
+/**
+ * Inflates the platform spinner item layouts, whose root is a single TextView, and an empty
+ * FrameLayout for every other layout.
+ */
+public abstract class LayoutInflater {
+    private final Context mContext;
+
+    protected LayoutInflater(Context context) {
+        mContext = context;
+    }
+
+    public static LayoutInflater from(Context context) {
+        return new LayoutInflater(context) {};
+    }
+
+    public Context getContext() {
+        return mContext;
+    }
+
+    public View inflate(int resource, ViewGroup root) {
+        return inflate(resource, root, root != null);
+    }
+
+    public View inflate(int resource, ViewGroup root, boolean attachToRoot) {
+        View view = resource == android.R.layout.simple_spinner_item
+                        || resource == android.R.layout.simple_spinner_dropdown_item
+                ? new TextView(mContext)
+                : new FrameLayout(mContext);
+        if (root != null && attachToRoot) {
+            root.addView(view);
+            return root;
+        }
+        return view;
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+/**
+ * Stand-in for android.view.MotionEvent that keeps its pointers and every batched sample, so
+ * that input code can be exercised on a JVM. Only axes X, Y, pressure and size are kept.
+ */
+public final class MotionEvent extends InputEvent {
+    public static final int ACTION_MASK = 0xff;
+    public static final int ACTION_DOWN = 0;
+    public static final int ACTION_UP = 1;
+    public static final int ACTION_MOVE = 2;
+    public static final int ACTION_CANCEL = 3;
+    public static final int ACTION_OUTSIDE = 4;
+    public static final int ACTION_POINTER_DOWN = 5;
+    public static final int ACTION_POINTER_UP = 6;
+    public static final int ACTION_HOVER_MOVE = 7;
+    public static final int ACTION_SCROLL = 8;
+    public static final int ACTION_POINTER_INDEX_MASK = 0xff00;
+    public static final int ACTION_POINTER_INDEX_SHIFT = 8;
+
+    public static final int TOOL_TYPE_FINGER = 1;
+
+    public static final class PointerCoords {
+        public float x;
+        public float y;
+        public float pressure;
+        public float size;
+
+        public void copyFrom(PointerCoords other) {
+            x = other.x;
+            y = other.y;
+            pressure = other.pressure;
+            size = other.size;
+        }
+    }
+
+    public static final class PointerProperties {
+        public int id;
+        public int toolType;
+
+        public void copyFrom(PointerProperties other) {
+            id = other.id;
+            toolType = other.toolType;
+        }
+    }
+
+    private long mDownTime;
+    private int mAction;
+    private int mMetaState;
+    private int mDeviceId;
+    private int mSource;
+    private PointerProperties[] mProperties;
+    // mSampleCount samples, the last one current; sample s of pointer p is at
+    // s * pointer count + p.
+    private long[] mSampleTimes;
+    private PointerCoords[] mSamples;
+    private int mSampleCount;
+
+    private MotionEvent() {}
+
+    public static MotionEvent obtain(long downTime, long eventTime, int action, int pointerCount,
+            PointerProperties[] pointerProperties, PointerCoords[] pointerCoords, int metaState,
+            int buttonState, float xPrecision, float yPrecision, int deviceId, int edgeFlags,
+            int source, int flags) {
+        MotionEvent event = new MotionEvent();
+        event.mDownTime = downTime;
+        event.mAction = action;
+        event.mMetaState = metaState;
+        event.mDeviceId = deviceId;
+        event.mSource = source;
+        event.mProperties = new PointerProperties[pointerCount];
+        for (int i = 0; i < pointerCount; i++) {
+            event.mProperties[i] = new PointerProperties();
+            event.mProperties[i].copyFrom(pointerProperties[i]);
+        }
+        event.mSampleTimes = new long[1];
+        event.mSamples = new PointerCoords[pointerCount];
+        event.appendSample(eventTime, pointerCoords);
+        return event;
+    }
+
+    public static MotionEvent obtain(
+            long downTime, long eventTime, int action, float x, float y, int metaState) {
+        PointerProperties[] properties = {new PointerProperties()};
+        properties[0].toolType = TOOL_TYPE_FINGER;
+        PointerCoords[] coords = {new PointerCoords()};
+        coords[0].x = x;
+        coords[0].y = y;
+        coords[0].pressure = 1;
+        coords[0].size = 1;
+        return obtain(downTime, eventTime, action, 1, properties, coords, metaState, 0, 1, 1, 0,
+                0, 0, 0);
+    }
+
+    public static MotionEvent obtain(MotionEvent other) {
+        MotionEvent event = new MotionEvent();
+        event.mDownTime = other.mDownTime;
+        event.mAction = other.mAction;
+        event.mMetaState = other.mMetaState;
+        event.mDeviceId = other.mDeviceId;
+        event.mSource = other.mSource;
+        event.mProperties = other.mProperties.clone();
+        event.mSampleTimes = other.mSampleTimes.clone();
+        event.mSamples = new PointerCoords[other.mSamples.length];
+        for (int i = 0; i < other.mSampleCount * other.getPointerCount(); i++) {
+            event.mSamples[i] = new PointerCoords();
+            event.mSamples[i].copyFrom(other.mSamples[i]);
+        }
+        event.mSampleCount = other.mSampleCount;
+        return event;
+    }
+
+    public void recycle() {}
+
+    /** Adds a sample, making the current one historical. */
+    public void addBatch(long eventTime, PointerCoords[] pointerCoords, int metaState) {
+        mMetaState |= metaState;
+        appendSample(eventTime, pointerCoords);
+    }
+
+    public int getAction() {
+        return mAction;
+    }
+
+    public int getActionMasked() {
+        return mAction & ACTION_MASK;
+    }
+
+    public int getActionIndex() {
+        return (mAction & ACTION_POINTER_INDEX_MASK) >> ACTION_POINTER_INDEX_SHIFT;
+    }
+
+    public long getDownTime() {
+        return mDownTime;
+    }
+
+    @Override
+    public long getEventTime() {
+        return mSampleTimes[mSampleCount - 1];
+    }
+
+    @Override
+    public int getDeviceId() {
+        return mDeviceId;
+    }
+
+    @Override
+    public int getSource() {
+        return mSource;
+    }
+
+    public int getMetaState() {
+        return mMetaState;
+    }
+
+    public int getPointerCount() {
+        return mProperties.length;
+    }
+
+    public int getPointerId(int pointerIndex) {
+        return mProperties[pointerIndex].id;
+    }
+
+    public void getPointerProperties(int pointerIndex, PointerProperties outPointerProperties) {
+        outPointerProperties.copyFrom(mProperties[pointerIndex]);
+    }
+
+    public float getX(int pointerIndex) {
+        return current(pointerIndex).x;
+    }
+
+    public float getY(int pointerIndex) {
+        return current(pointerIndex).y;
+    }
+
+    public float getPressure(int pointerIndex) {
+        return current(pointerIndex).pressure;
+    }
+
+    public float getSize(int pointerIndex) {
+        return current(pointerIndex).size;
+    }
+
+    public void getPointerCoords(int pointerIndex, PointerCoords outPointerCoords) {
+        outPointerCoords.copyFrom(current(pointerIndex));
+    }
+
+    public int getHistorySize() {
+        return mSampleCount - 1;
+    }
+
+    public long getHistoricalEventTime(int pos) {
+        return mSampleTimes[pos];
+    }
+
+    public void getHistoricalPointerCoords(
+            int pointerIndex, int pos, PointerCoords outPointerCoords) {
+        outPointerCoords.copyFrom(mSamples[pos * getPointerCount() + pointerIndex]);
+    }
+
+    private PointerCoords current(int pointerIndex) {
+        return mSamples[(mSampleCount - 1) * getPointerCount() + pointerIndex];
+    }
+
+    private void appendSample(long eventTime, PointerCoords[] pointerCoords) {
+        int pointerCount = getPointerCount();
+        if (mSampleCount == mSampleTimes.length) {
+            long[] times = new long[mSampleCount * 2];
+            System.arraycopy(mSampleTimes, 0, times, 0, mSampleCount);
+            mSampleTimes = times;
+            PointerCoords[] samples = new PointerCoords[mSampleCount * 2 * pointerCount];
+            System.arraycopy(mSamples, 0, samples, 0, mSampleCount * pointerCount);
+            mSamples = samples;
+        }
+        mSampleTimes[mSampleCount] = eventTime;
+        for (int i = 0; i < pointerCount; i++) {
+            PointerCoords coords = new PointerCoords();
+            coords.copyFrom(pointerCoords[i]);
+            mSamples[mSampleCount * pointerCount + i] = coords;
+        }
+        mSampleCount++;
+    }
+}
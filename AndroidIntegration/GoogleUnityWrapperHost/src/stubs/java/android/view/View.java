@@ -0,0 +1,129 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+import android.content.Context;
+
+/** Keeps the state the wrapper reads back; drawing, layout and transforms are no-ops. */
+public class View {
+    public static final int VISIBLE = 0;
+    public static final int INVISIBLE = 4;
+    public static final int GONE = 8;
+
+    public interface OnLayoutChangeListener {
+        void onLayoutChange(View v, int left, int top, int right, int bottom, int oldLeft,
+                int oldTop, int oldRight, int oldBottom);
+    }
+
+    private final Context mContext;
+    private Object mTag;
+    private int mBackgroundColor;
+    private int mVisibility = VISIBLE;
+    private ViewGroup.LayoutParams mLayoutParams;
+
+    public View(Context context) {
+        mContext = context;
+    }
+
+    public Context getContext() {
+        return mContext;
+    }
+
+    public void setTag(Object tag) {
+        mTag = tag;
+    }
+
+    public Object getTag() {
+        return mTag;
+    }
+
+    public void setBackgroundColor(int color) {
+        mBackgroundColor = color;
+    }
+
+    /** Not in the real class; lets tests see what was set. */
+    public int getBackgroundColor() {
+        return mBackgroundColor;
+    }
+
+    public void setVisibility(int visibility) {
+        mVisibility = visibility;
+    }
+
+    public int getVisibility() {
+        return mVisibility;
+    }
+
+    public void setLayoutParams(ViewGroup.LayoutParams params) {
+        mLayoutParams = params;
+    }
+
+    public ViewGroup.LayoutParams getLayoutParams() {
+        return mLayoutParams;
+    }
+
+    public int getWidth() {
+        return 0;
+    }
+
+    public int getHeight() {
+        return 0;
+    }
+
+    public int getId() {
+        return 0;
+    }
+
+    public View findViewById(int id) {
+        return null;
+    }
+
+    public ViewParent getParent() {
+        return null;
+    }
+
+    public void addOnLayoutChangeListener(OnLayoutChangeListener listener) {}
+
+    public void removeOnLayoutChangeListener(OnLayoutChangeListener listener) {}
+
+    public void setAlpha(float alpha) {}
+
+    public void setEnabled(boolean enabled) {}
+
+    public void setSelected(boolean selected) {}
+
+    public void setTranslationX(float x) {}
+
+    public void setTranslationY(float y) {}
+
+    public void setScaleX(float x) {}
+
+    public void setScaleY(float y) {}
+
+    public void setRotation(float rotation) {}
+
+    public void setPivotX(float x) {}
+
+    public void setPivotY(float y) {}
+
+    public boolean post(Runnable action) {
+        return true;
+    }
+
+    public boolean requestFocus() {
+        return true;
+    }
+}
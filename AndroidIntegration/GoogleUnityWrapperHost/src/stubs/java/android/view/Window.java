@@ -0,0 +1,32 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.view;
+
+public abstract class Window {
+    public static final int FEATURE_NO_TITLE = 1;
+
+    public abstract void takeSurface(Object c);
+
+    public abstract void setFormat(int f);
+
+    public abstract void setFlags(int f, int m);
+
+    public abstract View getDecorView();
+
+    public abstract WindowManager.LayoutParams getAttributes();
+
+    public abstract void setAttributes(WindowManager.LayoutParams p);
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.widget;
+
+import android.view.*;
+
+public abstract class BaseAdapter implements SpinnerAdapter, ListAdapter {
+    public abstract int getCount();
+
+    public abstract Object getItem(int p);
+
+    public abstract long getItemId(int p);
+
+    public abstract View getView(int p, View v, ViewGroup g);
+
+    public View getDropDownView(int p, View v, ViewGroup g) {
+        return null;
+    }
+
+    public void notifyDataSetChanged() {}
+
+    public boolean hasStableIds() {
+        return false;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package android.widget;
+
+import android.content.Context;
+import android.view.View;
+
+public class TextView extends View {
+    private CharSequence mText = "";
+
+    public TextView(Context context) {
+        super(context);
+    }
+
+    public void setText(CharSequence text) {
+        mText = text != null ? text : "";
+    }
+
+    public void setText(char[] text, int start, int length) {
+        mText = new String(text, start, length);
+    }
+
+    public CharSequence getText() {
+        return mText;
+    }
+
+    public void setTextColor(int color) {}
+}
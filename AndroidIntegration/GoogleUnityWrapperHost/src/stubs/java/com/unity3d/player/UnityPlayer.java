@@ -0,0 +1,83 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.unity3d.player;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.view.InputEvent;
+import android.view.View;
+import android.widget.FrameLayout;
+
+/**
+ * Stand-in for Unity's player view. It does not run a player: every event is accepted and
+ * counted, and UnitySendMessage only counts messages.
+ */
+public class UnityPlayer extends FrameLayout {
+    public static Activity currentActivity;
+
+    private static long sMessageCount;
+
+    private final Settings mSettings = new Settings();
+    private long mInjectedEventCount;
+
+    public UnityPlayer(Context context) {
+        super(context);
+    }
+
+    public static void UnitySendMessage(String gameObject, String method, String message) {
+        sMessageCount++;
+    }
+
+    /** Not in the real class. */
+    public static long getMessageCount() {
+        return sMessageCount;
+    }
+
+    public View getView() {
+        return this;
+    }
+
+    public Settings getSettings() {
+        return mSettings;
+    }
+
+    public boolean injectEvent(InputEvent event) {
+        mInjectedEventCount++;
+        return true;
+    }
+
+    /** Not in the real class. */
+    public long getInjectedEventCount() {
+        return mInjectedEventCount;
+    }
+
+    public void quit() {}
+
+    public void pause() {}
+
+    public void resume() {}
+
+    public void configurationChanged(Configuration configuration) {}
+
+    public void windowFocusChanged(boolean hasFocus) {}
+
+    public static class Settings {
+        public boolean getBoolean(String key, boolean defaultValue) {
+            return defaultValue;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import android.content.Intent;
+import android.os.Bundle;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+public class IntentExtrasTest {
+    @Test
+    public void roundTripsEverySupportedType() {
+        Bundle extras = new Bundle();
+        extras.putString("string", "h\u00e9llo:world");
+        extras.putInt("int", -7);
+        extras.putLong("long", 1L << 40);
+        extras.putFloat("float", 1.5f);
+        extras.putDouble("double", -2.25);
+        extras.putBoolean("boolean", true);
+        extras.putObject("bytes", new byte[] {1, 2, 3});
+        extras.putObject("ints", new int[] {1, -2, 3});
+        extras.putObject("longs", new long[] {Long.MIN_VALUE, 0, Long.MAX_VALUE});
+        extras.putObject("floats", new float[] {0.5f, -0.25f});
+        extras.putObject("doubles", new double[] {1e100});
+        extras.putObject("booleans", new boolean[] {true, false, true});
+        extras.putObject("strings", new String[] {"a", null, ""});
+        String[] keys = extras.keySet().toArray(new String[0]);
+
+        Intent intent = new Intent();
+        IntentExtras.putEncodedExtras(intent, IntentExtras.encodeExtras(extras, keys));
+        Bundle decoded = intent.getExtras();
+
+        assertEquals(keys.length, decoded.size());
+        assertEquals("h\u00e9llo:world", decoded.get("string"));
+        assertEquals(-7, decoded.get("int"));
+        assertEquals(1L << 40, decoded.get("long"));
+        assertEquals(1.5f, decoded.get("float"));
+        assertEquals(-2.25, decoded.get("double"));
+        assertEquals(true, decoded.get("boolean"));
+        assertArrayEquals(new byte[] {1, 2, 3}, (byte[]) decoded.get("bytes"));
+        assertArrayEquals(new int[] {1, -2, 3}, (int[]) decoded.get("ints"));
+        assertArrayEquals(new long[] {Long.MIN_VALUE, 0, Long.MAX_VALUE},
+                (long[]) decoded.get("longs"));
+        assertArrayEquals(new float[] {0.5f, -0.25f}, (float[]) decoded.get("floats"), 0);
+        assertArrayEquals(new double[] {1e100}, (double[]) decoded.get("doubles"), 0);
+        assertEquals(Arrays.toString(new boolean[] {true, false, true}),
+                Arrays.toString((boolean[]) decoded.get("booleans")));
+        assertArrayEquals(new String[] {"a", null, ""}, (String[]) decoded.get("strings"));
+    }
+
+    @Test
+    public void narrowIntegersAndCharSequencesAreWidened() {
+        Bundle extras = new Bundle();
+        extras.putByte("byte", (byte) -1);
+        extras.putShort("short", (short) 300);
+        extras.putChar("char", 'x');
+        extras.putCharSequence("text", new StringBuilder("abc"));
+        String[] keys = {"byte", "short", "char", "text"};
+
+        Intent intent = new Intent();
+        IntentExtras.putEncodedExtras(intent, IntentExtras.encodeExtras(extras, keys));
+        Bundle decoded = intent.getExtras();
+
+        assertEquals(-1, decoded.get("byte"));
+        assertEquals(300, decoded.get("short"));
+        assertEquals((int) 'x', decoded.get("char"));
+        assertEquals("abc", decoded.get("text"));
+    }
+
+    @Test
+    public void missingAndUnsupportedValuesAreSkipped() {
+        Bundle extras = new Bundle();
+        extras.putInt("kept", 1);
+        extras.putObject("unsupported", new Object());
+        String[] keys = {"missing", "unsupported", "kept"};
+
+        Intent intent = new Intent();
+        IntentExtras.putEncodedExtras(intent, IntentExtras.encodeExtras(extras, keys));
+        Bundle decoded = intent.getExtras();
+
+        assertEquals(1, decoded.size());
+        assertEquals(1, decoded.get("kept"));
+    }
+
+    @Test
+    public void nullInputsEncodeAndDecodeToNothing() {
+        assertEquals(0, IntentExtras.encodeExtras(null, new String[] {"a"}).length);
+        assertEquals(0, IntentExtras.encodeExtras(new Bundle(), null).length);
+        Intent intent = new Intent();
+        IntentExtras.putEncodedExtras(intent, null);
+        IntentExtras.putEncodedExtras(intent, new byte[0]);
+        assertNull(intent.getExtras());
+    }
+
+    @Test
+    public void truncatedBlobsAreRejected() {
+        Bundle extras = new Bundle();
+        extras.putString("string", "value");
+        extras.putLong("long", 1);
+        extras.putObject("ints", new int[] {1, 2, 3});
+        extras.putObject("strings", new String[] {"a", null});
+        for (String key : extras.keySet()) {
+            byte[] blob = IntentExtras.encodeExtras(extras, new String[] {key});
+            for (int length = 1; length < blob.length; length++) {
+                assertRejected(Arrays.copyOf(blob, length));
+            }
+        }
+    }
+
+    @Test
+    public void lengthsBeyondTheBlobAreRejectedBeforeAllocating() throws IOException {
+        byte[] types = {IntentExtras.TYPE_STRING, IntentExtras.TYPE_BYTE_ARRAY,
+                IntentExtras.TYPE_INT_ARRAY, IntentExtras.TYPE_LONG_ARRAY,
+                IntentExtras.TYPE_FLOAT_ARRAY, IntentExtras.TYPE_DOUBLE_ARRAY,
+                IntentExtras.TYPE_BOOLEAN_ARRAY, IntentExtras.TYPE_STRING_ARRAY};
+        for (byte type : types) {
+            assertRejected(entry(type, Integer.MAX_VALUE));
+            assertRejected(entry(type, -2));
+        }
+    }
+
+    @Test
+    public void unknownTypesAreRejected() throws IOException {
+        assertRejected(entry((byte) 99, 0));
+    }
+
+    @Test
+    public void stringExtrasNeedMatchingArrays() {
+        Intent intent = new Intent();
+        IntentExtras.putStringExtras(intent, new String[] {"a", "b"}, new String[] {"1", "2"});
+        assertEquals("1", intent.getStringExtra("a"));
+        assertEquals("2", intent.getStringExtra("b"));
+        try {
+            IntentExtras.putStringExtras(intent, new String[] {"a"}, new String[0]);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void keyValueExtrasSplitAtTheFirstColon() {
+        Intent intent = new Intent();
+        IntentExtras.putKeyValueExtras(intent,
+                new String[] {"url:http://example.com:80", "empty:", "no separator"});
+        assertEquals("http://example.com:80", intent.getStringExtra("url"));
+        assertEquals("", intent.getStringExtra("empty"));
+        assertFalse(intent.hasExtra("no separator"));
+        assertEquals(2, intent.getExtras().size());
+    }
+
+    // A single entry with key "k" whose value starts with |length|, and no data after it.
+    private static byte[] entry(byte type, int length) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(type);
+        out.writeShort(1);
+        out.writeByte('k');
+        out.writeInt(length);
+        return bytes.toByteArray();
+    }
+
+    private static void assertRejected(byte[] blob) {
+        try {
+            IntentExtras.putEncodedExtras(new Intent(), blob);
+            fail("Accepted " + Arrays.toString(blob));
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+    @Test
+    public void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getQuantile(0.5));
+        assertEquals(0, histogram.getQuantile(0.99));
+    }
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(4, histogram.getQuantile(0.5));
+        assertEquals(8, histogram.getQuantile(0.9));
+        assertEquals(9, histogram.getQuantile(1.0));
+    }
+
+    @Test
+    public void largeValuesAreWithinBucketError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 100);
+        }
+        assertWithin(50000, histogram.getQuantile(0.5));
+        assertWithin(90000, histogram.getQuantile(0.9));
+        assertWithin(99000, histogram.getQuantile(0.99));
+    }
+
+    @Test
+    public void quantilesAreClampedToMax() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1000);
+        // 1000 falls in a bucket that reaches 1023.
+        assertEquals(1000, histogram.getQuantile(0.5));
+    }
+
+    @Test
+    public void negativeAndHugeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getQuantile(0.5));
+        assertEquals(Integer.MAX_VALUE, histogram.getQuantile(1.0));
+    }
+
+    @Test
+    public void writeSummaryUsesSummaryLayout() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 0; i < 100; i++) {
+            histogram.record(i);
+        }
+        long[] summary = new long[LatencyHistogram.SUMMARY_SIZE + 2];
+        histogram.writeSummary(summary, 2);
+        assertEquals(0, summary[0]);
+        assertEquals(histogram.getQuantile(0.5), summary[2 + LatencyHistogram.SUMMARY_P50]);
+        assertEquals(histogram.getQuantile(0.9), summary[2 + LatencyHistogram.SUMMARY_P90]);
+        assertEquals(histogram.getQuantile(0.99), summary[2 + LatencyHistogram.SUMMARY_P99]);
+        assertEquals(99, summary[2 + LatencyHistogram.SUMMARY_MAX]);
+        assertEquals(100, summary[2 + LatencyHistogram.SUMMARY_COUNT]);
+    }
+
+    @Test
+    public void resetClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(12345);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getQuantile(1.0));
+        histogram.record(3);
+        assertEquals(3, histogram.getQuantile(1.0));
+    }
+
+    // Buckets split each power of two 16 ways, so the reported bound is at most 1/16 high.
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual,
+                actual >= expected && actual <= expected + expected / 16);
+    }
+}
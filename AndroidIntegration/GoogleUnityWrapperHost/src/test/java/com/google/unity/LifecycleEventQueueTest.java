@@ -0,0 +1,125 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LifecycleEventQueueTest {
+    private static final int R = LifecycleEventQueue.RECORD_SIZE;
+
+    @Test
+    public void pollReturnsRecordsOldestFirst() {
+        LifecycleEventQueue queue = new LifecycleEventQueue(8);
+        long before = System.nanoTime();
+        queue.push(LifecycleEventQueue.TYPE_PAUSE, 0, 0);
+        queue.push(LifecycleEventQueue.TYPE_ACTIVITY_RESULT, 7, -1);
+        queue.push(LifecycleEventQueue.TYPE_RESUME, 0, 0);
+
+        long[] records = queue.poll();
+        assertEquals(3 * R, records.length);
+        assertEquals(LifecycleEventQueue.TYPE_PAUSE, records[0]);
+        assertEquals(LifecycleEventQueue.TYPE_ACTIVITY_RESULT, records[R]);
+        assertEquals(7, records[R + 2]);
+        assertEquals(-1, records[R + 3]);
+        assertEquals(LifecycleEventQueue.TYPE_RESUME, records[2 * R]);
+        assertTrue(records[1] >= before);
+        assertTrue(records[R + 1] >= records[1]);
+        assertTrue(records[2 * R + 1] >= records[R + 1]);
+
+        assertEquals(0, queue.poll().length);
+    }
+
+    @Test
+    public void payloadsFollowTheirRecords() {
+        LifecycleEventQueue queue = new LifecycleEventQueue(8);
+        Object payload = new Object();
+        queue.push(LifecycleEventQueue.TYPE_PAUSE, 0, 0);
+        queue.push(LifecycleEventQueue.TYPE_REQUEST_PERMISSIONS_RESULT, 3, 0, payload);
+
+        queue.poll();
+        Object[] payloads = queue.getLastPolledPayloads();
+        assertEquals(2, payloads.length);
+        assertNull(payloads[0]);
+        assertSame(payload, payloads[1]);
+
+        queue.push(LifecycleEventQueue.TYPE_RESUME, 0, 0);
+        queue.poll();
+        assertEquals(0, queue.getLastPolledPayloads().length);
+    }
+
+    @Test
+    public void fullQueueDropsTheOldest() {
+        LifecycleEventQueue queue = new LifecycleEventQueue(3);
+        for (int i = 0; i < 5; i++) {
+            queue.push(LifecycleEventQueue.TYPE_WINDOW_FOCUS_CHANGED, i, 0, Integer.valueOf(i));
+        }
+        assertEquals(2, queue.getDroppedCount());
+
+        long[] records = queue.poll();
+        Object[] payloads = queue.getLastPolledPayloads();
+        assertEquals(3 * R, records.length);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(i + 2, records[i * R + 2]);
+            assertEquals(i + 2, payloads[i]);
+        }
+    }
+
+    @Test
+    public void consecutiveDisplayChangesCollapse() {
+        LifecycleEventQueue queue = new LifecycleEventQueue(8);
+        queue.push(LifecycleEventQueue.TYPE_DISPLAY_CHANGED, 0, 0);
+        queue.push(LifecycleEventQueue.TYPE_DISPLAY_CHANGED, 0, 0);
+        queue.push(LifecycleEventQueue.TYPE_PAUSE, 0, 0);
+        queue.push(LifecycleEventQueue.TYPE_DISPLAY_CHANGED, 0, 0);
+        queue.push(LifecycleEventQueue.TYPE_DISPLAY_CHANGED, 0, 0);
+
+        long[] records = queue.poll();
+        assertEquals(3 * R, records.length);
+        assertEquals(LifecycleEventQueue.TYPE_DISPLAY_CHANGED, records[0]);
+        assertEquals(LifecycleEventQueue.TYPE_PAUSE, records[R]);
+        assertEquals(LifecycleEventQueue.TYPE_DISPLAY_CHANGED, records[2 * R]);
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void wrapsAroundAfterPolling() {
+        LifecycleEventQueue queue = new LifecycleEventQueue(2);
+        for (int round = 0; round < 5; round++) {
+            queue.push(LifecycleEventQueue.TYPE_PAUSE, round, 0);
+            queue.push(LifecycleEventQueue.TYPE_RESUME, round, 0);
+            long[] records = queue.poll();
+            assertEquals(2 * R, records.length);
+            assertEquals(LifecycleEventQueue.TYPE_PAUSE, records[0]);
+            assertEquals(round, records[2]);
+            assertEquals(LifecycleEventQueue.TYPE_RESUME, records[R]);
+        }
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void clearDropsEverythingQueued() {
+        LifecycleEventQueue queue = new LifecycleEventQueue(4);
+        queue.push(LifecycleEventQueue.TYPE_ACTIVITY_RESULT, 0, 0, new Object());
+        queue.clear();
+        assertEquals(0, queue.poll().length);
+        assertEquals(0, queue.getLastPolledPayloads().length);
+    }
+}
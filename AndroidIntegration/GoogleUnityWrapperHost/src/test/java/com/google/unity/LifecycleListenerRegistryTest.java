@@ -0,0 +1,213 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import android.content.Intent;
+
+import com.google.unity.GoogleUnityActivity.AndroidLifecycleListener;
+import com.google.unity.GoogleUnityActivity.ExtendedAndroidLifecycleListener;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class LifecycleListenerRegistryTest {
+    private final List<String> mCalls = new ArrayList<>();
+
+    private class Listener implements AndroidLifecycleListener {
+        final String mName;
+
+        Listener(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void onPause() {
+            mCalls.add(mName + ".onPause");
+        }
+
+        @Override
+        public void onResume() {
+            mCalls.add(mName + ".onResume");
+        }
+
+        @Override
+        public void onActivityResult(int requestCode, int resultCode, Intent data) {
+            mCalls.add(mName + ".onActivityResult(" + requestCode + "," + resultCode + ")");
+        }
+
+        @Override
+        public void onRequestPermissionsResult(
+            int requestCode, String[] permissions, int[] grantResults) {
+            mCalls.add(mName + ".onRequestPermissionsResult(" + requestCode + ")");
+        }
+
+        @Override
+        public void onDisplayChanged() {
+            mCalls.add(mName + ".onDisplayChanged");
+        }
+    }
+
+    private class ExtendedListener extends Listener implements ExtendedAndroidLifecycleListener {
+        ExtendedListener(String name) {
+            super(name);
+        }
+
+        @Override
+        public void onStart() {
+            mCalls.add(mName + ".onStart");
+        }
+
+        @Override
+        public void onStop() {
+            mCalls.add(mName + ".onStop");
+        }
+
+        @Override
+        public void onPerformanceTierChanged(int tier) {
+            mCalls.add(mName + ".onPerformanceTierChanged(" + tier + ")");
+        }
+
+        @Override
+        public void onTrimMemory(int level) {
+            mCalls.add(mName + ".onTrimMemory(" + level + ")");
+        }
+
+        @Override
+        public void onLowMemory() {
+            mCalls.add(mName + ".onLowMemory");
+        }
+    }
+
+    @Test
+    public void dispatchesByPriorityThenAttachOrder() {
+        LifecycleListenerRegistry registry = new LifecycleListenerRegistry();
+        registry.add(new Listener("a"), 0);
+        registry.add(new Listener("b"), 10);
+        registry.add(new Listener("c"), 0);
+        registry.add(new Listener("d"), -5);
+        registry.add(new Listener("e"), 10);
+
+        registry.dispatchPause();
+        assertCalls("b.onPause", "e.onPause", "a.onPause", "c.onPause", "d.onPause");
+    }
+
+    @Test
+    public void addingAgainUpdatesThePriority() {
+        LifecycleListenerRegistry registry = new LifecycleListenerRegistry();
+        Listener a = new Listener("a");
+        registry.add(a, 0);
+        registry.add(new Listener("b"), 5);
+        registry.add(a, 10);
+
+        assertEquals(2, registry.size());
+        registry.dispatchResume();
+        assertCalls("a.onResume", "b.onResume");
+    }
+
+    @Test
+    public void removeAndClear() {
+        LifecycleListenerRegistry registry = new LifecycleListenerRegistry();
+        Listener a = new Listener("a");
+        Listener b = new Listener("b");
+        registry.add(a, 0);
+        registry.add(b, 0);
+        registry.add(null, 0);
+        assertEquals(2, registry.size());
+
+        assertTrue(registry.remove(a));
+        assertFalse(registry.remove(a));
+        registry.dispatchDisplayChanged();
+        assertCalls("b.onDisplayChanged");
+
+        registry.clear();
+        assertEquals(0, registry.size());
+        registry.dispatchDisplayChanged();
+        assertCalls();
+    }
+
+    @Test
+    public void snapshotsAreNotModifiedByLaterChanges() {
+        LifecycleListenerRegistry registry = new LifecycleListenerRegistry();
+        Listener a = new Listener("a");
+        Listener b = new Listener("b");
+        registry.add(a, 0);
+        AndroidLifecycleListener[] before = registry.snapshot();
+        registry.add(b, 0);
+        AndroidLifecycleListener[] after = registry.snapshot();
+
+        assertNotSame(before, after);
+        assertArrayEquals(new AndroidLifecycleListener[] {a}, before);
+        assertArrayEquals(new AndroidLifecycleListener[] {a, b}, after);
+        assertSame(after, registry.snapshot());
+    }
+
+    @Test
+    public void forwardsArguments() {
+        LifecycleListenerRegistry registry = new LifecycleListenerRegistry();
+        registry.add(new Listener("a"), 0);
+        registry.dispatchActivityResult(3, -1, null);
+        registry.dispatchRequestPermissionsResult(4, new String[0], new int[0]);
+        assertCalls("a.onActivityResult(3,-1)", "a.onRequestPermissionsResult(4)");
+    }
+
+    @Test
+    public void extendedCallbacksOnlyReachExtendedListeners() {
+        LifecycleListenerRegistry registry = new LifecycleListenerRegistry();
+        registry.add(new Listener("plain"), 0);
+        registry.add(new ExtendedListener("extended"), 0);
+
+        registry.dispatchStart();
+        registry.dispatchStop();
+        registry.dispatchPerformanceTierChanged(2);
+        registry.dispatchTrimMemory(15);
+        registry.dispatchLowMemory();
+        registry.dispatchPause();
+        assertCalls("extended.onStart", "extended.onStop", "extended.onPerformanceTierChanged(2)",
+                "extended.onTrimMemory(15)", "extended.onLowMemory", "plain.onPause",
+                "extended.onPause");
+    }
+
+    @Test
+    public void listenersMayDetachWhileBeingDispatched() {
+        final LifecycleListenerRegistry registry = new LifecycleListenerRegistry();
+        registry.add(new Listener("a") {
+            @Override
+            public void onPause() {
+                super.onPause();
+                registry.remove(this);
+            }
+        }, 0);
+        registry.add(new Listener("b"), 0);
+
+        registry.dispatchPause();
+        registry.dispatchPause();
+        assertCalls("a.onPause", "b.onPause", "b.onPause");
+    }
+
+    private void assertCalls(String... expected) {
+        assertEquals(java.util.Arrays.asList(expected), mCalls);
+        mCalls.clear();
+    }
+}
@@ -0,0 +1,242 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class PerformanceJournalTest {
+    private static final int PID = 1234;
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void recordsDecodeOldestFirst() throws IOException {
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal journal = PerformanceJournal.open(file, null, 16, PID);
+        journal.record(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_CREATE, 0);
+        journal.record(PerformanceJournal.TYPE_TIMING, 2500000, 0, "startup.window");
+        journal.record(PerformanceJournal.TYPE_LOG, 6, 0, "out of \"memory\"");
+        journal.record(PerformanceJournal.TYPE_MEMORY, -1, 0);
+        journal.close();
+
+        String text = decode(file, false);
+        assertTrue(text, text.startsWith("pid " + PID + ", opened "));
+        assertTrue(text, text.contains("4 records written"));
+        assertInOrder(text, "lifecycle create", "timing startup.window 2.500 ms",
+                "log[6] out of \"memory\"", "memory low");
+
+        String json = decode(file, true);
+        assertTrue(json, json.startsWith("{\"pid\":" + PID + ","));
+        assertInOrder(json, "\"seq\":1,", "\"seq\":2,", "\"seq\":3,", "\"seq\":4,");
+        assertTrue(json, json.contains("\"text\":\"out of \\\"memory\\\"\""));
+        assertTrue(json, json.trim().endsWith("]}"));
+    }
+
+    @Test
+    public void ringKeepsTheNewestRecords() throws IOException {
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal journal = PerformanceJournal.open(file, null, 4, PID);
+        for (int i = 0; i < 10; i++) {
+            journal.record(PerformanceJournal.TYPE_FOCUS, i % 2, 0);
+        }
+        journal.close();
+
+        String json = decode(file, true);
+        assertFalse(json, json.contains("\"seq\":6,"));
+        assertInOrder(json, "\"seq\":7,", "\"seq\":8,", "\"seq\":9,", "\"seq\":10,");
+    }
+
+    @Test
+    public void tornRecordsAreSkipped() throws IOException {
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal journal = PerformanceJournal.open(file, null, 4, PID);
+        journal.record(PerformanceJournal.TYPE_FOCUS, 1, 0);
+        journal.record(PerformanceJournal.TYPE_FOCUS, 0, 0);
+        journal.close();
+
+        // Clear the sequence of the first record, as if the process died while writing it.
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(PerformanceJournal.HEADER_SIZE + PerformanceJournal.RECORD_OFFSET_SEQUENCE);
+            raf.writeInt(0);
+        } finally {
+            raf.close();
+        }
+
+        String text = decode(file, false);
+        assertFalse(text, text.contains("focus gained"));
+        assertTrue(text, text.contains("focus lost"));
+    }
+
+    @Test
+    public void longTextIsTruncated() throws IOException {
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal journal = PerformanceJournal.open(file, null, 4, PID);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < PerformanceJournal.MAX_TEXT_BYTES + 10; i++) {
+            text.append((char) ('a' + i % 26));
+        }
+        journal.record(PerformanceJournal.TYPE_LOG, 4, 0, text.toString());
+        journal.close();
+
+        String decoded = decode(file, false);
+        assertTrue(decoded, decoded.contains(
+                "log[4] " + text.substring(0, PerformanceJournal.MAX_TEXT_BYTES) + "\n"));
+    }
+
+    @Test
+    public void truncationKeepsWholeCodePoints() throws IOException {
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal journal = PerformanceJournal.open(file, null, 4, PID);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < PerformanceJournal.MAX_TEXT_BYTES - 1; i++) {
+            text.append('a');
+        }
+        // Two UTF-8 bytes, the second of which does not fit.
+        String prefix = text.toString();
+        journal.record(PerformanceJournal.TYPE_LOG, 4, 0, prefix + "\u00e9");
+        journal.close();
+
+        String decoded = decode(file, false);
+        assertTrue(decoded, decoded.contains("log[4] " + prefix + "\n"));
+        assertFalse(decoded, decoded.contains("\ufffd"));
+    }
+
+    @Test
+    public void firstOpenRotatesAndLaterOpensAppend() throws IOException {
+        File folder = mFolder.newFolder();
+        File file = new File(folder, "journal.bin");
+        File previous = new File(folder, "journal.prev.bin");
+        byte[] lastRun = {1, 2, 3};
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            out.write(lastRun);
+        } finally {
+            out.close();
+        }
+
+        PerformanceJournal journal = PerformanceJournal.open(file, previous, 8, PID);
+        journal.record(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_CREATE, 0);
+        journal.close();
+        assertArrayEquals(lastRun, readFile(previous));
+
+        // Reopened in the same process, e.g. after a configuration change.
+        journal = PerformanceJournal.open(file, previous, 8, PID);
+        journal.record(PerformanceJournal.TYPE_LIFECYCLE, PerformanceJournal.LIFECYCLE_DESTROY, 0);
+        journal.close();
+        assertArrayEquals(lastRun, readFile(previous));
+        assertEquals(2, recordCount(file));
+        assertInOrder(decode(file, false), "lifecycle create", "lifecycle destroy");
+    }
+
+    @Test
+    public void reopenWithDifferentLayoutStartsOver() throws IOException {
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal journal = PerformanceJournal.open(file, null, 8, PID);
+        journal.record(PerformanceJournal.TYPE_FOCUS, 1, 0);
+        journal.close();
+
+        journal = PerformanceJournal.open(file, null, 8, PID + 1);
+        journal.close();
+        assertEquals(0, recordCount(file));
+
+        journal = PerformanceJournal.open(file, null, 16, PID + 1);
+        journal.close();
+        assertEquals(0, recordCount(file));
+    }
+
+    @Test
+    public void closedJournalIgnoresRecords() throws IOException {
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal journal = PerformanceJournal.open(file, null, 8, PID);
+        journal.record(PerformanceJournal.TYPE_FOCUS, 1, 0);
+        journal.close();
+        journal.close();
+        journal.record(PerformanceJournal.TYPE_FOCUS, 0, 0);
+        assertEquals(1, recordCount(file));
+    }
+
+    @Test
+    public void decoderRejectsOtherFiles() throws IOException {
+        try {
+            PerformanceJournalDecoder.decode(new byte[PerformanceJournal.HEADER_SIZE], false,
+                    new PrintStream(new ByteArrayOutputStream()));
+            fail();
+        } catch (IOException expected) {
+        }
+
+        File file = new File(mFolder.newFolder(), "journal.bin");
+        PerformanceJournal.open(file, null, 8, PID).close();
+        byte[] truncated = new byte[PerformanceJournal.HEADER_SIZE + 1];
+        System.arraycopy(readFile(file), 0, truncated, 0, truncated.length);
+        try {
+            PerformanceJournalDecoder.decode(truncated, false,
+                    new PrintStream(new ByteArrayOutputStream()));
+            fail();
+        } catch (IOException expected) {
+        }
+    }
+
+    private static String decode(File file, boolean json) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(bytes, true, "UTF-8");
+        PerformanceJournalDecoder.decode(readFile(file), json, out);
+        return bytes.toString("UTF-8").replace(System.lineSeparator(), "\n");
+    }
+
+    private static long recordCount(File file) throws IOException {
+        return ByteBuffer.wrap(readFile(file)).order(ByteOrder.LITTLE_ENDIAN)
+                .getLong(PerformanceJournal.HEADER_OFFSET_RECORD_COUNT);
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            byte[] bytes = new byte[(int) raf.length()];
+            raf.readFully(bytes);
+            return bytes;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static void assertInOrder(String text, String... parts) {
+        int from = 0;
+        for (String part : parts) {
+            int index = text.indexOf(part, from);
+            assertTrue("Missing or out of order: " + part + " in\n" + text, index >= 0);
+            from = index + part.length();
+        }
+    }
+}
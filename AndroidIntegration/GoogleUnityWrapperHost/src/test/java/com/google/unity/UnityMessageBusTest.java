@@ -0,0 +1,185 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+public class UnityMessageBusTest {
+    @Test
+    public void headerDescribesTheLayout() {
+        UnityMessageBus bus = new UnityMessageBus(100);
+        ByteBuffer buffer = bus.getBuffer();
+        assertEquals(UnityMessageBus.LAYOUT_VERSION, buffer.getInt(UnityMessageBus.OFFSET_VERSION));
+        assertEquals(104, buffer.getInt(UnityMessageBus.OFFSET_CAPACITY));
+        assertEquals(UnityMessageBus.HEADER_SIZE + 104, buffer.capacity());
+        assertEquals(0, buffer.getLong(UnityMessageBus.OFFSET_WRITE_POSITION));
+
+        assertEquals(16, new UnityMessageBus(1).getBuffer().getInt(UnityMessageBus.OFFSET_CAPACITY));
+    }
+
+    @Test
+    public void channelIdsAreStable() {
+        UnityMessageBus bus = new UnityMessageBus(64);
+        assertEquals(0, bus.getChannelId("color"));
+        assertEquals(1, bus.registerChannel("color"));
+        assertEquals(2, bus.registerChannel("slider"));
+        assertEquals(1, bus.registerChannel("color"));
+        assertEquals(1, bus.getChannelId("color"));
+        assertEquals(2, bus.getChannelId("slider"));
+    }
+
+    @Test
+    public void messagesAreReadBackInOrder() {
+        UnityMessageBus bus = new UnityMessageBus(1024);
+        int channel = bus.registerChannel("values");
+        assertTrue(bus.publishInt(channel, -3));
+        assertTrue(bus.publishLong(channel, 1L << 50));
+        assertTrue(bus.publishFloat(channel, 0.25f));
+        assertTrue(bus.publishVector2(channel, 1, 2));
+        assertTrue(bus.publishVector3(channel, 3, 4, 5));
+        assertTrue(bus.publishVector4(channel, 6, 7, 8, 9));
+        assertTrue(bus.publishBytes(channel, new byte[] {9, 1, 2, 3, 9}, 1, 3));
+
+        Reader reader = new Reader(bus.getBuffer());
+        ByteBuffer buffer = bus.getBuffer();
+        int offset = reader.next(channel, UnityMessageBus.TYPE_INT, 4);
+        assertEquals(-3, buffer.getInt(offset));
+        offset = reader.next(channel, UnityMessageBus.TYPE_LONG, 8);
+        assertEquals(1L << 50, buffer.getLong(offset));
+        offset = reader.next(channel, UnityMessageBus.TYPE_FLOAT, 4);
+        assertEquals(0.25f, buffer.getFloat(offset), 0);
+        offset = reader.next(channel, UnityMessageBus.TYPE_VECTOR2, 8);
+        assertFloats(buffer, offset, 1, 2);
+        offset = reader.next(channel, UnityMessageBus.TYPE_VECTOR3, 12);
+        assertFloats(buffer, offset, 3, 4, 5);
+        offset = reader.next(channel, UnityMessageBus.TYPE_VECTOR4, 16);
+        assertFloats(buffer, offset, 6, 7, 8, 9);
+        offset = reader.next(channel, UnityMessageBus.TYPE_BYTES, 3);
+        assertArrayEquals(new byte[] {1, 2, 3},
+                new byte[] {buffer.get(offset), buffer.get(offset + 1), buffer.get(offset + 2)});
+        assertFalse(reader.hasNext());
+        assertEquals(0, bus.getDroppedCount());
+    }
+
+    @Test
+    public void messagesThatDoNotFitAreDropped() {
+        UnityMessageBus bus = new UnityMessageBus(64);
+        int channel = bus.registerChannel("values");
+        for (int i = 0; i < 4; i++) {
+            assertTrue(bus.publishInt(channel, i));
+        }
+        assertFalse(bus.publishInt(channel, 4));
+        assertFalse(bus.publishBytes(channel, new byte[100], 0, 100));
+        assertEquals(2, bus.getDroppedCount());
+        assertEquals(2, bus.getBuffer().getLong(UnityMessageBus.OFFSET_DROPPED));
+
+        // Consuming makes room again.
+        Reader reader = new Reader(bus.getBuffer());
+        for (int i = 0; i < 4; i++) {
+            assertEquals(i, bus.getBuffer().getInt(reader.next(channel, UnityMessageBus.TYPE_INT, 4)));
+        }
+        reader.commit();
+        assertTrue(bus.publishInt(channel, 5));
+    }
+
+    @Test
+    public void unknownChannelsAreDropped() {
+        UnityMessageBus bus = new UnityMessageBus(64);
+        assertFalse(bus.publishInt(0, 1));
+        assertFalse(bus.publishFloat(-1, 1));
+        assertEquals(2, bus.getDroppedCount());
+        assertEquals(0, bus.getBuffer().getLong(UnityMessageBus.OFFSET_WRITE_POSITION));
+    }
+
+    @Test
+    public void messagesNeverStraddleTheEnd() {
+        UnityMessageBus bus = new UnityMessageBus(64);
+        int channel = bus.registerChannel("values");
+        Reader reader = new Reader(bus.getBuffer());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bus.publishInt(channel, i));
+            reader.next(channel, UnityMessageBus.TYPE_INT, 4);
+        }
+        reader.commit();
+
+        // 24 bytes do not fit in the 16 left before the end, so they are padded over.
+        assertTrue(bus.publishBytes(channel, new byte[16], 0, 16));
+        ByteBuffer buffer = bus.getBuffer();
+        int padding = UnityMessageBus.HEADER_SIZE + 48;
+        assertEquals(UnityMessageBus.TYPE_PADDING,
+                buffer.getShort(padding + UnityMessageBus.MESSAGE_OFFSET_TYPE));
+        assertEquals(8, buffer.getShort(padding + UnityMessageBus.MESSAGE_OFFSET_LENGTH));
+        assertEquals(88, buffer.getLong(UnityMessageBus.OFFSET_WRITE_POSITION));
+
+        assertEquals(UnityMessageBus.HEADER_SIZE + UnityMessageBus.MESSAGE_HEADER_SIZE,
+                reader.next(channel, UnityMessageBus.TYPE_BYTES, 16));
+        assertFalse(reader.hasNext());
+    }
+
+    private static void assertFloats(ByteBuffer buffer, int offset, float... expected) {
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], buffer.getFloat(offset + i * 4), 0);
+        }
+    }
+
+    // Reads messages the way Unity does, skipping padding.
+    private static final class Reader {
+        private final ByteBuffer mBuffer;
+        private final int mCapacity;
+        private long mPosition;
+
+        Reader(ByteBuffer buffer) {
+            mBuffer = buffer;
+            mCapacity = buffer.getInt(UnityMessageBus.OFFSET_CAPACITY);
+            mPosition = buffer.getLong(UnityMessageBus.OFFSET_READ_POSITION);
+        }
+
+        boolean hasNext() {
+            return mPosition < mBuffer.getLong(UnityMessageBus.OFFSET_WRITE_POSITION);
+        }
+
+        // Checks the next message and returns the buffer offset of its payload.
+        int next(int channel, short type, int length) {
+            while (true) {
+                assertTrue(hasNext());
+                int offset = UnityMessageBus.HEADER_SIZE + (int) (mPosition % mCapacity);
+                short messageType = mBuffer.getShort(offset + UnityMessageBus.MESSAGE_OFFSET_TYPE);
+                short messageLength =
+                        mBuffer.getShort(offset + UnityMessageBus.MESSAGE_OFFSET_LENGTH);
+                mPosition += UnityMessageBus.MESSAGE_HEADER_SIZE + ((messageLength + 7) & ~7);
+                if (messageType == UnityMessageBus.TYPE_PADDING) {
+                    continue;
+                }
+                assertEquals(channel,
+                        mBuffer.getInt(offset + UnityMessageBus.MESSAGE_OFFSET_CHANNEL));
+                assertEquals(type, messageType);
+                assertEquals(length, messageLength);
+                return offset + UnityMessageBus.MESSAGE_HEADER_SIZE;
+            }
+        }
+
+        void commit() {
+            mBuffer.putLong(UnityMessageBus.OFFSET_READ_POSITION, mPosition);
+        }
+    }
+}
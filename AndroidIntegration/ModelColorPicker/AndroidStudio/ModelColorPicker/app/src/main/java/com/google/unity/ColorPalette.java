@@ -0,0 +1,100 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.graphics.Color;
+
+/**
+ * An immutable list of ARGB colors and their "#rrggbb" names, generated once and read by index
+ * without allocating.
+ */
+public final class ColorPalette {
+    private final int[] mColors;
+    private final String[] mNames;
+
+    private ColorPalette(int[] colors) {
+        mColors = colors;
+        mNames = new String[colors.length];
+        for (int i = 0; i < colors.length; i++) {
+            mNames[i] = String.format("#%06x", colors[i] & 0xffffff);
+        }
+    }
+
+    /**
+     * Creates a palette that steps through hue, saturation and value. Hue is the innermost
+     * step, so the palette runs through the whole spectrum once per (value, saturation) pair,
+     * from the lowest value and saturation up to 1; a single step uses the maximum.
+     */
+    public static ColorPalette createHsvGrid(int hueSteps, int saturationSteps, int valueSteps,
+            float minSaturation, float minValue) {
+        int[] colors = new int[hueSteps * saturationSteps * valueSteps];
+        float[] hsv = new float[3];
+        int index = 0;
+        for (int v = 0; v < valueSteps; v++) {
+            hsv[2] = step(minValue, 1.0f, v, valueSteps);
+            for (int s = 0; s < saturationSteps; s++) {
+                hsv[1] = step(minSaturation, 1.0f, s, saturationSteps);
+                for (int h = 0; h < hueSteps; h++) {
+                    hsv[0] = 360.0f * h / hueSteps;
+                    colors[index++] = Color.HSVToColor(hsv);
+                }
+            }
+        }
+        return new ColorPalette(colors);
+    }
+
+    public int size() {
+        return mColors.length;
+    }
+
+    /**
+     * Returns the ARGB color at |index|.
+     */
+    public int getColor(int index) {
+        return mColors[index];
+    }
+
+    /**
+     * Returns the name of the color at |index| as "#rrggbb".
+     */
+    public String getName(int index) {
+        return mNames[index];
+    }
+
+    /**
+     * Returns the index of the color closest to |argb| in RGB space, or -1 if the palette is
+     * empty.
+     */
+    public int indexOfClosest(int argb) {
+        int closest = -1;
+        int closestDistance = Integer.MAX_VALUE;
+        for (int i = 0; i < mColors.length; i++) {
+            int dr = Color.red(mColors[i]) - Color.red(argb);
+            int dg = Color.green(mColors[i]) - Color.green(argb);
+            int db = Color.blue(mColors[i]) - Color.blue(argb);
+            int distance = dr * dr + dg * dg + db * db;
+            if (distance < closestDistance) {
+                closest = i;
+                closestDistance = distance;
+            }
+        }
+        return closest;
+    }
+
+    private static float step(float min, float max, int step, int steps) {
+        return steps > 1 ? min + (max - min) * step / (steps - 1) : max;
+    }
+}
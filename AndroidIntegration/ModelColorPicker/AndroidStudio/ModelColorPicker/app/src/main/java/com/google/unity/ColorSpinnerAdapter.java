@@ -15,36 +15,91 @@
  */
 package com.google.unity;
 
-import android.app.Activity;
+import android.content.Context;
 import android.graphics.Color;
+import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
-import android.widget.ArrayAdapter;
+import android.widget.BaseAdapter;
 import android.widget.SpinnerAdapter;
-
-import java.util.List;
+import android.widget.TextView;
 
 /**
- * A simple custom spinner adapter that sets the background color of each entry to the value of the
- * associated String element.
+ * A simple custom spinner adapter that shows each entry of a {@link ColorPalette} as its name on
+ * a background of that color. Rows are recycled through a view holder, so binding a row does not
+ * allocate.
  */
-public class ColorSpinnerAdapter extends ArrayAdapter<String> implements SpinnerAdapter {
-    private List<String> mColorNames;
+public class ColorSpinnerAdapter extends BaseAdapter implements SpinnerAdapter {
+    private static final class ViewHolder {
+        TextView text;
+        int color;
+    }
+
+    private final LayoutInflater mInflater;
+    private final ColorPalette mPalette;
+
+    public ColorSpinnerAdapter(Context context, ColorPalette palette) {
+        mInflater = LayoutInflater.from(context);
+        mPalette = palette;
+    }
+
+    @Override
+    public int getCount() {
+        return mPalette.size();
+    }
+
+    /**
+     * Returns the ARGB color at |position|, boxed; prefer {@link #getColor(int)}.
+     */
+    @Override
+    public Object getItem(int position) {
+        return mPalette.getColor(position);
+    }
 
-    public ColorSpinnerAdapter(Activity activity, List<String> colors) {
-        super(activity, android.R.layout.simple_spinner_item, colors);
-        mColorNames = colors;
+    public int getColor(int position) {
+        return mPalette.getColor(position);
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return position;
+    }
+
+    @Override
+    public boolean hasStableIds() {
+        return true;
     }
 
     @Override
     public View getDropDownView(int position, View convertView, ViewGroup parent) {
-        convertView = super.getDropDownView(position, convertView, parent);
-        convertView.setBackgroundColor(Color.parseColor(mColorNames.get(position)));
-        return convertView;
+        return bindView(position, convertView, parent,
+                android.R.layout.simple_spinner_dropdown_item);
     }
 
     @Override
-    public View getView(int p, View c, ViewGroup dad) {
-        return getDropDownView(p, c, dad);
+    public View getView(int position, View convertView, ViewGroup parent) {
+        return bindView(position, convertView, parent, android.R.layout.simple_spinner_item);
+    }
+
+    private View bindView(int position, View convertView, ViewGroup parent, int layout) {
+        ViewHolder holder;
+        if (convertView == null) {
+            convertView = mInflater.inflate(layout, parent, false);
+            holder = new ViewHolder();
+            // The spinner item layouts are a single TextView.
+            holder.text = (TextView) convertView;
+            // Transparent never matches, so a new row always gets its background set.
+            holder.color = Color.TRANSPARENT;
+            convertView.setTag(holder);
+        } else {
+            holder = (ViewHolder) convertView.getTag();
+        }
+        int color = mPalette.getColor(position);
+        if (holder.color != color) {
+            holder.color = color;
+            holder.text.setText(mPalette.getName(position));
+            convertView.setBackgroundColor(color);
+        }
+        return convertView;
     }
 }
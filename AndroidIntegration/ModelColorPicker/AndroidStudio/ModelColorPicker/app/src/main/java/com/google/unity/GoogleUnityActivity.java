@@ -37,15 +37,21 @@ import android.widget.Spinner;
 import com.google.tango.modelcolorpicker.R;
 import com.unity3d.player.UnityPlayer;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * Custom Unity Activity that passes through Android lifecycle events from Unity appropriately.
  */
 public class GoogleUnityActivity extends NativeActivity implements AdapterView.OnItemSelectedListener {
     private static final String TAG = GoogleUnityActivity.class.getSimpleName();
 
+    // 120 hues at 3 degree steps, each at 3 saturations and 3 values.
+    private static final int PALETTE_HUE_STEPS = 120;
+    private static final int PALETTE_SATURATION_STEPS = 3;
+    private static final int PALETTE_VALUE_STEPS = 3;
+    private static final float PALETTE_MIN_SATURATION = 0.7f;
+    private static final float PALETTE_MIN_VALUE = 0.7f;
+    // Red at 85% saturation and value, the color the picker has always started with.
+    private static final float[] DEFAULT_COLOR_HSV = {0.0f, 0.85f, 0.85f};
+
     /**
      * Callbacks for common Android lifecycle events.
      */
@@ -59,13 +65,32 @@ public class GoogleUnityActivity extends NativeActivity implements AdapterView.O
         public void onDisplayChanged();
     }
 
+    /**
+     * Optional additional callbacks, declared so that the shared AndroidLifecycle.cs proxy can be
+     * created here too. This activity only delivers the AndroidLifecycleListener callbacks.
+     */
+    public interface ExtendedAndroidLifecycleListener extends AndroidLifecycleListener {
+        public void onStart();
+
+        public void onStop();
+
+        public void onPerformanceTierChanged(int tier);
+
+        public void onTrimMemory(int level);
+
+        public void onLowMemory();
+    }
+
     // don't change the name of this variable; referenced from native code
     protected UnityPlayer mUnityPlayer;
 
     protected AndroidLifecycleListener mAndroidLifecycleListener;
 
     private Spinner mColorSpinner;
-    private List<String> mColorList = makeColorList();
+    private final ColorPalette mColorPalette = ColorPalette.createHsvGrid(
+            PALETTE_HUE_STEPS, PALETTE_SATURATION_STEPS, PALETTE_VALUE_STEPS,
+            PALETTE_MIN_SATURATION, PALETTE_MIN_VALUE);
+    private UnityMessageChannel mUnityMessageChannel;
 
     // Setup activity layout
     @Override
@@ -99,6 +124,8 @@ public class GoogleUnityActivity extends NativeActivity implements AdapterView.O
         }
 
         mUnityPlayer = new UnityPlayer(this);
+        mUnityMessageChannel = new UnityMessageChannel(UnityMessageChannel.DEFAULT_CAPACITY);
+        mUnityMessageChannel.setPaused(true);
         if (mUnityPlayer.getSettings().getBoolean("hide_status_bar", true)) {
             getWindow().setFlags(WindowManager.LayoutParams.FLAG_FULLSCREEN,
                     WindowManager.LayoutParams.FLAG_FULLSCREEN);
@@ -109,32 +136,24 @@ public class GoogleUnityActivity extends NativeActivity implements AdapterView.O
 
         // Initialize color spinner
         mColorSpinner = (Spinner)findViewById(R.id.color_spinner);
-        mColorSpinner.setAdapter(new ColorSpinnerAdapter(this, mColorList));
+        mColorSpinner.setAdapter(new ColorSpinnerAdapter(this, mColorPalette));
+        mColorSpinner.setSelection(
+                mColorPalette.indexOfClosest(Color.HSVToColor(DEFAULT_COLOR_HSV)), false);
         mColorSpinner.setOnItemSelectedListener(this);
     }
 
-    /**
-     * Create a list of colors through the HUE spectrum.
-     */
-    private static List<String> makeColorList() {
-        List<String> colorNames = new ArrayList<>();
-        float[] hsv = new float[3];
-        hsv[1] = hsv[2] = 0.85f;
-        for (int i = 0; i < 360; i += 9) {
-            hsv[0] = i;
-            int color = Color.HSVToColor(hsv);
-            colorNames.add("#" + Integer.toHexString(color).substring(2));
-        }
-        return colorNames;
-    }
-
     /**
      * Click listener from the color spinner.
      */
     @Override
     public void onItemSelected(AdapterView<?> adapterView, View view, int i, long l) {
-        // Send a message to Unity with the chosen color in RGB hex format
-        UnityPlayer.UnitySendMessage("Color Controller", "ChangeModelColor", mColorList.get(i));
+        // Send a message to Unity with the chosen color as a decimal ARGB int. Only the latest
+        // selection per frame reaches Unity. This stays on UnitySendMessage rather than
+        // UnityMessageBus.publishInt: the bus is not in the prebuilt wrapper aar the picker links
+        // against, and one message per frame is cheap enough that polling a bus channel from
+        // JavaEventScript would not pay for itself.
+        mUnityMessageChannel.send("Color Controller", "ChangeModelColorArgb",
+                Integer.toString(mColorPalette.getColor(i)));
     }
 
     @Override
@@ -206,6 +225,7 @@ public class GoogleUnityActivity extends NativeActivity implements AdapterView.O
             mAndroidLifecycleListener.onPause();
         }
         mUnityPlayer.pause();
+        mUnityMessageChannel.setPaused(true);
     }
 
     // Resume Unity
@@ -216,6 +236,7 @@ public class GoogleUnityActivity extends NativeActivity implements AdapterView.O
             mAndroidLifecycleListener.onResume();
         }
         mUnityPlayer.resume();
+        mUnityMessageChannel.setPaused(false);
     }
 
     public void logAndroidErrorMessage(String message) {
@@ -0,0 +1,194 @@
+/*
+ * Copyright 2016 Google Inc. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.google.unity;
+
+import android.view.Choreographer;
+
+import com.unity3d.player.UnityPlayer;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Coalesces UnitySendMessage traffic so that Unity only sees the latest value per target.
+ *
+ * Messages are keyed by (game object, method). With {@link #POLICY_LATEST} a new message
+ * replaces the pending one for its key, so scrubbing through a spinner or slider delivers only
+ * where it stopped; {@link #POLICY_QUEUE} keeps every value in order instead. Pending messages
+ * are sent together on the next vsync, i.e. at most one batch per frame. While paused nothing
+ * is sent; at most {@link #getCapacity()} messages are held, and the oldest are dropped beyond
+ * that.
+ *
+ * The channel must be created on the main thread; {@link #send} may be called from any thread.
+ *
+ * This is a copy of GoogleUnityWrapper's class of the same name. The picker links against the
+ * prebuilt google_unity_wrapper.aar, which predates that class, so it cannot be used from here.
+ * Keep the two in sync, and delete this copy once the aar is rebuilt with it, since both would
+ * then define com.google.unity.UnityMessageChannel in the same app.
+ */
+final class UnityMessageChannel {
+    /** Keep only the most recent value per key. */
+    public static final int POLICY_LATEST = 1;
+    /** Keep every value per key, in order. */
+    public static final int POLICY_QUEUE = 2;
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    // Indices into getStats().
+    public static final int STAT_SENT = 0;
+    public static final int STAT_COALESCED = 1;
+    public static final int STAT_DROPPED = 2;
+    public static final int STAT_BATCHES = 3;
+    public static final int STAT_COUNT = 4;
+
+    private static final class Pending {
+        final String gameObject;
+        final String method;
+        final ArrayList<String> values = new ArrayList<>(1);
+
+        Pending(String gameObject, String method) {
+            this.gameObject = gameObject;
+            this.method = method;
+        }
+    }
+
+    private final int mCapacity;
+    private final Choreographer mChoreographer;
+
+    // All fields below are guarded by |this|. Keys are in the order they first became pending.
+    private final LinkedHashMap<String, Pending> mPending = new LinkedHashMap<>();
+    private int mPendingCount;
+    private boolean mPaused;
+    private boolean mFlushScheduled;
+    private final long[] mStats = new long[STAT_COUNT];
+
+    // Main thread only.
+    private final ArrayList<Pending> mBatch = new ArrayList<>();
+
+    private final Choreographer.FrameCallback mFlush = new Choreographer.FrameCallback() {
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            flush();
+        }
+    };
+
+    public UnityMessageChannel(int capacity) {
+        mCapacity = capacity;
+        mChoreographer = Choreographer.getInstance();
+    }
+
+    public int getCapacity() {
+        return mCapacity;
+    }
+
+    public void send(String gameObject, String method, String value) {
+        send(gameObject, method, value, POLICY_LATEST);
+    }
+
+    public synchronized void send(String gameObject, String method, String value, int policy) {
+        // Object names cannot contain '\n' in practice, so this key cannot collide.
+        String key = gameObject + '\n' + method;
+        Pending pending = mPending.get(key);
+        if (pending == null) {
+            pending = new Pending(gameObject, method);
+            mPending.put(key, pending);
+        }
+        if (policy == POLICY_LATEST && !pending.values.isEmpty()) {
+            mStats[STAT_COALESCED] += pending.values.size();
+            mPendingCount -= pending.values.size();
+            pending.values.clear();
+        }
+        pending.values.add(value);
+        mPendingCount++;
+
+        if (mPendingCount > mCapacity) {
+            dropOldest();
+        }
+        scheduleFlushLocked();
+    }
+
+    /**
+     * Holds messages while |paused|; resuming sends everything held on the next frame.
+     */
+    public synchronized void setPaused(boolean paused) {
+        mPaused = paused;
+        scheduleFlushLocked();
+    }
+
+    /**
+     * Discards every pending message.
+     */
+    public synchronized void clear() {
+        mPending.clear();
+        mPendingCount = 0;
+    }
+
+    /**
+     * Returns the counters indexed by the STAT_ constants.
+     */
+    public synchronized long[] getStats() {
+        return mStats.clone();
+    }
+
+    public synchronized void resetStats() {
+        for (int i = 0; i < STAT_COUNT; i++) {
+            mStats[i] = 0;
+        }
+    }
+
+    private void scheduleFlushLocked() {
+        if (!mPaused && !mFlushScheduled && mPendingCount > 0) {
+            mFlushScheduled = true;
+            mChoreographer.postFrameCallback(mFlush);
+        }
+    }
+
+    // Drops the oldest value of the key that became pending first.
+    private void dropOldest() {
+        Iterator<Pending> it = mPending.values().iterator();
+        Pending oldest = it.next();
+        oldest.values.remove(0);
+        if (oldest.values.isEmpty()) {
+            it.remove();
+        }
+        mPendingCount--;
+        mStats[STAT_DROPPED]++;
+    }
+
+    private void flush() {
+        synchronized (this) {
+            mFlushScheduled = false;
+            if (mPaused || mPending.isEmpty()) {
+                return;
+            }
+            mBatch.addAll(mPending.values());
+            mPending.clear();
+            mStats[STAT_SENT] += mPendingCount;
+            mStats[STAT_BATCHES]++;
+            mPendingCount = 0;
+        }
+        // Send outside the lock; UnitySendMessage may block on Unity's thread.
+        for (int i = 0; i < mBatch.size(); i++) {
+            Pending pending = mBatch.get(i);
+            for (int j = 0; j < pending.values.size(); j++) {
+                UnityPlayer.UnitySendMessage(
+                        pending.gameObject, pending.method, pending.values.get(j));
+            }
+        }
+        mBatch.clear();
+    }
+}
@@ -46,4 +46,19 @@ public class JavaEventScript : MonoBehaviour
             material.color = new Color32(red, green, blue, 255);
         }
     }
+
+    /// <summary>
+    /// Sets the currently selected object to the given color.
+    /// </summary>
+    /// <param name="argbString">The color as a decimal ARGB int, as returned by
+    /// android.graphics.Color, e.g.: -16711936 for opaque green.</param>
+    public void ChangeModelColorArgb(string argbString)
+    {
+        if (selectedObject != null)
+        {
+            int argb = int.Parse(argbString, System.Globalization.CultureInfo.InvariantCulture);
+            Material material = selectedObject.GetComponent<Renderer>().material;
+            material.color = new Color32((byte)(argb >> 16), (byte)(argb >> 8), (byte)argb, (byte)(argb >> 24));
+        }
+    }
 }
@@ -363,12 +363,25 @@ public partial class AndroidHelper : MonoBehaviour
         {
             try
             {
-                string currentPackageName = GetCurrentPackageName();
-                AndroidJavaObject packageManager = unityActivity.Call<AndroidJavaObject>("getPackageManager");
-                AndroidJavaObject packageInfo = packageManager.Call<AndroidJavaObject>("getPackageInfo", currentPackageName, 0);
-                AndroidJavaObject applicationInfo = packageInfo.Get<AndroidJavaObject>("applicationInfo");
-                AndroidJavaObject applicationLabel = packageManager.Call<AndroidJavaObject>("getApplicationLabel", applicationInfo);
-                applicationLabelName = applicationLabel.Call<string>("toString");
+                // GoogleUnityActivity caches the label; other activities go through PackageManager.
+                applicationLabelName = unityActivity.Call<string>("getCachedApplicationLabel");
+            }
+            catch (AndroidJavaException)
+            {
+                applicationLabelName = null;
+            }
+
+            try
+            {
+                if (applicationLabelName == null)
+                {
+                    string currentPackageName = GetCurrentPackageName();
+                    AndroidJavaObject packageManager = unityActivity.Call<AndroidJavaObject>("getPackageManager");
+                    AndroidJavaObject packageInfo = packageManager.Call<AndroidJavaObject>("getPackageInfo", currentPackageName, 0);
+                    AndroidJavaObject applicationInfo = packageInfo.Get<AndroidJavaObject>("applicationInfo");
+                    AndroidJavaObject applicationLabel = packageManager.Call<AndroidJavaObject>("getApplicationLabel", applicationInfo);
+                    applicationLabelName = applicationLabel.Call<string>("toString");
+                }
             }
             catch (AndroidJavaException e)
             {
@@ -380,6 +393,87 @@ public partial class AndroidHelper : MonoBehaviour
         return applicationLabelName;
     }
 
+    /// <summary>
+    /// Gets the package name, application label, version name and code of this application and
+    /// those of Tango Core and the Tango service in one call, as cached by GoogleUnityActivity.
+    /// Version codes are decimal strings, "-1" if the package is not installed.
+    /// </summary>
+    /// <returns>The metadata in the order of AppMetadataCache.METADATA_ on the Java side, or
+    /// <c>null</c> if the activity does not cache it.</returns>
+    public static string[] GetAppMetadata()
+    {
+        AndroidJavaObject unityActivity = GetUnityActivity();
+
+        if (unityActivity != null)
+        {
+            try
+            {
+                return unityActivity.Call<string[]>("getAppMetadata");
+            }
+            catch (AndroidJavaException e)
+            {
+                Debug.Log("AndroidJavaException : " + e.Message);
+            }
+        }
+
+        return null;
+    }
+
+    /// <summary>
+    /// Gets the native address of the shared touch buffer written by GoogleUnityActivity.
+    /// </summary>
+    /// <returns>The address, or <c>IntPtr.Zero</c> if the buffer is not enabled or its address
+    /// is not available on this runtime; read it through <c>CopyTouchBuffer</c> then.</returns>
+    public static IntPtr GetTouchBufferAddress()
+    {
+        AndroidJavaObject unityActivity = GetUnityActivity();
+
+        if (unityActivity != null)
+        {
+            try
+            {
+                long address = unityActivity.Call<long>("getTouchBufferAddress");
+                if (address == 0)
+                {
+                    Debug.Log("Touch buffer address is not available, use CopyTouchBuffer.");
+                    return IntPtr.Zero;
+                }
+
+                return new IntPtr(address);
+            }
+            catch (AndroidJavaException e)
+            {
+                Debug.Log("AndroidJavaException : " + e.Message);
+            }
+        }
+
+        return IntPtr.Zero;
+    }
+
+    /// <summary>
+    /// Gets a consistent copy of the shared touch buffer, for runtimes where
+    /// <c>GetTouchBufferAddress</c> returns <c>IntPtr.Zero</c>.
+    /// </summary>
+    /// <returns>The buffer contents, or <c>null</c> if the buffer is not enabled.</returns>
+    public static byte[] CopyTouchBuffer()
+    {
+        AndroidJavaObject unityActivity = GetUnityActivity();
+
+        if (unityActivity != null)
+        {
+            try
+            {
+                return unityActivity.Call<byte[]>("copyTouchBuffer");
+            }
+            catch (AndroidJavaException e)
+            {
+                Debug.Log("AndroidJavaException : " + e.Message);
+            }
+        }
+
+        return null;
+    }
+
     /// <summary>
     /// Gets the name of the current package.
     /// </summary>
@@ -467,8 +561,20 @@ public partial class AndroidHelper : MonoBehaviour
         {
             try
             {
-                AndroidJavaObject packageInfo = GetPackageInfo(packageName);
-                versionName = packageInfo.Get<string>("versionName");
+                versionName = unityActivity.Call<string>("getCachedVersionName", packageName);
+            }
+            catch (AndroidJavaException)
+            {
+                versionName = null;
+            }
+
+            try
+            {
+                if (versionName == null)
+                {
+                    AndroidJavaObject packageInfo = GetPackageInfo(packageName);
+                    versionName = packageInfo.Get<string>("versionName");
+                }
             }
             catch (AndroidJavaException e)
             {
@@ -492,10 +598,24 @@ public partial class AndroidHelper : MonoBehaviour
 
         if (unityActivity != null && !string.IsNullOrEmpty(packageName))
         {
+            bool cached = false;
             try
             {
-                AndroidJavaObject packageInfo = GetPackageInfo(packageName);
-                versionCode = packageInfo.Get<int>("versionCode");
+                versionCode = unityActivity.Call<int>("getCachedVersionCode", packageName);
+                cached = true;
+            }
+            catch (AndroidJavaException)
+            {
+                cached = false;
+            }
+
+            try
+            {
+                if (!cached)
+                {
+                    AndroidJavaObject packageInfo = GetPackageInfo(packageName);
+                    versionCode = packageInfo.Get<int>("versionCode");
+                }
             }
             catch (AndroidJavaException e)
             {
@@ -752,7 +872,7 @@ public partial class AndroidHelper : MonoBehaviour
     private static void _RegisterCallbacks()
     {
         #if ANDROID_DEVICE
-        m_callbacks = new AndroidLifecycleCallbacks();
+        m_callbacks = AndroidLifecycleCallbacks.Create();
 
         m_unityActivity = GetUnityActivity();
         if (m_unityActivity != null)
@@ -65,6 +65,23 @@ public delegate void OnRequestPermissionsResultHandler(int requestCode, string[]
 /// </summary>
 public delegate void OnDisplayChangedEventHandler();
 
+/// <summary>
+/// Delegate for performance tier changes from the wrapper activity's performance governor.
+/// </summary>
+/// <param name="tier">New tier, 0 (high) to 3 (minimum).</param>
+public delegate void OnPerformanceTierChangedEventHandler(int tier);
+
+/// <summary>
+/// Delegate for the Android onTrimMemory event.
+/// </summary>
+/// <param name="level">ComponentCallbacks2 trim memory level.</param>
+public delegate void OnTrimMemoryEventHandler(int level);
+
+/// <summary>
+/// Delegate for the Android onLowMemory event.
+/// </summary>
+public delegate void OnLowMemoryEventHandler();
+
 /// <summary>
 /// Enum for native Android screen rotations.
 /// </summary>
@@ -91,12 +108,12 @@ public enum AndroidPermissionGrantResult
 public class AndroidLifecycleCallbacks : AndroidJavaProxy
 {
     /// <summary>
-    /// Occurs when the Android onPause event is fired.
+    /// Occurs when the Android onStart event is fired.
     /// </summary>
     private static OnStartEventHandler m_onStartEvent;
 
     /// <summary>
-    /// Occurs when the Android onPause event is fired.
+    /// Occurs when the Android onStop event is fired.
     /// </summary>
     private static OnStopEventHandler m_onStopEvent;
 
@@ -126,12 +143,65 @@ public class AndroidLifecycleCallbacks : AndroidJavaProxy
     private static OnRequestPermissionsResultHandler m_onRequestPermissionsResultEvent;
 
     /// <summary>
-    /// Initializes a new instance of the <see cref="AndroidLifecycleCallbacks"/> class.
+    /// Occurs when the performance tier changes.
+    /// </summary>
+    private static OnPerformanceTierChangedEventHandler m_onPerformanceTierChangedEvent;
+
+    /// <summary>
+    /// Occurs when the Android onTrimMemory event is fired.
+    /// </summary>
+    private static OnTrimMemoryEventHandler m_onTrimMemoryEvent;
+
+    /// <summary>
+    /// Occurs when the Android onLowMemory event is fired.
+    /// </summary>
+    private static OnLowMemoryEventHandler m_onLowMemoryEvent;
+
+    /// <summary>
+    /// The optional Java interface with the onStart, onStop, performance tier and memory
+    /// callbacks. Wrappers built before it was added do not have it.
+    /// </summary>
+    private const string EXTENDED_LISTENER_CLASS = "com.google.unity.GoogleUnityActivity$ExtendedAndroidLifecycleListener";
+
+    /// <summary>
+    /// Initializes a new instance of the <see cref="AndroidLifecycleCallbacks"/> class that only
+    /// implements AndroidLifecycleListener. Use <see cref="Create"/> to also get the extended
+    /// callbacks when the wrapper has them.
     /// </summary>
     public AndroidLifecycleCallbacks() : base("com.google.unity.GoogleUnityActivity$AndroidLifecycleListener")
     {
     }
 
+    /// <summary>
+    /// Initializes a new instance of the <see cref="AndroidLifecycleCallbacks"/> class that
+    /// implements the given Java listener interface.
+    /// </summary>
+    /// <param name="javaInterface">Java listener interface.</param>
+    private AndroidLifecycleCallbacks(string javaInterface) : base(javaInterface)
+    {
+    }
+
+    /// <summary>
+    /// Creates callbacks that implement ExtendedAndroidLifecycleListener if the wrapper in the app
+    /// has it, and AndroidLifecycleListener otherwise. With the latter, the onStart, onStop,
+    /// performance tier and memory callbacks are never called.
+    /// </summary>
+    /// <returns>The new callbacks.</returns>
+    public static AndroidLifecycleCallbacks Create()
+    {
+        try
+        {
+            new AndroidJavaClass(EXTENDED_LISTENER_CLASS).Dispose();
+        }
+        catch (AndroidJavaException)
+        {
+            Debug.Log("ExtendedAndroidLifecycleListener not found, only the basic lifecycle callbacks are available");
+            return new AndroidLifecycleCallbacks();
+        }
+
+        return new AndroidLifecycleCallbacks(EXTENDED_LISTENER_CLASS);
+    }
+
     /// <summary>
     /// Registers the on start callback to Android.
     /// </summary>
@@ -216,6 +286,42 @@ public class AndroidLifecycleCallbacks : AndroidJavaProxy
         }
     }
 
+    /// <summary>
+    /// Registers the performance tier changed callback.
+    /// </summary>
+    /// <param name="onPerformanceTierChanged">On performance tier changed.</param>
+    public void RegisterOnPerformanceTierChanged(OnPerformanceTierChangedEventHandler onPerformanceTierChanged)
+    {
+        if (onPerformanceTierChanged != null)
+        {
+            m_onPerformanceTierChangedEvent += onPerformanceTierChanged;
+        }
+    }
+
+    /// <summary>
+    /// Registers the onTrimMemory callback to Android.
+    /// </summary>
+    /// <param name="onTrimMemory">On trim memory.</param>
+    public void RegisterOnTrimMemory(OnTrimMemoryEventHandler onTrimMemory)
+    {
+        if (onTrimMemory != null)
+        {
+            m_onTrimMemoryEvent += onTrimMemory;
+        }
+    }
+
+    /// <summary>
+    /// Registers the onLowMemory callback to Android.
+    /// </summary>
+    /// <param name="onLowMemory">On low memory.</param>
+    public void RegisterOnLowMemory(OnLowMemoryEventHandler onLowMemory)
+    {
+        if (onLowMemory != null)
+        {
+            m_onLowMemoryEvent += onLowMemory;
+        }
+    }
+
     /// <summary>
     /// Unregisters the on start callback to Android.
     /// </summary>
@@ -300,6 +406,42 @@ public class AndroidLifecycleCallbacks : AndroidJavaProxy
         }
     }
 
+    /// <summary>
+    /// Unregisters the performance tier changed callback.
+    /// </summary>
+    /// <param name="onPerformanceTierChanged">On performance tier changed.</param>
+    public void UnregisterOnPerformanceTierChanged(OnPerformanceTierChangedEventHandler onPerformanceTierChanged)
+    {
+        if (onPerformanceTierChanged != null)
+        {
+            m_onPerformanceTierChangedEvent -= onPerformanceTierChanged;
+        }
+    }
+
+    /// <summary>
+    /// Unregisters the onTrimMemory callback to Android.
+    /// </summary>
+    /// <param name="onTrimMemory">On trim memory.</param>
+    public void UnregisterOnTrimMemory(OnTrimMemoryEventHandler onTrimMemory)
+    {
+        if (onTrimMemory != null)
+        {
+            m_onTrimMemoryEvent -= onTrimMemory;
+        }
+    }
+
+    /// <summary>
+    /// Unregisters the onLowMemory callback to Android.
+    /// </summary>
+    /// <param name="onLowMemory">On low memory.</param>
+    public void UnregisterOnLowMemory(OnLowMemoryEventHandler onLowMemory)
+    {
+        if (onLowMemory != null)
+        {
+            m_onLowMemoryEvent -= onLowMemory;
+        }
+    }
+
     /// <summary>
     /// Invoke the specified methodName and javaArgs.
     /// </summary>
@@ -442,4 +584,51 @@ public class AndroidLifecycleCallbacks : AndroidJavaProxy
             m_onRequestPermissionsResultEvent(requestCode, permissions, grantResults);
         }
     }
+
+    /// <summary>
+    /// Implements the performance tier change callback.
+    /// </summary>
+    /// <param name="tier">New tier.</param>
+    [System.Diagnostics.CodeAnalysis.SuppressMessage("StyleCop.CSharp.NamingRules",
+                                                     "SA1300:ElementMustBeginWithUpperCaseLetter",
+                                                     Justification = "Android API.")]
+    protected void onPerformanceTierChanged(int tier)
+    {
+        if (m_onPerformanceTierChangedEvent != null)
+        {
+            Debug.Log("Unity got the Java onPerformanceTierChanged, tier=" + tier);
+            m_onPerformanceTierChangedEvent(tier);
+        }
+    }
+
+    /// <summary>
+    /// Implements the Android onTrimMemory.
+    /// </summary>
+    /// <param name="level">Trim memory level.</param>
+    [System.Diagnostics.CodeAnalysis.SuppressMessage("StyleCop.CSharp.NamingRules",
+                                                     "SA1300:ElementMustBeginWithUpperCaseLetter",
+                                                     Justification = "Android API.")]
+    protected void onTrimMemory(int level)
+    {
+        if (m_onTrimMemoryEvent != null)
+        {
+            Debug.Log("Unity got the Java onTrimMemory, level=" + level);
+            m_onTrimMemoryEvent(level);
+        }
+    }
+
+    /// <summary>
+    /// Implements the Android onLowMemory.
+    /// </summary>
+    [System.Diagnostics.CodeAnalysis.SuppressMessage("StyleCop.CSharp.NamingRules",
+                                                     "SA1300:ElementMustBeginWithUpperCaseLetter",
+                                                     Justification = "Android API.")]
+    protected void onLowMemory()
+    {
+        if (m_onLowMemoryEvent != null)
+        {
+            Debug.Log("Unity got the Java onLowMemory");
+            m_onLowMemoryEvent();
+        }
+    }
 }